@@ -0,0 +1,205 @@
+package ncsu.Config;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+import ncsu.Forum_Backend_Classes.Classes;
+import ncsu.Forum_Backend_Classes.ClassesRepository;
+import ncsu.Forum_Backend_Department.Department;
+import ncsu.Forum_Backend_Department.DepartmentRepository;
+import ncsu.Forum_Backend_Professor.Professor;
+import ncsu.Forum_Backend_Professor.ProfessorRepository;
+import ncsu.Forum_Backend_User.User;
+import ncsu.Forum_Backend_User.UserRepository;
+
+/**
+ * In-memory copy of the id and display name of every department, class,
+ * professor and user, so writes that only point at them (a new post) can
+ * check they exist and take a getReferenceById proxy without a SELECT.
+ *
+ * The maps are filled in one pass at startup and on a miss one row is read
+ * and remembered. Misses are never remembered, so anything created since is
+ * found. Controllers that rename or delete one of these call the matching
+ * forget method after the write; it reaches every instance through the
+ * {@link EventBus} topic {@value #TOPIC}.
+ */
+@Component
+public class CatalogResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogResolver.class);
+
+    /** A known row: a lazy reference for JPA plus what list rows show of it. */
+    public record Ref<T>(T reference, long id, String name) {}
+
+    public record UserName(long id, String unityId, String displayName) {}
+
+    // The name a post shows for each; a class shows its course code
+    private record Entry(long id, String name) {}
+
+    public static final String TOPIC = "catalog_forget";
+
+    enum Kind { DEPARTMENT, CLASS, PROFESSOR, USER }
+
+    record Forget(Kind kind, long id) {}
+
+    private static final String DEPARTMENTS = "SELECT id, name FROM department";
+    private static final String CLASSES = "SELECT id, course_title FROM classes";
+    private static final String PROFESSORS = "SELECT id, name FROM professor";
+    private static final String USERS = "SELECT unity_id, id, display_name FROM app_user";
+
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private DepartmentRepository departmentRepository;
+    @Autowired private ClassesRepository classesRepository;
+    @Autowired private ProfessorRepository professorRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private EventBus bus;
+
+    private final ConcurrentHashMap<Long, Entry> departments = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Entry> classes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Entry> professors = new ConcurrentHashMap<>();
+    // keyed by unity id, which is what clients send; chat sends only know the id
+    private final ConcurrentHashMap<String, Entry> users = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, String> unityIds = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        warm(DEPARTMENTS, departments);
+        warm(CLASSES, classes);
+        warm(PROFESSORS, professors);
+        jdbc.query(USERS + " WHERE unity_id IS NOT NULL", rs -> {
+            String unityId = rs.getString(1);
+            if (users.putIfAbsent(unityId, new Entry(rs.getLong(2), rs.getString(3))) == null) {
+                unityIds.putIfAbsent(rs.getLong(2), unityId);
+            }
+        });
+        log.info("Catalog resolver warmed: {} departments, {} classes, {} professors, {} users",
+                departments.size(), classes.size(), professors.size(), users.size());
+    }
+
+    private void warm(String sql, Map<Long, Entry> into) {
+        jdbc.query(sql, rs -> {
+            into.putIfAbsent(rs.getLong(1), new Entry(rs.getLong(1), rs.getString(2)));
+        });
+    }
+
+    /** The department, or null if there is none with that id. */
+    public Ref<Department> department(long id) {
+        return ref(lookup(departments, id, DEPARTMENTS), departmentRepository::getReferenceById);
+    }
+
+    public Ref<Classes> course(long id) {
+        return ref(lookup(classes, id, CLASSES), classesRepository::getReferenceById);
+    }
+
+    public Ref<Professor> professor(long id) {
+        return ref(lookup(professors, id, PROFESSORS), professorRepository::getReferenceById);
+    }
+
+    public Ref<User> user(String unityId) {
+        return ref(userEntry(unityId), userRepository::getReferenceById);
+    }
+
+    private Entry userEntry(String unityId) {
+        Entry entry = users.get(unityId);
+        if (entry == null) {
+            entry = load(USERS + " WHERE unity_id = ?",
+                    (rs, i) -> new Entry(rs.getLong(2), rs.getString(3)), unityId);
+            if (entry != null) {
+                users.put(unityId, entry);
+                unityIds.put(entry.id(), unityId);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Who the user with this id is, or null if there is none. Plain JDBC and
+     * no JPA reference: a chat send waits on the writer thread, and with
+     * open-in-view any repository call would pin a pooled connection to the
+     * request for that whole wait.
+     */
+    public UserName userName(long id) {
+        String unityId = unityIds.get(id);
+        if (unityId == null) {
+            unityId = jdbc.query("SELECT unity_id FROM app_user WHERE id = ?",
+                    (rs, i) -> rs.getString(1), id).stream().findFirst().orElse(null);
+        }
+        Entry entry = unityId == null ? null : userEntry(unityId);
+        return entry == null ? null : new UserName(id, unityId, entry.name());
+    }
+
+    public void forgetDepartment(long id) {
+        bus.publish(TOPIC, new Forget(Kind.DEPARTMENT, id));
+    }
+
+    public void forgetClass(long id) {
+        bus.publish(TOPIC, new Forget(Kind.CLASS, id));
+    }
+
+    public void forgetProfessor(long id) {
+        bus.publish(TOPIC, new Forget(Kind.PROFESSOR, id));
+    }
+
+    public void forgetUser(long id) {
+        bus.publish(TOPIC, new Forget(Kind.USER, id));
+    }
+
+    @PostConstruct
+    void subscribe() {
+        bus.subscribe(TOPIC, Forget.class, this::forget);
+        // renames may have been missed; entries load again on demand
+        bus.subscribe(EventBus.RESYNC, EventBus.Resync.class, resync -> {
+            departments.clear();
+            classes.clear();
+            professors.clear();
+            users.clear();
+            unityIds.clear();
+        });
+    }
+
+    private void forget(Forget forget) {
+        long id = forget.id();
+        switch (forget.kind()) {
+            case DEPARTMENT -> departments.remove(id);
+            case CLASS -> classes.remove(id);
+            case PROFESSOR -> professors.remove(id);
+            case USER -> {
+                unityIds.remove(id);
+                users.values().removeIf(entry -> entry.id() == id);
+            }
+        }
+    }
+
+    private Entry lookup(Map<Long, Entry> cache, long id, String sql) {
+        Entry entry = cache.get(id);
+        if (entry == null) {
+            entry = load(sql + " WHERE id = ?", (rs, i) -> new Entry(rs.getLong(1), rs.getString(2)), id);
+            if (entry != null) {
+                cache.put(id, entry);
+            }
+        }
+        return entry;
+    }
+
+    private Entry load(String sql, RowMapper<Entry> mapper, Object key) {
+        List<Entry> rows = jdbc.query(sql, mapper, key);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static <T> Ref<T> ref(Entry entry, Function<Long, T> reference) {
+        return entry == null ? null : new Ref<>(reference.apply(entry.id()), entry.id(), entry.name());
+    }
+}
@@ -0,0 +1,38 @@
+package ncsu.Config;
+
+import java.util.function.Consumer;
+
+/**
+ * Topic-based publish/subscribe between the backend instances behind the load
+ * balancer. State that each instance keeps in memory and that follows writes
+ * (chat streams and recent-history rings, feed caches, ETag versions, catalog
+ * names) subscribes here instead of being called directly, so a write on one
+ * instance reaches the same state on every instance.
+ *
+ * publish hands the event to this instance's subscribers before it returns,
+ * on the caller's thread, and to the other instances' subscribers shortly
+ * after, in publish order per topic. Events must survive a round trip through
+ * JSON (records of plain values).
+ *
+ * forum.bus.type picks the implementation: "local" (default,
+ * {@link LocalEventBus}) for a single instance, "postgres"
+ * ({@link PostgresEventBus}) to fan out through LISTEN/NOTIFY.
+ *
+ * An implementation that can miss other instances' events delivers a
+ * {@link Resync} on the local topic {@value #RESYNC} once it is receiving
+ * again. Subscribers should then drop whatever follows writes, since they
+ * cannot tell what they missed.
+ */
+public interface EventBus {
+
+    /** Never published; delivered to this instance's subscribers only. */
+    String RESYNC = "resync";
+
+    record Resync() {
+    }
+
+    void publish(String topic, Object event);
+
+    /** Subscribes for the life of the process. Topics are lower-case letters and underscores. */
+    <T> void subscribe(String topic, Class<T> type, Consumer<? super T> handler);
+}
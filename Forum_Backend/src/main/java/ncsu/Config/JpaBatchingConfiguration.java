@@ -0,0 +1,32 @@
+package ncsu.Config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Turns on JDBC batching for Hibernate writes. This only pays off because
+ * entity ids are assigned up front by {@link SnowflakeId}; with IDENTITY ids
+ * Hibernate has to run every INSERT on its own to read the key back.
+ *
+ * For PostgreSQL, adding reWriteBatchedInserts=true to the JDBC URL lets the
+ * driver turn a batch into multi-row INSERTs as well.
+ */
+@Configuration
+public class JpaBatchingConfiguration {
+
+    @Value("${forum.jdbc.batch-size:50}")
+    private int batchSize;
+
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatchingCustomizer() {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_BATCH_SIZE, batchSize);
+            // group statements by table so mixed saves still form batches
+            properties.put(AvailableSettings.ORDER_INSERTS, true);
+            properties.put(AvailableSettings.ORDER_UPDATES, true);
+        };
+    }
+}
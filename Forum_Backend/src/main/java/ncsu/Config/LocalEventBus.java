@@ -0,0 +1,75 @@
+package ncsu.Config;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-JVM {@link EventBus}: publish calls this instance's subscribers and
+ * nothing else. A subscriber that throws is logged and skipped, so one broken
+ * cache cannot stop the others (or the write that published) from going on.
+ */
+@Component
+@ConditionalOnProperty(name = "forum.bus.type", havingValue = "local", matchIfMissing = true)
+public class LocalEventBus implements EventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalEventBus.class);
+
+    // Topics double as Postgres channel names, so keep them plain
+    private static final Pattern TOPIC = Pattern.compile("[a-z_]{1,40}");
+
+    protected record Subscriber<T>(Class<T> type, Consumer<? super T> handler) {
+    }
+
+    private final ConcurrentHashMap<String, List<Subscriber<?>>> topics = new ConcurrentHashMap<>();
+
+    @Override
+    public void publish(String topic, Object event) {
+        deliver(topic, subscriber -> event);
+    }
+
+    @Override
+    public <T> void subscribe(String topic, Class<T> type, Consumer<? super T> handler) {
+        if (!TOPIC.matcher(topic).matches()) {
+            throw new IllegalArgumentException("Bad topic name: " + topic);
+        }
+        topics.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(new Subscriber<>(type, handler));
+    }
+
+    /** Topics with at least one subscriber. */
+    protected Set<String> topics() {
+        return topics.keySet();
+    }
+
+    /** Calls every subscriber of the topic with the event {@code as} builds for its type. */
+    protected void deliver(String topic, EventFactory as) {
+        List<Subscriber<?>> subscribers = topics.get(topic);
+        if (subscribers == null) {
+            return;
+        }
+        for (Subscriber<?> subscriber : subscribers) {
+            try {
+                accept(subscriber, as.build(subscriber));
+            } catch (Exception e) {
+                log.error("Subscriber of {} failed", topic, e);
+            }
+        }
+    }
+
+    private static <T> void accept(Subscriber<T> subscriber, Object event) {
+        subscriber.handler().accept(subscriber.type().cast(event));
+    }
+
+    @FunctionalInterface
+    protected interface EventFactory {
+        Object build(Subscriber<?> subscriber) throws Exception;
+    }
+}
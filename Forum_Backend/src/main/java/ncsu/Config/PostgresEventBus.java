@@ -0,0 +1,353 @@
+package ncsu.Config;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * {@link EventBus} that fans events out to every instance through Postgres
+ * LISTEN/NOTIFY, so a chat send on one instance reaches the streams open on
+ * another within a database round trip, and nobody polls a table.
+ *
+ * Sending: publish runs this instance's subscribers, then serializes the event
+ * onto its topic's queue (forum.bus.queue-capacity per topic). One notifier
+ * thread drains every queue, packs each topic's events into as few payloads as
+ * fit in forum.bus.max-payload-bytes (Postgres allows just under 8000) and
+ * sends the whole drain as one pg_notify statement. When a topic's queue is
+ * full, publish waits up to forum.bus.publish-timeout-ms for room and then
+ * drops the event for the other instances, so a slow database slows writers
+ * down instead of growing the heap. An event too large for a payload of its
+ * own is dropped for the other instances too. Either way the next drain ends
+ * with a notification on "forum_resync", and every other instance delivers
+ * {@link EventBus#RESYNC} when it arrives, after the events sent before it.
+ *
+ * Receiving: a listener thread holds its own connection, outside the pool,
+ * LISTENs on "forum_<topic>" for every subscribed topic and blocks on the
+ * socket until notifications arrive. Payloads carry the id of the process
+ * that sent them, so an instance skips its own. Notifications sent while the
+ * listener is reconnecting are missed, so after every connect, once it is
+ * listening again, it delivers {@link EventBus#RESYNC} to this instance's
+ * subscribers and they drop what they cache.
+ */
+@Component
+@ConditionalOnProperty(name = "forum.bus.type", havingValue = "postgres")
+public class PostgresEventBus extends LocalEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresEventBus.class);
+
+    static final String CHANNEL_PREFIX = "forum_";
+    // application_name of the listener connection, to tell it apart in pg_stat_activity
+    static final String LISTENER_NAME = "forum-event-bus-listen";
+
+    // One statement, one transaction: the notifications arrive together and in order
+    private static final String NOTIFY = "SELECT pg_notify(c, p) FROM unnest(?::text[], ?::text[]) AS n(c, p)";
+
+    // Room for the envelope around the events: {"o":"<origin>","s":<seq>,"e":[...]}
+    private static final int ENVELOPE_BYTES = 64;
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper mapper;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int queueCapacity;
+    private final int maxPayloadBytes;
+    private final long publishTimeoutMs;
+    private final long listenWaitMs;
+    private final long retryMs;
+
+    private final String origin = Long.toString(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean resyncOthers = new AtomicBoolean();
+    private final ConcurrentHashMap<String, BlockingQueue<String>> queues = new ConcurrentHashMap<>();
+    private final Set<String> listening = ConcurrentHashMap.newKeySet();
+    private final Semaphore queued = new Semaphore(0);
+    private final Thread notifier;
+    private final Thread listener;
+    private volatile boolean running = true;
+
+    @Autowired
+    public PostgresEventBus(JdbcTemplate jdbc, ObjectMapper mapper, DataSourceProperties dataSource,
+                            @Value("${forum.bus.queue-capacity:10000}") int queueCapacity,
+                            @Value("${forum.bus.max-payload-bytes:7900}") int maxPayloadBytes,
+                            @Value("${forum.bus.publish-timeout-ms:1000}") long publishTimeoutMs,
+                            @Value("${forum.bus.listen-wait-ms:500}") long listenWaitMs) {
+        this(jdbc, mapper, dataSource.determineUrl(), dataSource.determineUsername(),
+                dataSource.determinePassword(), queueCapacity, maxPayloadBytes, publishTimeoutMs, listenWaitMs);
+    }
+
+    PostgresEventBus(JdbcTemplate jdbc, ObjectMapper mapper, String url, String username, String password,
+                     int queueCapacity, int maxPayloadBytes, long publishTimeoutMs, long listenWaitMs) {
+        this.jdbc = jdbc;
+        this.mapper = mapper;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.queueCapacity = queueCapacity;
+        this.maxPayloadBytes = maxPayloadBytes;
+        this.publishTimeoutMs = publishTimeoutMs;
+        this.listenWaitMs = listenWaitMs;
+        this.retryMs = Math.max(listenWaitMs, 1000);
+        this.notifier = new Thread(this::notifyLoop, "event-bus-notify");
+        this.listener = new Thread(this::listenLoop, "event-bus-listen");
+        notifier.setDaemon(true);
+        listener.setDaemon(true);
+        notifier.start();
+        listener.start();
+    }
+
+    @Override
+    public void publish(String topic, Object event) {
+        super.publish(topic, event);
+        String json;
+        try {
+            json = mapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            log.error("Cannot serialize {} event {}", topic, event, e);
+            dropped(topic);
+            return;
+        }
+        if (bytes(json) + ENVELOPE_BYTES > maxPayloadBytes) {
+            log.warn("Dropping a {} event of {} bytes for the other instances; it does not fit a notification",
+                    topic, bytes(json));
+            dropped(topic);
+            return;
+        }
+        BlockingQueue<String> queue = queues.computeIfAbsent(topic, t -> new ArrayBlockingQueue<>(queueCapacity));
+        boolean accepted;
+        try {
+            accepted = queue.offer(json, publishTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            dropped(topic);
+        }
+        queued.release();
+    }
+
+    // The other instances cannot tell what they missed, so they all resync
+    private void dropped(String topic) {
+        if (dropped.getAndIncrement() % 1000 == 0) {
+            log.warn("Event bus dropped a {} event for the other instances ({} so far); they will resync",
+                    topic, dropped.get());
+        }
+        resyncOthers.set(true);
+        queued.release();
+    }
+
+    /** Whether this instance is listening for the topic yet, for tests and monitoring. */
+    boolean listening(String topic) {
+        return listening.contains(topic);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        queued.release();
+        notifier.join(5000);
+        listener.join(listenWaitMs + 1000);
+    }
+
+    private void notifyLoop() {
+        while (running) {
+            queued.acquireUninterruptibly();
+            queued.drainPermits();
+            flush();
+        }
+        // what was published before shutdown
+        flush();
+    }
+
+    private void flush() {
+        List<String> channels = new ArrayList<>();
+        List<String> payloads = new ArrayList<>();
+        List<String> events = new ArrayList<>();
+        for (Map.Entry<String, BlockingQueue<String>> topic : queues.entrySet()) {
+            events.clear();
+            topic.getValue().drainTo(events);
+            pack(CHANNEL_PREFIX + topic.getKey(), events, channels, payloads);
+        }
+        if (resyncOthers.getAndSet(false)) {
+            // last, so it lands after everything that was queued before the drop
+            channels.add(CHANNEL_PREFIX + RESYNC);
+            payloads.add(envelope().append("]}").toString());
+        }
+        while (!channels.isEmpty()) {
+            try {
+                jdbc.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(NOTIFY);
+                    ps.setArray(1, con.createArrayOf("text", channels.toArray()));
+                    ps.setArray(2, con.createArrayOf("text", payloads.toArray()));
+                    return ps;
+                }, rs -> null);
+                return;
+            } catch (RuntimeException e) {
+                log.error("Sending {} event bus notifications failed, will retry", channels.size(), e);
+                if (!running || !sleep(retryMs)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Events in order, as few payloads as fit
+    private void pack(String channel, List<String> events, List<String> channels, List<String> payloads) {
+        StringBuilder payload = null;
+        int size = 0;
+        for (String event : events) {
+            int bytes = bytes(event);
+            if (payload != null && size + 1 + bytes + ENVELOPE_BYTES > maxPayloadBytes) {
+                channels.add(channel);
+                payloads.add(payload.append("]}").toString());
+                payload = null;
+            }
+            if (payload == null) {
+                payload = envelope();
+                size = 0;
+            } else {
+                payload.append(',');
+                size++;
+            }
+            payload.append(event);
+            size += bytes;
+        }
+        if (payload != null) {
+            channels.add(channel);
+            payloads.add(payload.append("]}").toString());
+        }
+    }
+
+    private StringBuilder envelope() {
+        // the sequence number keeps equal payloads apart; Postgres folds duplicates within a transaction
+        return new StringBuilder("{\"o\":\"").append(origin).append("\",\"s\":")
+                .append(sequence.incrementAndGet()).append(",\"e\":[");
+    }
+
+    private void listenLoop() {
+        Properties properties = new Properties();
+        if (username != null) {
+            properties.setProperty("user", username);
+        }
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        properties.setProperty("ApplicationName", LISTENER_NAME);
+        while (running) {
+            try (Connection con = DriverManager.getConnection(url, properties)) {
+                PGConnection pg = con.unwrap(PGConnection.class);
+                // anything sent before these LISTENs took effect is gone; caches resync
+                Set<String> topics = new HashSet<>(topics());
+                topics.add(RESYNC);
+                listen(con, topics);
+                deliver(RESYNC, subscriber -> new Resync());
+                listening.addAll(topics);
+                while (running) {
+                    for (String topic : topics()) {
+                        if (!listening.contains(topic)) {
+                            listen(con, Set.of(topic));
+                            listening.add(topic);
+                        }
+                    }
+                    // blocks on the socket, not a query, until something arrives or the wait runs out
+                    PGNotification[] notifications = pg.getNotifications((int) listenWaitMs);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(notification.getName(), notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                listening.clear();
+                if (running) {
+                    log.warn("Event bus listener lost its connection, reconnecting: {}", e.getMessage());
+                    sleep(retryMs);
+                }
+            }
+        }
+    }
+
+    // RESYNC is always listened for, whether or not anything here subscribes to it
+    private static void listen(Connection con, Set<String> topics) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            for (String topic : topics) {
+                statement.execute("LISTEN \"" + CHANNEL_PREFIX + topic + "\"");
+            }
+        }
+    }
+
+    private void receive(String channel, String payload) {
+        if (!channel.startsWith(CHANNEL_PREFIX)) {
+            return;
+        }
+        JsonNode envelope;
+        try {
+            envelope = mapper.readTree(payload);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring a malformed notification on {}", channel);
+            return;
+        }
+        if (origin.equals(envelope.path("o").asText())) {
+            return;
+        }
+        String topic = channel.substring(CHANNEL_PREFIX.length());
+        if (topic.equals(RESYNC)) {
+            log.info("Another instance dropped bus events; resyncing");
+            deliver(RESYNC, subscriber -> new Resync());
+            return;
+        }
+        for (JsonNode event : envelope.path("e")) {
+            deliver(topic, subscriber -> mapper.treeToValue(event, subscriber.type()));
+        }
+    }
+
+    private static int bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
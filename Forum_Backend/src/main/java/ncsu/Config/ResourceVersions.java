@@ -0,0 +1,124 @@
+package ncsu.Config;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * In-memory version counters behind the ETags of GET endpoints. A write bumps
+ * the counters of whatever it changed, after it has committed; a GET builds
+ * its ETag from the counters before it reads anything, so a matching
+ * If-None-Match can be answered with 304 without touching the database.
+ *
+ * Counters start at 0 and only live in this process, so every tag carries a
+ * per-startup epoch: tags issued before a restart never match afterwards.
+ * Bumps go out on the {@link EventBus} topic {@value #TOPIC}, so every
+ * instance stops matching tags for what changed; each instance has its own
+ * epoch, so a tag only ever matches on the instance that issued it. After an
+ * {@link EventBus#RESYNC} the epoch rolls over, since bumps may have been
+ * missed.
+ *
+ * Versions come from one sequence, so a key never returns to a version it had
+ * before. Scoped keys ("post:42", see {@link #scope}) are many, and only the
+ * forum.etags.max-versions most recently used are kept; an evicted key reads
+ * as the highest version ever evicted from its scope. That never goes back to
+ * a version the key was read at since, so a tag never matches stale content;
+ * it only stops matching sooner. Shared keys (no scope) are never evicted.
+ */
+@Component
+public class ResourceVersions {
+
+    // Shared counters for data that many responses embed
+    public static final String CATALOG = "catalog";   // departments, classes, professors
+    public static final String POSTS = "posts";       // any post, comment or vote anywhere
+    public static final String USERS = "users";       // user profiles
+
+    public static final String TOPIC = "resource_version";
+
+    @Autowired private EventBus bus;
+
+    @Value("${forum.etags.max-versions:100000}")
+    private int maxVersions;
+
+    private long lastEpoch;
+    private volatile String epoch = newEpoch();
+    // Guarded by `this`: key -> version, access-ordered for LRU; scope -> highest evicted version
+    private long sequence;
+    private final LinkedHashMap<String, Long> versions = new LinkedHashMap<>(256, 0.75f, true);
+    private final HashMap<String, Long> evicted = new HashMap<>();
+
+    @PostConstruct
+    void subscribe() {
+        bus.subscribe(TOPIC, String[].class, this::apply);
+        bus.subscribe(EventBus.RESYNC, EventBus.Resync.class, resync -> epoch = newEpoch());
+    }
+
+    // The current time, but never the same epoch twice
+    private synchronized String newEpoch() {
+        lastEpoch = Math.max(System.currentTimeMillis(), lastEpoch + 1);
+        return Long.toString(lastEpoch, 36);
+    }
+
+    public void bump(String key) {
+        bus.publish(TOPIC, new String[] {key});
+    }
+
+    public void bumpAll(Collection<String> keys) {
+        bus.publish(TOPIC, keys.toArray(String[]::new));
+    }
+
+    private synchronized void apply(String[] keys) {
+        long version = ++sequence;
+        for (String key : keys) {
+            versions.put(key, version);
+        }
+        Iterator<Map.Entry<String, Long>> eldest = versions.entrySet().iterator();
+        while (versions.size() > maxVersions && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            String scope = scope(entry.getKey());
+            if (scope != null) {
+                evicted.merge(scope, entry.getValue(), Math::max);
+                eldest.remove();
+            }
+        }
+    }
+
+    public synchronized long version(String key) {
+        Long version = versions.get(key);
+        if (version != null) {
+            return version;
+        }
+        String scope = scope(key);
+        return scope == null ? 0 : evicted.getOrDefault(scope, 0L);
+    }
+
+    /** The part of a key before its ':', or null for a shared key such as {@link #POSTS}. */
+    static String scope(String key) {
+        int colon = key.indexOf(':');
+        return colon < 0 ? null : key.substring(0, colon);
+    }
+
+    /** Strong ETag over the current versions of {@code keys}. */
+    public synchronized String etag(String... keys) {
+        StringBuilder tag = new StringBuilder("\"").append(epoch);
+        char sep = '-';
+        for (String key : keys) {
+            tag.append(sep).append(version(key));
+            sep = '.';
+        }
+        return tag.append('"').toString();
+    }
+
+    /** Strong ETag for a version that is tracked elsewhere, such as a cache entry. */
+    public String etag(String kind, long version) {
+        return "\"" + epoch + "-" + kind + version + "\"";
+    }
+}
@@ -0,0 +1,21 @@
+package ncsu.Config;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+/**
+ * Marks an {@code @Id} as assigned by {@link Snowflake} in the application
+ * rather than by the database. Because the id is known before the INSERT,
+ * Hibernate can batch inserts, which it cannot do for IDENTITY columns.
+ */
+@IdGeneratorType(SnowflakeIdGenerator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface SnowflakeId {
+}
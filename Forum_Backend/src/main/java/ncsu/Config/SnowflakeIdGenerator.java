@@ -0,0 +1,24 @@
+package ncsu.Config;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.beans.factory.annotation.Value;
+
+/**
+ * Hibernate side of {@link SnowflakeId}. Hibernate asks Spring for the
+ * generator instance, so the node number is injected from forum.ids.node-id
+ * (0..15, unique per running backend instance).
+ */
+public class SnowflakeIdGenerator implements IdentifierGenerator {
+
+    private final Snowflake snowflake;
+
+    public SnowflakeIdGenerator(@Value("${forum.ids.node-id:0}") int nodeId) {
+        this.snowflake = Snowflake.forNode(nodeId);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object entity) {
+        return snowflake.nextId();
+    }
+}
@@ -1,6 +1,8 @@
 package ncsu.Config;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
 import org.springframework.web.servlet.config.annotation.*;
 
 @Configuration
@@ -14,7 +16,17 @@ public class WebpageConfiguration implements WebMvcConfigurer {
               )
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
+                .exposedHeaders("X-Next-Cursor", "X-Group-Id")
                 .allowCredentials(true);
     }
+
+    // Parse multipart bodies only when asked, so attachment uploads can
+    // stream the raw request instead of the container spooling every part
+    @Bean
+    public MultipartResolver multipartResolver() {
+        StandardServletMultipartResolver resolver = new StandardServletMultipartResolver();
+        resolver.setResolveLazily(true);
+        return resolver;
+    }
 }
 
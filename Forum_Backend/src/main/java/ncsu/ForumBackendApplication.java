@@ -3,6 +3,7 @@ package ncsu;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @ComponentScan(basePackages = {
@@ -12,6 +13,7 @@ import org.springframework.context.annotation.ComponentScan;
 	    "ncsu.Forum_Backend_User",
 	    "ncsu.Forum_Backend_Message"
 	})
+@EnableScheduling
 public class ForumBackendApplication {
     public static void main(String[] args) {
         SpringApplication.run(ForumBackendApplication.class, args);
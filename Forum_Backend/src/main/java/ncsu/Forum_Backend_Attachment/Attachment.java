@@ -0,0 +1,68 @@
+package ncsu.Forum_Backend_Attachment;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import ncsu.Config.SnowflakeId;
+
+/**
+ * One upload: who sent which bytes under which name and type. The bytes
+ * themselves live in AttachmentStore under their SHA-256, so uploads of the
+ * same file share one copy on disk. Rows are written with plain JDBC
+ * (AttachmentController); the entity is here for the schema.
+ */
+@Entity
+@Table(indexes = {
+    @Index(name = "idx_attachment_sha256", columnList = "sha256")
+})
+public class Attachment {
+
+    @Id
+    @SnowflakeId
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    private long byteSize;
+
+    @Column(nullable = false, length = 100)
+    private String contentType;
+
+    private String filename;
+
+    private Long uploaderId;
+
+    private LocalDateTime createdAt;
+
+    public Attachment() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public long getByteSize() {
+        return byteSize;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public Long getUploaderId() {
+        return uploaderId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,265 @@
+package ncsu.Forum_Backend_Attachment;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ncsu.Config.CatalogResolver;
+import ncsu.Config.Snowflake;
+
+// File and image attachments for posts and chat messages. Upload, then put
+// the returned url in the post or message; the bytes behind a url never
+// change, so clients and proxies may cache them for good.
+@RestController
+@RequestMapping("/api/attachments")
+@CrossOrigin(origins = "http://localhost:5173")
+public class AttachmentController {
+
+    private static final Logger log = LoggerFactory.getLogger(AttachmentController.class);
+
+    private static final String CACHE_FOREVER = "public, max-age=31536000, immutable";
+    // Tomcat's sendfile: the connector writes the file with FileChannel.transferTo
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String INSERT = """
+        INSERT INTO attachment (id, sha256, byte_size, content_type, filename, uploader_id, created_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?)
+        """;
+    private static final String FIND = "SELECT sha256, byte_size, content_type, filename FROM attachment WHERE id = ?";
+
+    private record Row(String sha256, long size, String contentType, String filename) {
+    }
+
+    /** What an upload returns; {@code url} is where the bytes are served. */
+    public record AttachmentInfo(long id, String url, String sha256, long size, String contentType, String filename) {
+    }
+
+    @Autowired
+    private AttachmentStore store;
+
+    @Autowired
+    private ImageVariants variants;
+
+    @Autowired
+    private CatalogResolver catalog;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Value("${forum.attachments.max-bytes:26214400}")
+    private long maxBytes;
+
+    @Value("${forum.ids.node-id:0}")
+    private int nodeId;
+
+    // POST multipart/form-data with one file part. The file streams to disk as
+    // it arrives; 413 past forum.attachments.max-bytes.
+    @PostMapping(value = "/upload/{userId}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> upload(@PathVariable Long userId, HttpServletRequest request) throws IOException {
+        if (catalog.userName(userId) == null) {
+            return ResponseEntity.badRequest().body("Unknown user " + userId);
+        }
+        String boundary = MultipartReader.boundary(request.getContentType());
+        if (boundary == null) {
+            return ResponseEntity.badRequest().body("Missing multipart boundary");
+        }
+        MultipartReader reader = new MultipartReader(request.getInputStream(), boundary);
+        for (MultipartReader.Part part; (part = reader.next()) != null; ) {
+            if (part.filename() == null) {
+                continue; // a plain form field
+            }
+            AttachmentStore.Stored stored;
+            try {
+                stored = store.store(part.body(), maxBytes);
+            } catch (AttachmentStore.TooLargeException e) {
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
+            }
+            long id = Snowflake.forNode(nodeId).nextId();
+            String contentType = contentType(part.contentType());
+            String filename = filename(part.filename());
+            jdbc.update(INSERT, id, stored.sha256(), stored.size(), contentType, filename, userId,
+                    LocalDateTime.now());
+            if (ImageVariants.isImage(contentType)) {
+                variants.submit(stored.sha256(), store.path(stored.sha256()));
+            }
+            return ResponseEntity.ok(new AttachmentInfo(id, "/api/attachments/" + id, stored.sha256(),
+                    stored.size(), contentType, filename));
+        }
+        return ResponseEntity.badRequest().body("No file part");
+    }
+
+    // GET (or HEAD) an attachment. The ETag is the content hash, so
+    // If-None-Match answers 304 without touching the file; a single Range
+    // answers 206 with just those bytes. For images, ?size=N serves the
+    // smallest variant at least N pixels across (see ImageVariants); until
+    // that has been made, the original is served uncached.
+    @GetMapping("/{id}")
+    public void download(@PathVariable Long id, @RequestParam(required = false) Integer size,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Row row = jdbc.query(FIND, (rs, i) -> new Row(rs.getString(1), rs.getLong(2), rs.getString(3),
+                rs.getString(4)), id).stream().findFirst().orElse(null);
+        if (row == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        String sha256 = row.sha256();
+        long length = row.size();
+        String contentType = row.contentType();
+        String filename = row.filename();
+        Path file = store.path(sha256);
+        if (!Files.isReadable(file)) {
+            log.error("Attachment {} is missing its file {}", id, file);
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        String etag = "\"" + sha256 + "\"";
+        String cacheControl = CACHE_FOREVER;
+        int fit = size == null ? 0 : ImageVariants.fit(size);
+        if (fit > 0 && ImageVariants.isImage(contentType)) {
+            ImageVariants.Variant variant = variants.find(sha256, fit);
+            if (variant != null && Files.isReadable(variant.path())) {
+                file = variant.path();
+                length = variant.size();
+                contentType = variant.contentType();
+                etag = "\"" + sha256 + "-" + fit + "\"";
+            } else {
+                variants.submit(sha256, file);
+                cacheControl = "no-store";
+                etag = null;
+            }
+        }
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (etag != null && matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        response.setContentType(contentType);
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        // only images render inline; anything else (say, HTML) must not run on our origin
+        boolean inline = ImageVariants.isImage(contentType);
+        String name = filename == null ? sha256 : filename;
+        ContentDisposition.Builder disposition = inline ? ContentDisposition.inline() : ContentDisposition.attachment();
+        // plain names stay plain; others also get the RFC 5987 filename*
+        disposition = StandardCharsets.US_ASCII.newEncoder().canEncode(name) ? disposition.filename(name)
+                : disposition.filename(name, StandardCharsets.UTF_8);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition.build().toString());
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    if (start >= length) {
+                        throw new IllegalArgumentException("Range starts past the end");
+                    }
+                }
+                // several ranges would need multipart/byteranges; the whole file is a valid answer
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setContentLength(0);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            if (ranges.size() == 1) {
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            while (position <= end) {
+                long sent = channel.transferTo(position, end + 1 - position, target);
+                if (sent <= 0) {
+                    throw new IOException("Attachment file " + file + " is shorter than recorded");
+                }
+                position += sent;
+            }
+            out.flush();
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String t = tag.trim();
+            if (t.equals("*") || t.equals(etag) || t.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String contentType(String declared) {
+        if (declared == null) {
+            return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+        try {
+            MediaType type = MediaType.parseMediaType(declared);
+            String value = type.getType().toLowerCase(Locale.ROOT) + "/" + type.getSubtype().toLowerCase(Locale.ROOT);
+            return value.length() <= 100 ? value : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        } catch (IllegalArgumentException e) {
+            return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+    }
+
+    // Browsers may send a full client-side path; keep the last segment
+    private static String filename(String declared) {
+        String name = declared.substring(Math.max(declared.lastIndexOf('/'), declared.lastIndexOf('\\')) + 1);
+        name = name.isBlank() ? null : name.strip();
+        return name == null || name.length() <= 255 ? name : name.substring(name.length() - 255);
+    }
+}
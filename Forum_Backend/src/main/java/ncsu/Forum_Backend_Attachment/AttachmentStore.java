@@ -0,0 +1,120 @@
+package ncsu.Forum_Backend_Attachment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Content-addressed file store for attachments on local disk:
+ *
+ *   <forum.attachments.dir>/<first two hex digits>/<sha256>
+ *
+ * An upload streams through a fixed buffer into a temporary file under
+ * incoming/, hashing as it goes; once it is complete and forced to disk it is
+ * renamed to its hash, or dropped if that file already exists. Files are
+ * never changed after that, so a hash names the same bytes forever.
+ */
+@Component
+public class AttachmentStore {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+
+    public record Stored(String sha256, long size) {
+    }
+
+    /** The upload went over the size limit; nothing was kept. */
+    public static class TooLargeException extends IOException {
+        public TooLargeException(long maxBytes) {
+            super("Attachment is larger than " + maxBytes + " bytes");
+        }
+    }
+
+    private final Path root;
+    private final Path incoming;
+
+    @Autowired
+    public AttachmentStore(@Value("${forum.attachments.dir:attachments}") String dir) {
+        this(Paths.get(dir));
+    }
+
+    AttachmentStore(Path root) {
+        this.root = root;
+        this.incoming = root.resolve("incoming");
+        try {
+            Files.createDirectories(incoming);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create attachment directory " + incoming, e);
+        }
+    }
+
+    /** Stores everything {@code in} has left, up to {@code maxBytes}. Does not close {@code in}. */
+    public Stored store(InputStream in, long maxBytes) throws IOException {
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(incoming, "upload-", ".part");
+        try {
+            long size = 0;
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[BUFFER_BYTES];
+                for (int n; (n = in.read(buffer)) != -1; ) {
+                    size += n;
+                    if (size > maxBytes) {
+                        throw new TooLargeException(maxBytes);
+                    }
+                    digest.update(buffer, 0, n);
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, n);
+                    while (chunk.hasRemaining()) {
+                        out.write(chunk);
+                    }
+                }
+                out.force(true);
+            }
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            Path target = path(sha256);
+            if (Files.exists(target)) {
+                return new Stored(sha256, size);
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException raced) {
+                // a concurrent upload of the same bytes got there first
+            }
+            return new Stored(sha256, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /** Where the bytes with this hash live (whether or not they exist). */
+    public Path path(String sha256) {
+        if (!SHA256.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("Not a SHA-256: " + sha256);
+        }
+        return root.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
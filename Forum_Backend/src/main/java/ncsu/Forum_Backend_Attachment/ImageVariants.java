@@ -0,0 +1,314 @@
+package ncsu.Forum_Backend_Attachment;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Downscaled copies of uploaded images, so an avatar next to a post costs a
+ * few kilobytes instead of the full original.
+ *
+ * Every image gets one variant per entry of SIZES, scaled to fit a square of
+ * that many pixels (never enlarged). Variants are made off the request
+ * thread by forum.images.workers threads behind a queue of
+ * forum.images.queue-capacity: after an upload, and again whenever a variant
+ * is asked for but missing. When the queue is full the job is dropped and the
+ * next request for the variant tries again. Decoding uses ImageIO source
+ * subsampling, so even a large photo is never decoded at full resolution.
+ *
+ * Variants live in forum.images.dir as <size>/<sha256>.png (images with
+ * transparency) or .jpg, bounded by forum.images.cache-bytes and evicted
+ * least-recently-used; they can always be made again from the original.
+ */
+@Component
+public class ImageVariants {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageVariants.class);
+
+    /** Avatars next to posts and comments. */
+    public static final int SMALL = 48;
+    /** The profile header. */
+    public static final int MEDIUM = 128;
+    /** Images shown within a post or chat message. */
+    public static final int LARGE = 512;
+
+    static final int[] SIZES = {SMALL, MEDIUM, LARGE};
+
+    private static final Pattern ATTACHMENT_URL = Pattern.compile("/api/attachments/(\\d+)");
+
+    public record Variant(Path path, long size, String contentType) {
+    }
+
+    private final Path root;
+    private final long maxBytes;
+    private final long maxPixels;
+    private final ThreadPoolExecutor workers;
+    // Originals with a job queued or running, so a burst of requests queues one job
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    // Originals ImageIO cannot decode; not worth another try until restart
+    private final Set<String> undecodable = ConcurrentHashMap.newKeySet();
+
+    // "<size>/<file name>" -> bytes, access-ordered for LRU; guarded by `this`
+    private final LinkedHashMap<String, Long> cached = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes;
+
+    @Autowired
+    public ImageVariants(@Value("${forum.images.dir:image-variants}") String dir,
+                         @Value("${forum.images.workers:2}") int workers,
+                         @Value("${forum.images.queue-capacity:64}") int queueCapacity,
+                         @Value("${forum.images.cache-bytes:268435456}") long maxBytes,
+                         @Value("${forum.images.max-pixels:100000000}") long maxPixels) {
+        this(Paths.get(dir), workers, queueCapacity, maxBytes, maxPixels);
+    }
+
+    ImageVariants(Path root, int workers, int queueCapacity, long maxBytes, long maxPixels) {
+        this.root = root;
+        this.maxBytes = maxBytes;
+        this.maxPixels = maxPixels;
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "image-variants-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+        load();
+    }
+
+    /**
+     * The URL of the {@code size} variant for an image URL that points at one
+     * of our attachments. Any other URL (or null) comes back as it is.
+     */
+    public static String sized(String url, int size) {
+        if (url == null) {
+            return null;
+        }
+        Matcher m = ATTACHMENT_URL.matcher(url);
+        return m.matches() ? url + "?size=" + size : url;
+    }
+
+    /** The smallest variant size that covers {@code requested} pixels, or 0 if only the original does. */
+    public static int fit(int requested) {
+        for (int size : SIZES) {
+            if (requested <= size) {
+                return size;
+            }
+        }
+        return 0;
+    }
+
+    /** Whether variants can be made from this content type. */
+    public static boolean isImage(String contentType) {
+        return contentType.startsWith("image/") && !contentType.startsWith("image/svg");
+    }
+
+    /** The variant if it has been made, or null (see {@link #submit}). */
+    public synchronized Variant find(String sha256, int size) {
+        for (String extension : new String[] {"jpg", "png"}) {
+            String key = size + "/" + sha256 + "." + extension;
+            Long length = cached.get(key);
+            if (length != null) {
+                return new Variant(root.resolve(key), length, extension.equals("png") ? "image/png" : "image/jpeg");
+            }
+        }
+        return null;
+    }
+
+    /** Queues making every variant of an original, unless that is already queued or the queue is full. */
+    public void submit(String sha256, Path original) {
+        if (undecodable.contains(sha256) || !pending.add(sha256)) {
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    if (!make(sha256, original)) {
+                        undecodable.add(sha256);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Cannot make image variants of {}: {}", sha256, e.toString());
+                } finally {
+                    pending.remove(sha256);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(sha256);
+        }
+    }
+
+    /** Jobs waiting for a worker, for monitoring. */
+    public int backlog() {
+        return workers.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    // Writes every variant; false if the original is not an image ImageIO can decode
+    boolean make(String sha256, Path original) throws IOException {
+        BufferedImage source;
+        try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return false;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.warn("Not making variants of {}: {}x{} is too many pixels", sha256, width, height);
+                    return false;
+                }
+                // read every n-th row and column, keeping at least twice the largest size
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / (2 * LARGE));
+                param.setSourceSubsampling(step, step, 0, 0);
+                source = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+        boolean alpha = source.getColorModel().hasAlpha();
+        for (int size : SIZES) {
+            write(scale(source, size, alpha), sha256, size, alpha);
+        }
+        return true;
+    }
+
+    // Fits the image in size x size, halving first so bilinear steps stay sharp
+    private static BufferedImage scale(BufferedImage source, int size, boolean alpha) {
+        double factor = Math.min(1.0, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * factor));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * factor));
+        BufferedImage current = source;
+        do {
+            int w = Math.max(targetWidth, current.getWidth() / 2);
+            int h = Math.max(targetHeight, current.getHeight() / 2);
+            BufferedImage next = new BufferedImage(w, h, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (current.getWidth() != targetWidth || current.getHeight() != targetHeight);
+        return current;
+    }
+
+    private void write(BufferedImage image, String sha256, int size, boolean alpha) throws IOException {
+        String format = alpha ? "png" : "jpg";
+        String key = size + "/" + sha256 + "." + format;
+        Path target = root.resolve(key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), sha256, ".part");
+        try {
+            if (!ImageIO.write(image, format, temp.toFile())) {
+                throw new IOException("No ImageIO writer for " + format);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        added(key, Files.size(target));
+    }
+
+    private synchronized void added(String key, long length) {
+        Long previous = cached.put(key, length);
+        bytes += length - (previous == null ? 0 : previous);
+        Iterator<Map.Entry<String, Long>> it = cached.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(root.resolve(eldest.getKey()));
+            } catch (IOException e) {
+                log.warn("Cannot evict image variant {}: {}", eldest.getKey(), e.toString());
+                continue;
+            }
+            bytes -= eldest.getValue();
+            it.remove();
+        }
+    }
+
+    // What is on disk from earlier runs, oldest first, as the starting LRU order
+    private void load() {
+        record OnDisk(String key, long size, FileTime modified) {
+        }
+        List<OnDisk> found = new ArrayList<>();
+        try {
+            Files.createDirectories(root);
+            for (int size : SIZES) {
+                Path dir = root.resolve(Integer.toString(size));
+                if (!Files.isDirectory(dir)) {
+                    continue;
+                }
+                try (Stream<Path> files = Files.list(dir)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        String name = file.getFileName().toString();
+                        if (name.endsWith(".part")) {
+                            Files.deleteIfExists(file); // left by a crash mid-write
+                        } else {
+                            found.add(new OnDisk(size + "/" + name, Files.size(file),
+                                    Files.getLastModifiedTime(file)));
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read image variant directory " + root, e);
+        }
+        found.sort(Comparator.comparing(OnDisk::modified));
+        synchronized (this) {
+            for (OnDisk file : found) {
+                cached.put(file.key(), file.size());
+                bytes += file.size();
+            }
+        }
+    }
+}
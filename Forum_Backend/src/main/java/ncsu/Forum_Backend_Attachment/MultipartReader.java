@@ -0,0 +1,203 @@
+package ncsu.Forum_Backend_Attachment;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a multipart/form-data body part by part straight off the request
+ * stream. A part's body is an InputStream that ends at the next boundary, so
+ * a file goes from the socket to its destination through one fixed buffer
+ * and is never held whole in memory or parked in a temporary file.
+ */
+final class MultipartReader {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+    private static final Pattern BOUNDARY = Pattern.compile("boundary=(?:\"([^\"]+)\"|([^;\\s]+))",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern PARAMETER = Pattern.compile("(\\w+)=(?:\"([^\"]*)\"|([^;\\s]*))");
+
+    record Part(String name, String filename, String contentType, InputStream body) {
+    }
+
+    private final InputStream in;
+    // CRLF "--" boundary: ends every part body
+    private final byte[] delimiter;
+    private final byte[] buffer = new byte[BUFFER_BYTES];
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private PartStream current;
+    private boolean finished;
+
+    MultipartReader(InputStream in, String boundary) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        // the first boundary has no CRLF in front; pretend it does
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        limit = 2;
+    }
+
+    /** The boundary of a multipart Content-Type, or null if there is none. */
+    static String boundary(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")) {
+            return null;
+        }
+        Matcher m = BOUNDARY.matcher(contentType);
+        return m.find() ? (m.group(1) != null ? m.group(1) : m.group(2)) : null;
+    }
+
+    /** The next part, or null after the last one. Skips whatever is left of the previous part. */
+    Part next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        // the preamble before the first boundary is skipped like an unread part
+        PartStream skipped = current != null ? current : new PartStream();
+        skipped.skipAll();
+        ensure(2);
+        if (limit - pos < 2) {
+            throw new EOFException("Multipart body ends without a closing boundary");
+        }
+        if (buffer[pos] == '-' && buffer[pos + 1] == '-') {
+            finished = true;
+            return null;
+        }
+        Map<String, String> headers = readHeaders();
+        Map<String, String> disposition = parameters(headers.getOrDefault("content-disposition", ""));
+        current = new PartStream();
+        return new Part(disposition.get("name"), disposition.get("filename"), headers.get("content-type"), current);
+    }
+
+    // After the boundary: the rest of its line, then header lines up to a blank one
+    private Map<String, String> readHeaders() throws IOException {
+        int end;
+        while ((end = indexOf(HEADER_END, pos)) < 0) {
+            if (limit - pos > MAX_HEADER_BYTES || !fill()) {
+                throw new EOFException("Multipart part headers are too long or cut off");
+            }
+        }
+        String block = new String(buffer, pos, end - pos, StandardCharsets.UTF_8);
+        pos = end + HEADER_END.length;
+        Map<String, String> headers = new HashMap<>();
+        String[] lines = block.split("\r\n");
+        // the first line is what followed the boundary (normally empty)
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) {
+                headers.put(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                        lines[i].substring(colon + 1).trim());
+            }
+        }
+        return headers;
+    }
+
+    private static Map<String, String> parameters(String header) {
+        Map<String, String> parameters = new HashMap<>();
+        Matcher m = PARAMETER.matcher(header);
+        while (m.find()) {
+            parameters.put(m.group(1).toLowerCase(Locale.ROOT), m.group(2) != null ? m.group(2) : m.group(3));
+        }
+        return parameters;
+    }
+
+    // Makes at least n bytes available unless the stream ends first
+    private void ensure(int n) throws IOException {
+        while (limit - pos < n && fill()) {
+            // keep reading
+        }
+    }
+
+    // Reads more into the buffer, moving what is unread to the front first
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buffer.length) {
+            return false;
+        }
+        int n = in.read(buffer, limit, buffer.length - limit);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    private int indexOf(byte[] pattern, int from) {
+        outer:
+        for (int i = from; i <= limit - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (buffer[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    // One part's body: the bytes up to the next delimiter, which it consumes
+    private final class PartStream extends InputStream {
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            ensure(delimiter.length);
+            int at = indexOf(delimiter, pos);
+            int available;
+            if (at >= 0) {
+                available = at - pos;
+                if (available == 0) {
+                    done = true;
+                    pos += delimiter.length;
+                    return -1;
+                }
+            } else {
+                // anything past here could be the start of the delimiter
+                available = limit - pos - (delimiter.length - 1);
+                if (available <= 0) {
+                    throw new EOFException("Multipart body ends inside a part");
+                }
+            }
+            int n = Math.min(len, available);
+            System.arraycopy(buffer, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        void skipAll() throws IOException {
+            byte[] sink = new byte[8192];
+            while (read(sink, 0, sink.length) >= 0) {
+                // discard
+            }
+        }
+    }
+}
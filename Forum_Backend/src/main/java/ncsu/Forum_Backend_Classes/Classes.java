@@ -9,6 +9,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
 import jakarta.persistence.*;
+import ncsu.Config.SnowflakeId;
 import ncsu.Forum_Backend_Department.Department;
 import ncsu.Forum_Backend_Message.Message;
 import ncsu.Forum_Backend_Professor.Professor;
@@ -19,7 +20,7 @@ import ncsu.Forum_Backend_User.User;
 public class Classes {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     private String courseTitle; // e.g., CSC116
@@ -2,7 +2,9 @@ package ncsu.Forum_Backend_Classes;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import ncsu.Config.ResourceVersions;
 import ncsu.Forum_Backend_Department.Department;
 import ncsu.Forum_Backend_Department.DepartmentRepository;
 import ncsu.Forum_Backend_Professor.Professor;
@@ -19,10 +21,18 @@ public class ClassesController {
 
     private final ClassesRepository classCourseRepository;
     private final DepartmentRepository majorRepository;
+    private final ResourceVersions versions;
 
-    public ClassesController(ClassesRepository classCourseRepository, DepartmentRepository majorRepository) {
+    public ClassesController(ClassesRepository classCourseRepository, DepartmentRepository majorRepository,
+                             ResourceVersions versions) {
         this.classCourseRepository = classCourseRepository;
         this.majorRepository = majorRepository;
+        this.versions = versions;
+    }
+
+    // Classes embed only catalog data (their professors)
+    private boolean notModified(WebRequest request) {
+        return request.checkNotModified(versions.etag(ResourceVersions.CATALOG));
     }
 
     // Create a new class and optionally assign to a major
@@ -41,12 +51,16 @@ public class ClassesController {
         }
 
         Classes saved = classCourseRepository.save(classCourse);
+        versions.bump(ResourceVersions.CATALOG);
         return ResponseEntity.ok(saved);
     }
 
     // Get a class by its ID
     @GetMapping("/{id}")
-    public ResponseEntity<Classes> getClassById(@PathVariable Long id) {
+    public ResponseEntity<Classes> getClassById(@PathVariable Long id, WebRequest request) {
+        if (notModified(request)) {
+            return null;
+        }
         return classCourseRepository.findById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
@@ -73,13 +87,18 @@ public class ClassesController {
 
         Classes c = opt.get();
         c.setChatEnabled(enabled);
-        return ResponseEntity.ok(classCourseRepository.save(c));
+        Classes saved = classCourseRepository.save(c);
+        versions.bump(ResourceVersions.CATALOG);
+        return ResponseEntity.ok(saved);
     }
  // Add these methods to your ClassesController
 
  // Search classes
  @GetMapping("/search")
- public ResponseEntity<List<Classes>> searchClasses(@RequestParam String q) {
+ public ResponseEntity<List<Classes>> searchClasses(@RequestParam String q, WebRequest request) {
+     if (notModified(request)) {
+         return null;
+     }
      // You'll need to add a search method to your repository
      List<Classes> results = classCourseRepository.findByCourseTitleContainingIgnoreCase(q);
      return ResponseEntity.ok(results);
@@ -87,7 +106,10 @@ public class ClassesController {
 
  // Get classes by department
  @GetMapping("/department/{departmentId}")
- public ResponseEntity<Set<Classes>> getClassesByDepartment(@PathVariable Long departmentId) {
+ public ResponseEntity<Set<Classes>> getClassesByDepartment(@PathVariable Long departmentId, WebRequest request) {
+     if (notModified(request)) {
+         return null;
+     }
      Optional<Department> dept = majorRepository.findById(departmentId);
      if (dept.isEmpty()) {
          return ResponseEntity.notFound().build();
@@ -97,7 +119,11 @@ public class ClassesController {
 
  // Get popular classes (placeholder - you'll need to implement logic)
  @GetMapping("/popular")
- public ResponseEntity<List<Classes>> getPopularClasses(@RequestParam(defaultValue = "20") int limit) {
+ public ResponseEntity<List<Classes>> getPopularClasses(@RequestParam(defaultValue = "20") int limit,
+                                                       WebRequest request) {
+     if (notModified(request)) {
+         return null;
+     }
      // For now, just return all classes limited by the parameter
      List<Classes> allClasses = classCourseRepository.findAll();
      return ResponseEntity.ok(allClasses.stream()
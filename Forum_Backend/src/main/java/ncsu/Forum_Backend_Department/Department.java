@@ -8,6 +8,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
 import jakarta.persistence.*;
+import ncsu.Config.SnowflakeId;
 import ncsu.Forum_Backend_Classes.Classes;
 import ncsu.Forum_Backend_Message.Message;
 import ncsu.Forum_Backend_Professor.Professor;
@@ -19,7 +20,7 @@ import ncsu.Forum_Backend_User.User;
 
 public class Department {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     private String name;        // e.g., "Computer Science"
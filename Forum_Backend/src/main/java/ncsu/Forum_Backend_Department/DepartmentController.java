@@ -2,11 +2,21 @@
 package ncsu.Forum_Backend_Department;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import ncsu.Config.CatalogResolver;
+import ncsu.Config.ResourceVersions;
 import ncsu.Forum_Backend_Classes.Classes;
+import ncsu.Forum_Backend_Message.PostVersions;
 import ncsu.Forum_Backend_Professor.Professor;
 
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,29 +28,81 @@ public class DepartmentController {
     @Autowired
     private DepartmentRepository departmentRepository;
 
-    // GET /api/departments
+    @Autowired
+    private ResourceVersions versions;
+
+    @Autowired
+    private PostVersions postVersions;
+
+    @Autowired
+    private CatalogResolver catalog;
+
+    @Autowired
+    private DepartmentExporter departmentExporter;
+
+    // Departments embed their users, professors, classes and posts; this one
+    // covers the posts of every department
+    private String etag() {
+        return versions.etag(ResourceVersions.CATALOG, ResourceVersions.POSTS, ResourceVersions.USERS);
+    }
+
+    // GET /api/departments (304 if If-None-Match is current)
     @GetMapping
-    public List<Department> getAllDepartments() {
+    public List<Department> getAllDepartments(WebRequest request) {
+        if (request.checkNotModified(etag())) {
+            return null;
+        }
         return departmentRepository.findAll();
     }
 
     // GET /api/departments/{id} including classes and professors
     @GetMapping("/{id}")
-    public ResponseEntity<Department> getDepartmentWithRelations(@PathVariable Long id) {
+    public ResponseEntity<Department> getDepartmentWithRelations(@PathVariable Long id, WebRequest request) {
+        // only this department's posts, so votes elsewhere keep the tag
+        if (request.checkNotModified(postVersions.departmentEtag(id))) {
+            return null;
+        }
         Optional<Department> opt = departmentRepository.findAllRelationsById(id);
         return opt.map(ResponseEntity::ok)
                   .orElse(ResponseEntity.notFound().build());
     }
 
+    // GET /api/departments/{id}/export?format=ndjson|csv&comments=true
+    // Streams the department's posts (with comments: whole threads) as a
+    // download, written to the response as rows come off the database cursor
+    @GetMapping("/{id}/export")
+    public void exportDepartment(@PathVariable Long id,
+                                 @RequestParam(required = false) String format,
+                                 @RequestParam(defaultValue = "false") boolean comments,
+                                 HttpServletResponse response) throws IOException {
+        DepartmentExporter.Format fmt;
+        try {
+            fmt = DepartmentExporter.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+        if (!departmentRepository.existsById(id)) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        response.setContentType(fmt.contentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"department-" + id + "-posts." + fmt.extension() + "\"");
+        departmentExporter.export(id, comments, fmt, response.getOutputStream());
+    }
+
     // POST, PUT, DELETE unchanged...
     @PostMapping
     public Department createDepartment(@RequestBody Department department) {
-        return departmentRepository.save(department);
+        Department saved = departmentRepository.save(department);
+        versions.bump(ResourceVersions.CATALOG);
+        return saved;
     }
 
     @PutMapping("/{id}")
     public Department updateDepartment(@PathVariable Long id, @RequestBody Department updatedDepartment) {
-        return departmentRepository.findById(id).map(dept -> {
+        Department saved = departmentRepository.findById(id).map(dept -> {
             dept.setName(updatedDepartment.getName());
             dept.setCode(updatedDepartment.getCode());
             return departmentRepository.save(dept);
@@ -48,14 +110,22 @@ public class DepartmentController {
             updatedDepartment.setId(id);
             return departmentRepository.save(updatedDepartment);
         });
+        versions.bump(ResourceVersions.CATALOG);
+        catalog.forgetDepartment(id);
+        return saved;
     }
 
     @DeleteMapping("/{id}")
     public void deleteDepartment(@PathVariable Long id) {
         departmentRepository.deleteById(id);
+        versions.bump(ResourceVersions.CATALOG);
+        catalog.forgetDepartment(id);
     }
     @GetMapping("/specificId/{name}")
-    public ResponseEntity<Department> getDepartmentByName(@PathVariable String name){
+    public ResponseEntity<Department> getDepartmentByName(@PathVariable String name, WebRequest request){
+    	 if (request.checkNotModified(etag())) {
+    	     return null;
+    	 }
     	 Optional<Department> opt = departmentRepository.findByName(name);
     	 return opt.map(ResponseEntity::ok)
                  .orElse(ResponseEntity.notFound().build());
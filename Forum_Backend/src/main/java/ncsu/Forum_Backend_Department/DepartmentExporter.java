@@ -0,0 +1,236 @@
+package ncsu.Forum_Backend_Department;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Streams a department's posts, and optionally their whole comment threads,
+ * as NDJSON or CSV. Rows come off a forward-only JDBC cursor and are written
+ * straight to the output, so memory use does not depend on the size of the
+ * department. No entities are loaded, so there is nothing to detach.
+ *
+ * Every record is flat: with comments, a thread is its post followed by its
+ * replies depth-first, and each row carries rootId, parentId and depth so the
+ * tree can be rebuilt downstream.
+ */
+@Component
+public class DepartmentExporter {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            if (value == null || value.isBlank()) {
+                return NDJSON;
+            }
+            return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final String[] COLUMNS = {"id", "parentId", "rootId", "depth", "type", "title", "body",
+            "timestamp", "senderUnityId", "senderDisplayName", "classId", "professorId", "likeCount", "dislikeCount"};
+
+    private static final String ROW_COLUMNS = """
+            m.id, m.parent_id, m.type, m.title, m.body, m.timestamp, u.unity_id, u.display_name,
+            m.class_id, m.professor_id, m.like_count, m.dislike_count
+            """;
+
+    private static final String POSTS_SQL = "SELECT m.id AS root_id, 0 AS depth, " + ROW_COLUMNS + """
+            FROM messages m
+            LEFT JOIN app_user u ON u.id = m.sender_id
+            WHERE m.department_id = ? AND m.parent_id IS NULL AND m.deleted_at IS NULL
+            ORDER BY m.timestamp, m.id
+            """;
+
+    // Threads in post order; replies depth-first, oldest first at each level
+    private static final String THREADS_SQL = """
+            WITH RECURSIVE thread AS (
+                SELECT p.id, p.id AS root_id, p.timestamp AS root_ts, 0 AS depth, ARRAY[p.id] AS path
+                FROM messages p
+                WHERE p.department_id = ? AND p.parent_id IS NULL AND p.deleted_at IS NULL
+                UNION ALL
+                SELECT c.id, t.root_id, t.root_ts, t.depth + 1, t.path || c.id
+                FROM messages c
+                JOIN thread t ON c.parent_id = t.id
+                WHERE c.deleted_at IS NULL
+            )
+            SELECT t.root_id, t.depth, """ + ROW_COLUMNS + """
+            FROM thread t
+            JOIN messages m ON m.id = t.id
+            LEFT JOIN app_user u ON u.id = m.sender_id
+            ORDER BY t.root_ts, t.root_id, t.path
+            """;
+
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private ObjectMapper objectMapper;
+
+    @Value("${forum.export.fetch-size:1000}")
+    private int fetchSize;
+
+    // Rows written between flushes to the client
+    @Value("${forum.export.flush-rows:500}")
+    private int flushRows;
+
+    /** Writes the export to {@code out}; the caller owns the stream. */
+    public void export(long departmentId, boolean comments, Format format, OutputStream out) throws IOException {
+        RowSink sink = format == Format.CSV ? new CsvSink(out) : new NdjsonSink(out);
+        int[] rows = {0};
+        try {
+            // Postgres only streams with a cursor inside a transaction
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> jdbc.query(con -> {
+                PreparedStatement ps = con.prepareStatement(comments ? THREADS_SQL : POSTS_SQL);
+                ps.setFetchSize(fetchSize);
+                ps.setLong(1, departmentId);
+                return ps;
+            }, rs -> {
+                try {
+                    sink.write(rs);
+                    if (++rows[0] % flushRows == 0) {
+                        sink.flush();
+                    }
+                } catch (IOException e) {
+                    // client went away; stop reading the cursor
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        sink.flush();
+    }
+
+    private interface RowSink {
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void flush() throws IOException;
+    }
+
+    private final class NdjsonSink implements RowSink {
+        private final JsonGenerator json;
+
+        NdjsonSink(OutputStream out) throws IOException {
+            json = objectMapper.getFactory().createGenerator(out);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // records end in '\n' themselves; no extra space between root values
+            json.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeNumberField("id", rs.getLong("id"));
+            writeLong("parentId", rs, "parent_id");
+            json.writeNumberField("rootId", rs.getLong("root_id"));
+            json.writeNumberField("depth", rs.getInt("depth"));
+            json.writeStringField("type", rs.getString("type"));
+            json.writeStringField("title", rs.getString("title"));
+            json.writeStringField("body", rs.getString("body"));
+            LocalDateTime timestamp = rs.getObject("timestamp", LocalDateTime.class);
+            json.writeStringField("timestamp", timestamp == null ? null : timestamp.toString());
+            json.writeStringField("senderUnityId", rs.getString("unity_id"));
+            json.writeStringField("senderDisplayName", rs.getString("display_name"));
+            writeLong("classId", rs, "class_id");
+            writeLong("professorId", rs, "professor_id");
+            json.writeNumberField("likeCount", rs.getInt("like_count"));
+            json.writeNumberField("dislikeCount", rs.getInt("dislike_count"));
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        private void writeLong(String field, ResultSet rs, String column) throws SQLException, IOException {
+            long value = rs.getLong(column);
+            if (rs.wasNull()) {
+                json.writeNullField(field);
+            } else {
+                json.writeNumberField(field, value);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            json.flush();
+        }
+    }
+
+    private static final class CsvSink implements RowSink {
+        private final Writer out;
+
+        CsvSink(OutputStream stream) throws IOException {
+            out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+            out.write(String.join(",", COLUMNS));
+            out.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            LocalDateTime timestamp = rs.getObject("timestamp", LocalDateTime.class);
+            Object[] fields = {rs.getLong("id"), rs.getObject("parent_id"), rs.getLong("root_id"),
+                    rs.getInt("depth"), rs.getString("type"), rs.getString("title"), rs.getString("body"),
+                    timestamp, rs.getString("unity_id"), rs.getString("display_name"), rs.getObject("class_id"),
+                    rs.getObject("professor_id"), rs.getInt("like_count"), rs.getInt("dislike_count")};
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                if (fields[i] != null) {
+                    out.write(escape(fields[i].toString()));
+                }
+            }
+            out.write("\r\n");
+        }
+
+        // RFC 4180: quote fields with separators, quotes or line breaks; double inner quotes
+        private static String escape(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                    && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
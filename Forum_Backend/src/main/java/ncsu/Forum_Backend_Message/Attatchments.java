@@ -1,9 +0,0 @@
-package ncsu.Forum_Backend_Message;
-
-import jakarta.persistence.Embeddable;
-
-@Embeddable
-public class Attatchments {
-	String url;
-	
-}
@@ -0,0 +1,422 @@
+package ncsu.Forum_Backend_Message;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cold group chat history, moved out of group_message by ChatArchiver.
+ *
+ * Each group has a directory of append-only segment files named after their
+ * first message id, so the files of a group sort in message order. A segment
+ * is a run of records, oldest first:
+ *
+ *   [ int length | int crc32 | long id | long sender id | long epoch second | int nano
+ *     | unity id | display name | content ]   (strings as int length + UTF-8, -1 for null)
+ *
+ * Sender names are copied in at archive time, so a read needs nothing else.
+ * Next to every segment a sparse index holds (id, offset) pairs, one for
+ * about every forum.chat.archive.index-bytes of records; a read binary
+ * searches it and scans one stretch of a read-only MappedByteBuffer.
+ * A segment is rolled once it passes forum.chat.archive.segment-bytes.
+ *
+ * Appends are forced to disk before ChatArchiver deletes the rows, and
+ * records with an id at or below the group's last archived id are skipped,
+ * so an archiver that dies in between just redoes the delete. A torn last
+ * record (bad length or CRC) is cut off when the segment is opened.
+ */
+@Component
+public class ChatArchive {
+
+    private static final int HEADER = 8;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final long indexBytes;
+    private final ConcurrentHashMap<Long, GroupLog> groups = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ChatArchive(@Value("${forum.chat.archive.dir:chat-archive}") String dir,
+                       @Value("${forum.chat.archive.segment-bytes:8388608}") long segmentBytes,
+                       @Value("${forum.chat.archive.index-bytes:4096}") long indexBytes) {
+        this(Path.of(dir), segmentBytes, indexBytes);
+    }
+
+    ChatArchive(Path dir, long segmentBytes, long indexBytes) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.indexBytes = indexBytes;
+    }
+
+    /** Appends messages of one group, oldest first, and forces them to disk. */
+    public void append(long groupId, List<ChatMessage> messages) {
+        try {
+            log(groupId).append(messages);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Archiving group " + groupId + " failed", e);
+        }
+    }
+
+    /** Up to {@code limit} archived messages older than {@code beforeId}, newest first. */
+    public List<ChatMessage> before(long groupId, long beforeId, int limit) {
+        if (!Files.isDirectory(groupDir(groupId))) {
+            return List.of();
+        }
+        try {
+            return log(groupId).before(beforeId, limit);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Reading the archive of group " + groupId + " failed", e);
+        }
+    }
+
+    /** The newest archived message id of the group, 0 if none. */
+    public long lastArchivedId(long groupId) {
+        if (!Files.isDirectory(groupDir(groupId))) {
+            return 0;
+        }
+        try {
+            return log(groupId).lastId();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Reading the archive of group " + groupId + " failed", e);
+        }
+    }
+
+    private Path groupDir(long groupId) {
+        return dir.resolve(Long.toString(groupId));
+    }
+
+    private GroupLog log(long groupId) throws IOException {
+        GroupLog log = groups.get(groupId);
+        if (log == null) {
+            log = new GroupLog(groupId, groupDir(groupId));
+            GroupLog raced = groups.putIfAbsent(groupId, log);
+            if (raced != null) {
+                return raced;
+            }
+        }
+        return log;
+    }
+
+    // One group's segments, oldest first; guarded by itself
+    private final class GroupLog {
+        final long groupId;
+        final Path dir;
+        List<Segment> segments;
+
+        GroupLog(long groupId, Path dir) {
+            this.groupId = groupId;
+            this.dir = dir;
+        }
+
+        synchronized long lastId() throws IOException {
+            open();
+            return segments.isEmpty() ? 0 : segments.get(segments.size() - 1).lastId;
+        }
+
+        synchronized void append(List<ChatMessage> messages) throws IOException {
+            open();
+            try {
+                write(messages);
+            } catch (IOException | RuntimeException e) {
+                // reopen from what actually reached the disk
+                segments = null;
+                throw e;
+            }
+        }
+
+        void write(List<ChatMessage> messages) throws IOException {
+            Files.createDirectories(dir);
+            long last = segments.isEmpty() ? 0 : segments.get(segments.size() - 1).lastId;
+            Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            List<Segment> touched = new ArrayList<>();
+            for (ChatMessage message : messages) {
+                if (message.id() <= last) {
+                    continue;
+                }
+                if (segment == null || segment.length >= segmentBytes) {
+                    segment = new Segment(dir, message.id());
+                    segments.add(segment);
+                }
+                segment.append(message);
+                if (!touched.contains(segment)) {
+                    touched.add(segment);
+                }
+                last = message.id();
+            }
+            for (Segment s : touched) {
+                s.flush();
+            }
+        }
+
+        synchronized List<ChatMessage> before(long beforeId, int limit) throws IOException {
+            open();
+            List<ChatMessage> rows = new ArrayList<>(limit);
+            for (int i = segments.size() - 1; i >= 0 && rows.size() < limit; i--) {
+                Segment segment = segments.get(i);
+                if (segment.firstId < beforeId) {
+                    rows.addAll(segment.before(groupId, beforeId, limit - rows.size()));
+                }
+            }
+            return rows;
+        }
+
+        void open() throws IOException {
+            if (segments != null) {
+                return;
+            }
+            segments = new ArrayList<>();
+            if (!Files.isDirectory(dir)) {
+                return;
+            }
+            long[] firstIds;
+            try (Stream<Path> files = Files.list(dir)) {
+                firstIds = files.map(path -> path.getFileName().toString())
+                        .filter(name -> name.endsWith(".seg"))
+                        .mapToLong(name -> Long.parseLong(name.substring(0, name.length() - 4)))
+                        .sorted()
+                        .toArray();
+            }
+            for (long firstId : firstIds) {
+                Segment segment = new Segment(dir, firstId);
+                segment.recover();
+                if (segment.length > 0) {
+                    segments.add(segment);
+                } else {
+                    // created, but nothing made it to disk
+                    Files.delete(segment.data);
+                    Files.deleteIfExists(segment.index);
+                }
+            }
+        }
+    }
+
+    private final class Segment {
+        final long firstId;
+        final Path data;
+        final Path index;
+        long length;
+        long lastId;
+        long[] ids = new long[16];
+        long[] offsets = new long[16];
+        int entries;
+        // records and index entries written since the last flush
+        final List<ByteBuffer> pendingRecords = new ArrayList<>();
+        final List<long[]> pendingIndex = new ArrayList<>();
+        MappedByteBuffer mapped;
+
+        Segment(Path dir, long firstId) {
+            this.firstId = firstId;
+            this.data = dir.resolve(firstId + ".seg");
+            this.index = dir.resolve(firstId + ".idx");
+        }
+
+        void append(ChatMessage message) {
+            if (entries == 0 || length - offsets[entries - 1] >= indexBytes) {
+                addIndex(message.id(), length);
+                pendingIndex.add(new long[] {message.id(), length});
+            }
+            ByteBuffer record = encode(message);
+            pendingRecords.add(record);
+            length += record.remaining();
+            lastId = message.id();
+        }
+
+        void flush() throws IOException {
+            try (FileChannel channel = FileChannel.open(data, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                channel.write(pendingRecords.toArray(ByteBuffer[]::new));
+                channel.force(false);
+            }
+            // the index only ever points at records already on disk
+            ByteBuffer entriesOut = ByteBuffer.allocate(pendingIndex.size() * 16);
+            pendingIndex.forEach(entry -> entriesOut.putLong(entry[0]).putLong(entry[1]));
+            entriesOut.flip();
+            try (FileChannel channel = FileChannel.open(index, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                channel.write(entriesOut);
+                channel.force(false);
+            }
+            pendingRecords.clear();
+            pendingIndex.clear();
+            mapped = null;
+        }
+
+        // Newest first, at most limit, all below beforeId
+        List<ChatMessage> before(long groupId, long beforeId, int limit) throws IOException {
+            ByteBuffer buffer = map();
+            // last stretch that starts below beforeId, then earlier stretches until there are enough
+            int k = Arrays.binarySearch(ids, 0, entries, beforeId);
+            k = k >= 0 ? k - 1 : -k - 2;
+            List<ChatMessage> rows = new ArrayList<>();
+            for (int i = k; i >= 0 && rows.size() < limit; i--) {
+                long end = i + 1 < entries ? offsets[i + 1] : length;
+                List<ChatMessage> stretch = new ArrayList<>();
+                for (long at = offsets[i]; at < end; ) {
+                    int size = buffer.getInt((int) at);
+                    ChatMessage message = decode(groupId, buffer, (int) at, size);
+                    if (message.id() >= beforeId) {
+                        break;
+                    }
+                    stretch.add(message);
+                    at += HEADER + size;
+                }
+                Collections.reverse(stretch);
+                rows.addAll(stretch.subList(0, Math.min(stretch.size(), limit - rows.size())));
+            }
+            return rows;
+        }
+
+        MappedByteBuffer map() throws IOException {
+            if (mapped == null) {
+                try (FileChannel channel = FileChannel.open(data, StandardOpenOption.READ)) {
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                }
+            }
+            return mapped;
+        }
+
+        // Reads the index, then checks the records after its last entry and cuts off a torn tail
+        void recover() throws IOException {
+            long fileLength = Files.size(data);
+            if (Files.exists(index)) {
+                ByteBuffer idx = ByteBuffer.wrap(Files.readAllBytes(index));
+                while (idx.remaining() >= 16) {
+                    long id = idx.getLong();
+                    long offset = idx.getLong();
+                    if (offset < fileLength) {
+                        addIndex(id, offset);
+                    }
+                }
+            }
+            long at = entries == 0 ? 0 : offsets[entries - 1];
+            ByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(data, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileLength);
+            }
+            List<long[]> rebuilt = new ArrayList<>();
+            while (at + HEADER <= fileLength) {
+                int size = buffer.getInt((int) at);
+                if (size < 0 || at + HEADER + size > fileLength || !checksumMatches(buffer, (int) at, size)) {
+                    break;
+                }
+                long id = buffer.getLong((int) at + HEADER);
+                if (entries == 0 || at - offsets[entries - 1] >= indexBytes) {
+                    addIndex(id, at);
+                    rebuilt.add(new long[] {id, at});
+                }
+                lastId = id;
+                at += HEADER + size;
+            }
+            length = at;
+            while (entries > 0 && offsets[entries - 1] >= length) {
+                entries--;
+            }
+            if (length < fileLength) {
+                try (FileChannel channel = FileChannel.open(data, StandardOpenOption.WRITE)) {
+                    channel.truncate(length);
+                }
+            }
+            // rewrite the index so it matches what is left
+            ByteBuffer out = ByteBuffer.allocate(entries * 16);
+            for (int i = 0; i < entries; i++) {
+                out.putLong(ids[i]).putLong(offsets[i]);
+            }
+            Files.write(index, out.array());
+        }
+
+        void addIndex(long id, long offset) {
+            if (entries == ids.length) {
+                ids = Arrays.copyOf(ids, entries * 2);
+                offsets = Arrays.copyOf(offsets, entries * 2);
+            }
+            ids[entries] = id;
+            offsets[entries] = offset;
+            entries++;
+        }
+    }
+
+    static ByteBuffer encode(ChatMessage message) {
+        byte[] unityId = bytes(message.senderUnityId());
+        byte[] displayName = bytes(message.senderDisplayName());
+        byte[] content = bytes(message.content());
+        int size = 8 + 8 + 8 + 4 + 12 + length(unityId) + length(displayName) + length(content);
+        ByteBuffer record = ByteBuffer.allocate(HEADER + size);
+        record.putInt(size).putInt(0);
+        LocalDateTime timestamp = message.timestamp();
+        record.putLong(message.id())
+                .putLong(message.senderId() == null ? -1 : message.senderId())
+                .putLong(timestamp == null ? Long.MIN_VALUE : timestamp.toEpochSecond(ZoneOffset.UTC))
+                .putInt(timestamp == null ? 0 : timestamp.getNano());
+        put(record, unityId);
+        put(record, displayName);
+        put(record, content);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER, size);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    static ChatMessage decode(long groupId, ByteBuffer buffer, int offset, int size) {
+        ByteBuffer record = buffer.slice(offset + HEADER, size);
+        long id = record.getLong();
+        long senderId = record.getLong();
+        long epochSecond = record.getLong();
+        int nano = record.getInt();
+        String unityId = string(record);
+        String displayName = string(record);
+        String content = string(record);
+        return new ChatMessage(id, groupId, senderId < 0 ? null : senderId, unityId, displayName, content,
+                epochSecond == Long.MIN_VALUE ? null : LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC));
+    }
+
+    private static boolean checksumMatches(ByteBuffer buffer, int offset, int size) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + HEADER, size));
+        return (int) crc.getValue() == buffer.getInt(offset + 4);
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] b) {
+        return b == null ? 0 : b.length;
+    }
+
+    private static void put(ByteBuffer record, byte[] b) {
+        record.putInt(b == null ? -1 : b.length);
+        if (b != null) {
+            record.put(b);
+        }
+    }
+
+    private static String string(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] b = new byte[length];
+        record.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
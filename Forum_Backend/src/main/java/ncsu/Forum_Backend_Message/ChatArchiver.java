@@ -0,0 +1,131 @@
+package ncsu.Forum_Backend_Message;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import ncsu.Config.Snowflake;
+
+/**
+ * Moves group chat messages older than forum.chat.archive.after-days out of
+ * group_message into ChatArchive, so the table and idx_group_message_group
+ * only hold recent history.
+ *
+ * Snowflake ids grow with time, so "older than" is "id below the id of the
+ * cutoff" and every step is a range on idx_group_message_group. Each
+ * forum.chat.archive.interval-ms it takes up to forum.chat.archive.groups
+ * groups with something to archive and moves forum.chat.archive.batch-size
+ * of their oldest messages at a time: append to the archive (forced to disk),
+ * then delete those rows. A group's last message always stays, since the
+ * group and the inbox point at it.
+ *
+ * The archive is a local directory, and each instance keeps its own view of
+ * it open, so archived history is only readable where it was written. The
+ * archiver therefore only runs with forum.bus.type=local, i.e. a single
+ * instance; with several instances behind the Postgres bus it stays off and
+ * everything remains in group_message.
+ */
+@Component
+public class ChatArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatArchiver.class);
+
+    private static final String GROUPS = """
+        SELECT g.id FROM group_chat g
+        WHERE EXISTS (SELECT 1 FROM group_message m
+                      WHERE m.group_id = g.id AND m.id < least(?, coalesce(g.last_message_id, 0)))
+        LIMIT ?
+        """;
+
+    private static final String OLDEST = """
+        SELECT m.id, m.group_id, u.id AS sender_id, u.unity_id, u.display_name, m.content, m.timestamp
+        FROM group_message m
+        JOIN group_chat g ON g.id = m.group_id
+        LEFT JOIN app_user u ON u.id = m.sender_id
+        WHERE m.group_id = ? AND m.id < least(?, coalesce(g.last_message_id, 0))
+        ORDER BY m.id
+        LIMIT ?
+        """;
+
+    private static final String DELETE = "DELETE FROM group_message WHERE group_id = ? AND id = ANY (?)";
+
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private ChatArchive archive;
+
+    @Value("${forum.chat.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${forum.chat.archive.after-days:365}")
+    private long afterDays;
+
+    @Value("${forum.chat.archive.groups:20}")
+    private int groupsPerRun;
+
+    @Value("${forum.chat.archive.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${forum.bus.type:local}")
+    private String busType;
+
+    @PostConstruct
+    void checkSingleInstance() {
+        if (enabled && !"local".equals(busType)) {
+            log.warn("Chat archiving is off: forum.bus.type={} means several instances, "
+                    + "and each would only see the archive files it wrote itself", busType);
+            enabled = false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${forum.chat.archive.interval-ms:60000}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        long cutoff = Snowflake.firstIdAt(Instant.now().minus(Duration.ofDays(afterDays)));
+        try {
+            for (long groupId : jdbc.queryForList(GROUPS, Long.class, cutoff, groupsPerRun)) {
+                int moved = archive(groupId, cutoff);
+                log.info("Archived {} messages of group chat {}", moved, groupId);
+            }
+        } catch (RuntimeException ex) {
+            log.error("Archiving chat history failed, will retry", ex);
+        }
+    }
+
+    /** Archives everything of the group below {@code cutoff}; returns how many messages moved. */
+    public int archive(long groupId, long cutoff) {
+        int moved = 0;
+        while (true) {
+            List<ChatMessage> batch = jdbc.query(OLDEST, (rs, i) -> new ChatMessage(rs.getLong("id"),
+                    rs.getLong("group_id"), (Long) rs.getObject("sender_id"), rs.getString("unity_id"),
+                    rs.getString("display_name"), rs.getString("content"),
+                    rs.getObject("timestamp", LocalDateTime.class)), groupId, cutoff, batchSize);
+            if (batch.isEmpty()) {
+                return moved;
+            }
+            archive.append(groupId, batch);
+            Long[] ids = batch.stream().map(ChatMessage::id).toArray(Long[]::new);
+            jdbc.update(con -> {
+                PreparedStatement ps = con.prepareStatement(DELETE);
+                ps.setLong(1, groupId);
+                ps.setArray(2, con.createArrayOf("bigint", ids));
+                return ps;
+            });
+            moved += batch.size();
+            if (batch.size() < batchSize) {
+                return moved;
+            }
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package ncsu.Forum_Backend_Message;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import ncsu.Config.EventBus;
+
+/**
+ * The most recent messages of each active group chat, newest last, so the
+ * first page of a chat and a stream's resume replay come from memory.
+ *
+ * Each group keeps a ring of its last forum.chat.recent-cache.size messages.
+ * A ring is loaded on the first read of its group and from then on follows
+ * every committed send (ChatSendPipeline, and the first message of a new
+ * group), made on this instance or, through the EventBus, on another one. It
+ * always holds an unbroken run of the newest messages; "complete" means that
+ * run goes back to the group's first message. Rings are bounded
+ * by an estimate of retained bytes (forum.chat.recent-cache.max-bytes) and
+ * evicted least-recently-used.
+ *
+ * Sends that commit while a ring is loading are held and merged into it, so
+ * a load can never miss a message that the database read did not see. When
+ * the bus reports that events may have been missed (EventBus.RESYNC), every
+ * ring is dropped and loads again from the database.
+ */
+@Component
+public class ChatHistoryCache {
+
+    // Rough per-message and per-ring overheads for the size estimate
+    private static final long MESSAGE_BYTES = 120;
+    private static final long RING_BYTES = 200;
+
+    private static final String LATEST = """
+        SELECT m.id, m.group_id, u.id AS sender_id, u.unity_id, u.display_name, m.content, m.timestamp
+        FROM group_message m
+        LEFT JOIN app_user u ON u.id = m.sender_id
+        WHERE m.group_id = ?
+        ORDER BY m.id DESC
+        LIMIT ?
+        """;
+
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private EventBus bus;
+
+    @Value("${forum.chat.recent-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${forum.chat.recent-cache.size:256}")
+    private int ringSize;
+
+    @Value("${forum.chat.recent-cache.max-bytes:33554432}")
+    private long maxBytes;
+
+    // Access-ordered for LRU; everything below is guarded by `this`
+    private final LinkedHashMap<Long, Ring> rings = new LinkedHashMap<>(64, 0.75f, true);
+    // Sends to groups whose ring is being loaded, by group
+    private final Map<Long, List<ChatMessage>> loading = new HashMap<>();
+    private final Map<Long, Integer> loaders = new HashMap<>();
+    private long bytes;
+    // Bumped on every resync, so a load that started before one is not kept
+    private long resyncs;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @PostConstruct
+    void subscribe() {
+        bus.subscribe(EventBus.RESYNC, EventBus.Resync.class, resync -> clear());
+    }
+
+    /** Drops every ring; the next read of each group loads it again. */
+    public synchronized void clear() {
+        rings.clear();
+        bytes = 0;
+        resyncs++;
+    }
+
+    /**
+     * Up to {@code limit} messages of the group older than {@code beforeId},
+     * newest first, or null when the ring cannot tell (the caller then reads
+     * the database). Fewer than {@code limit} rows means the chat starts there.
+     */
+    public List<ChatMessage> before(long groupId, long beforeId, int limit) {
+        if (!enabled || limit >= ringSize) {
+            return null;
+        }
+        Ring ring = ring(groupId);
+        synchronized (this) {
+            List<ChatMessage> rows = ring.before(beforeId, limit);
+            (rows == null ? misses : hits).incrementAndGet();
+            return rows;
+        }
+    }
+
+    /**
+     * Up to {@code limit} messages of the group newer than {@code afterId},
+     * oldest first, or null when the ring does not reach back that far.
+     */
+    public List<ChatMessage> after(long groupId, long afterId, int limit) {
+        if (!enabled) {
+            return null;
+        }
+        Ring ring = ring(groupId);
+        synchronized (this) {
+            List<ChatMessage> rows = ring.after(afterId, limit);
+            (rows == null ? misses : hits).incrementAndGet();
+            return rows;
+        }
+    }
+
+    /** Adds a message that was just committed to its group's ring, if the group is cached. */
+    public synchronized void appended(ChatMessage message) {
+        if (!enabled) {
+            return;
+        }
+        Ring ring = rings.get(message.groupId());
+        if (ring != null && ring.missing(message)) {
+            // older than the ring's newest but not in it: another instance's send that
+            // committed after a later one here. Reload on the next read rather than splice.
+            rings.remove(message.groupId());
+            bytes -= ring.bytes;
+        } else if (ring != null) {
+            bytes += ring.push(message);
+            evictLocked();
+        } else if (loading.containsKey(message.groupId())) {
+            loading.get(message.groupId()).add(message);
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long h = hits.get();
+        long m = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("groups", rings.size());
+        stats.put("bytes", bytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRate", h + m == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    // The group's ring, loading it first when it is not cached
+    private Ring ring(long groupId) {
+        long seen;
+        synchronized (this) {
+            Ring ring = rings.get(groupId);
+            if (ring != null) {
+                return ring;
+            }
+            seen = resyncs;
+            loading.computeIfAbsent(groupId, id -> new ArrayList<>());
+            loaders.merge(groupId, 1, Integer::sum);
+        }
+        List<ChatMessage> latest;
+        try {
+            latest = jdbc.query(LATEST, (rs, i) -> new ChatMessage(rs.getLong("id"), rs.getLong("group_id"),
+                    (Long) rs.getObject("sender_id"), rs.getString("unity_id"), rs.getString("display_name"),
+                    rs.getString("content"), rs.getObject("timestamp", LocalDateTime.class)), groupId, ringSize + 1);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loadFinished(groupId);
+            }
+            throw e;
+        }
+        synchronized (this) {
+            List<ChatMessage> sentMeanwhile = loadFinished(groupId);
+            Ring ring = rings.get(groupId);
+            if (ring == null) {
+                ring = new Ring(ringSize);
+                ring.load(latest, sentMeanwhile);
+                if (resyncs == seen) {
+                    rings.put(groupId, ring);
+                    bytes += ring.bytes;
+                    evictLocked();
+                }
+            }
+            return ring;
+        }
+    }
+
+    // What was sent to the group during the load; the last loader out clears it
+    private List<ChatMessage> loadFinished(long groupId) {
+        if (loaders.merge(groupId, -1, Integer::sum) == 0) {
+            loaders.remove(groupId);
+            return loading.remove(groupId);
+        }
+        return loading.get(groupId);
+    }
+
+    private void evictLocked() {
+        Iterator<Ring> it = rings.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= it.next().bytes;
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static long size(ChatMessage message) {
+        return MESSAGE_BYTES + 2L * (length(message.content()) + length(message.senderUnityId())
+                + length(message.senderDisplayName()));
+    }
+
+    private static int length(String s) {
+        return Objects.requireNonNullElse(s, "").length();
+    }
+
+    // Guarded by the cache; an evicted ring is still safe to read, it just stops following sends
+    private static final class Ring {
+        final ChatMessage[] slots;
+        int head; // next slot to write
+        int count;
+        boolean complete;
+        long bytes = RING_BYTES;
+
+        Ring(int size) {
+            slots = new ChatMessage[size];
+        }
+
+        // latest is newest first and may hold one row more than fits, which only tells whether it is complete
+        void load(List<ChatMessage> latest, List<ChatMessage> sentMeanwhile) {
+            complete = latest.size() <= slots.length;
+            List<ChatMessage> rows = new ArrayList<>(latest.subList(0, Math.min(latest.size(), slots.length)));
+            Collections.reverse(rows);
+            if (sentMeanwhile != null) {
+                rows.addAll(sentMeanwhile);
+                rows.sort(Comparator.comparing(ChatMessage::id));
+            }
+            rows.forEach(this::push);
+        }
+
+        // Returns the change in estimated bytes
+        long push(ChatMessage message) {
+            if (count > 0 && message.id() <= newest().id()) {
+                return 0;
+            }
+            long delta = size(message);
+            if (count == slots.length) {
+                delta -= size(slots[head]);
+                complete = false;
+            } else {
+                count++;
+            }
+            slots[head] = message;
+            head = (head + 1) % slots.length;
+            bytes += delta;
+            return delta;
+        }
+
+        // Older than the newest message and not held, so pushing it would leave a gap
+        boolean missing(ChatMessage message) {
+            if (count == 0 || message.id() >= newest().id()) {
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                if (newestMinus(i).id().equals(message.id())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // i = 0 is the newest message
+        ChatMessage newestMinus(int i) {
+            return slots[Math.floorMod(head - 1 - i, slots.length)];
+        }
+
+        ChatMessage newest() {
+            return newestMinus(0);
+        }
+
+        List<ChatMessage> before(long beforeId, int limit) {
+            List<ChatMessage> rows = new ArrayList<>(limit);
+            for (int i = 0; i < count && rows.size() < limit; i++) {
+                ChatMessage message = newestMinus(i);
+                if (message.id() < beforeId) {
+                    rows.add(message);
+                }
+            }
+            return rows.size() == limit || complete ? rows : null;
+        }
+
+        List<ChatMessage> after(long afterId, int limit) {
+            if (!complete && (count == 0 || newestMinus(count - 1).id() > afterId)) {
+                return null;
+            }
+            List<ChatMessage> rows = new ArrayList<>();
+            for (int i = count - 1; i >= 0 && rows.size() < limit; i--) {
+                ChatMessage message = newestMinus(i);
+                if (message.id() > afterId) {
+                    rows.add(message);
+                }
+            }
+            return rows;
+        }
+    }
+}
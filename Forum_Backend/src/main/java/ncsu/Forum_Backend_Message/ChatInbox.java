@@ -0,0 +1,183 @@
+package ncsu.Forum_Backend_Message;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chat inbox backed by group_chat_member rows (see GroupChatMember).
+ *
+ * A send is one UPDATE over the group's member rows: everyone gets the new
+ * last message and one more unread, except the sender, who has read it; a
+ * flush of several messages to one group is still one UPDATE. Unread counts
+ * never include a member's own messages. The
+ * inbox itself walks one user's rows newest conversation first and joins only
+ * the group title, the last message and a short participant preview.
+ */
+@Component
+public class ChatInbox {
+
+    /** Participants named in an inbox row, besides the count. */
+    public static final int PREVIEW_NAMES = 3;
+    public static final int SNIPPET_LENGTH = 100;
+
+    public record Entry(Long groupId, String groupTitle, List<String> participantPreview, int participantCount,
+                        Long lastMessageId, String lastMessageSnippet, LocalDateTime lastMessageAt,
+                        String lastSenderDisplayName, int unreadCount) {}
+
+    // Everyone else gets the messages as unread. Senders have read up to their
+    // own last one, so theirs is recounted from there: others' messages in the
+    // same batch may come after it.
+    private static final String SENT = """
+        UPDATE group_chat_member c
+        SET last_message_id = greatest(c.last_message_id, ?),
+            unread_count = CASE WHEN s.user_id IS NULL THEN c.unread_count + ?
+                                ELSE (SELECT count(*) FROM group_message g
+                                      WHERE g.group_id = c.group_id
+                                        AND g.id > greatest(c.last_read_message_id, s.last_id)
+                                        AND g.sender_id IS DISTINCT FROM c.user_id) END,
+            last_read_message_id = greatest(c.last_read_message_id, coalesce(s.last_id, 0))
+        FROM group_chat_member m
+        LEFT JOIN unnest(?::bigint[], ?::bigint[]) AS s(user_id, last_id) ON s.user_id = m.user_id
+        WHERE c.group_id = ? AND m.group_id = c.group_id AND m.user_id = c.user_id
+        """;
+
+    private static final String IS_MEMBER =
+        "SELECT EXISTS (SELECT 1 FROM group_chat_member WHERE group_id = ? AND user_id = ?)";
+
+    private static final String JOINED = """
+        INSERT INTO group_chat_member (group_id, user_id, last_message_id, last_read_message_id, unread_count)
+        SELECT g.id, ?, coalesce(g.last_message_id, 0), coalesce(g.last_message_id, 0), 0
+        FROM group_chat g WHERE g.id = ?
+        ON CONFLICT DO NOTHING
+        """;
+
+    // Counts what others sent after the new read position, as SENT does
+    private static final String READ = """
+        UPDATE group_chat_member c
+        SET last_read_message_id = r.read_id,
+            unread_count = (SELECT count(*) FROM group_message m
+                            WHERE m.group_id = c.group_id AND m.id > r.read_id
+                              AND m.sender_id IS DISTINCT FROM c.user_id)
+        FROM (SELECT greatest(last_read_message_id, least(?, last_message_id)) AS read_id
+              FROM group_chat_member WHERE group_id = ? AND user_id = ?) r
+        WHERE c.group_id = ? AND c.user_id = ?
+        """;
+
+    private static final String INBOX = """
+        SELECT c.group_id, g.group_title, c.unread_count, c.last_message_id,
+               left(m.content, %d) AS snippet, m.timestamp, s.display_name,
+               (SELECT count(*) FROM group_chat_participants p WHERE p.group_chat_id = c.group_id) AS participants,
+               ARRAY(SELECT u.display_name
+                     FROM group_chat_participants p JOIN app_user u ON u.id = p.participants_id
+                     WHERE p.group_chat_id = c.group_id AND p.participants_id <> c.user_id
+                     ORDER BY u.display_name
+                     LIMIT %d) AS preview
+        FROM group_chat_member c
+        JOIN group_chat g ON g.id = c.group_id
+        LEFT JOIN group_message m ON m.id = c.last_message_id
+        LEFT JOIN app_user s ON s.id = m.sender_id
+        WHERE c.user_id = ? AND c.last_message_id < ?
+        ORDER BY c.last_message_id DESC
+        LIMIT ?
+        """.formatted(SNIPPET_LENGTH + 1, PREVIEW_NAMES);
+
+    @Autowired private JdbcTemplate jdbc;
+
+    // Pairs known to be members; nothing removes a member, so this never goes stale
+    private record Membership(long groupId, long userId) {}
+    private final Set<Membership> members = ConcurrentHashMap.newKeySet();
+
+    // Members of groups that predate the table, or were added without a row
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        jdbc.update("""
+            INSERT INTO group_chat_member (group_id, user_id, last_message_id, last_read_message_id, unread_count)
+            SELECT p.group_chat_id, p.participants_id, coalesce(g.last_message_id, 0),
+                   coalesce(g.last_message_id, 0), 0
+            FROM group_chat_participants p JOIN group_chat g ON g.id = p.group_chat_id
+            ON CONFLICT DO NOTHING
+            """);
+    }
+
+    /** Adds member rows for users who just joined; they start with nothing unread. */
+    public void joined(long groupId, Collection<Long> userIds) {
+        jdbc.batchUpdate(JOINED, userIds.stream().map(userId -> new Object[] {userId, groupId}).toList());
+        userIds.forEach(userId -> members.add(new Membership(groupId, userId)));
+    }
+
+    public boolean isMember(long groupId, long userId) {
+        Membership membership = new Membership(groupId, userId);
+        if (members.contains(membership)) {
+            return true;
+        }
+        if (Boolean.TRUE.equals(jdbc.queryForObject(IS_MEMBER, Boolean.class, groupId, userId))) {
+            members.add(membership);
+            return true;
+        }
+        return false;
+    }
+
+    /** Records messages sent to one group at once, in a single UPDATE of its member rows. */
+    public void sent(long groupId, List<ChatMessage> messages) {
+        // each sender's last message
+        Map<Long, Long> bySender = new LinkedHashMap<>();
+        long last = 0;
+        for (ChatMessage message : messages) {
+            bySender.merge(message.senderId(), message.id(), Math::max);
+            last = Math.max(last, message.id());
+        }
+        Long[] senders = bySender.keySet().toArray(Long[]::new);
+        Long[] lastIds = bySender.values().toArray(Long[]::new);
+        long lastMessageId = last;
+        jdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement(SENT);
+            ps.setLong(1, lastMessageId);
+            ps.setInt(2, messages.size());
+            ps.setArray(3, con.createArrayOf("bigint", senders));
+            ps.setArray(4, con.createArrayOf("bigint", lastIds));
+            ps.setLong(5, groupId);
+            return ps;
+        });
+    }
+
+    /** Moves the user's read position up to {@code messageId} (the latest message when null). */
+    public boolean read(long groupId, long userId, Long messageId) {
+        long upTo = messageId == null ? Long.MAX_VALUE : messageId;
+        return jdbc.update(READ, upTo, groupId, userId, groupId, userId) > 0;
+    }
+
+    /** Conversations with a last message before {@code beforeId}, most recent first. */
+    public List<Entry> inbox(long userId, long beforeId, int limit) {
+        return jdbc.query(INBOX, (rs, i) -> entry(rs), userId, beforeId, limit);
+    }
+
+    private static Entry entry(ResultSet rs) throws SQLException {
+        Array preview = rs.getArray("preview");
+        String snippet = rs.getString("snippet");
+        if (snippet != null && snippet.length() > SNIPPET_LENGTH) {
+            snippet = snippet.substring(0, SNIPPET_LENGTH) + "…";
+        }
+        long lastMessageId = rs.getLong("last_message_id");
+        return new Entry(rs.getLong("group_id"), rs.getString("group_title"),
+                Arrays.asList((String[]) preview.getArray()), rs.getInt("participants"),
+                lastMessageId == 0 ? null : lastMessageId, snippet,
+                rs.getObject("timestamp", LocalDateTime.class), rs.getString("display_name"),
+                rs.getInt("unread_count"));
+    }
+}
@@ -0,0 +1,20 @@
+package ncsu.Forum_Backend_Message;
+
+import java.time.LocalDateTime;
+
+import ncsu.Forum_Backend_User.User;
+
+/**
+ * A group chat message as clients see it: ids and names only, no entity
+ * graph. Ids are Snowflake ids, so ordering by id is ordering by send time.
+ */
+public record ChatMessage(Long id, Long groupId, Long senderId, String senderUnityId, String senderDisplayName,
+                          String content, LocalDateTime timestamp) {
+
+    public static ChatMessage of(GroupMessage message) {
+        User sender = message.getSender();
+        return new ChatMessage(message.getId(), message.getGroup().getId(),
+                sender == null ? null : sender.getId(), sender == null ? null : sender.getUnityId(),
+                sender == null ? null : sender.getDisplayName(), message.getContent(), message.getTimestamp());
+    }
+}
@@ -0,0 +1,411 @@
+package ncsu.Forum_Backend_Message;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import ncsu.Config.EventBus;
+
+/**
+ * Who is online and who is typing in which chat, kept only in memory: a
+ * heartbeat or a keystroke is a map update, never a database write.
+ *
+ * Entries live for a TTL (forum.presence.online-ttl-ms, typing-ttl-ms) and
+ * every heartbeat pushes the deadline out. State is split over
+ * forum.presence.stripes stripes, each with its own lock, map and timer
+ * wheel; a typing entry goes to its group's stripe, so one group's typers
+ * are read under one lock. The wheel has one slot per tick
+ * (forum.presence.tick-ms): an entry sits in the slot of its deadline, and
+ * when the slot comes round it is dropped or, if it was refreshed meanwhile,
+ * moved to the slot of its new deadline. So a refresh costs nothing and
+ * expiry only visits entries that are due.
+ *
+ * Changes are not pushed one by one. Each tick collects the groups whose
+ * typers changed and publishes them as one batch on the {@link EventBus}
+ * topic {@value #TOPIC}, tagged with this instance's forum.ids.node-id. Every
+ * instance keeps the lists it has been sent per node and, when a group's
+ * combined list changes, sends its open streams one "typing" event with it
+ * (GroupChatHub); a typer is seen wherever the group's streams are open.
+ * Groups with typers are announced again every half typing TTL, and a node's
+ * list that has not been announced for a full TTL is dropped, so typers of
+ * an instance that went away do not linger. Online status is read on demand
+ * and only covers this instance.
+ */
+@Component
+public class ChatPresence {
+
+    /** The users typing in a group, as sent to its streams. */
+    public record Typing(long groupId, List<Long> userIds) {}
+
+    /** One tick's typing changes on one instance. */
+    public record TypingUpdate(int node, List<Typing> groups) {}
+
+    public static final String TOPIC = "chat_typing";
+
+    private static final int WHEEL_SLOTS = 512;
+
+    private final GroupChatHub hub;
+    private final EventBus bus;
+    private final int node;
+    private final Registry online;
+    private final Registry typing;
+    private final long tickMillis;
+    private final long typingTtl;
+    private final LongSupplier clock;
+    // Group -> node -> that node's typers as last announced; guarded by itself
+    private final Map<Long, Map<Integer, Announced>> announced = new HashMap<>();
+    private long nextAnnouncement;
+
+    private record Announced(List<Long> userIds, long at) {}
+
+    @Autowired
+    public ChatPresence(GroupChatHub hub, EventBus bus,
+                        @Value("${forum.ids.node-id:0}") int node,
+                        @Value("${forum.presence.stripes:64}") int stripes,
+                        @Value("${forum.presence.tick-ms:250}") long tickMillis,
+                        @Value("${forum.presence.online-ttl-ms:60000}") long onlineTtl,
+                        @Value("${forum.presence.typing-ttl-ms:6000}") long typingTtl) {
+        this(hub, bus, node, stripes, tickMillis, onlineTtl, typingTtl, System::currentTimeMillis);
+    }
+
+    ChatPresence(GroupChatHub hub, EventBus bus, int node, int stripes, long tickMillis, long onlineTtl,
+                 long typingTtl, LongSupplier clock) {
+        this.hub = hub;
+        this.bus = bus;
+        this.node = node;
+        this.tickMillis = tickMillis;
+        this.typingTtl = typingTtl;
+        this.clock = clock;
+        long now = clock.getAsLong();
+        this.online = new Registry(stripes, onlineTtl, now);
+        this.typing = new Registry(stripes, typingTtl, now);
+        bus.subscribe(TOPIC, TypingUpdate.class, this::announced);
+        // other nodes' lists may be stale; they come back with the next announcement
+        bus.subscribe(EventBus.RESYNC, EventBus.Resync.class, resync -> forget(n -> n != node));
+    }
+
+    /** The user is still here; keeps them online for another TTL. */
+    public void heartbeat(long userId) {
+        online.touch(userId, userId, clock.getAsLong());
+    }
+
+    public void offline(long userId) {
+        online.remove(userId, userId);
+    }
+
+    public boolean isOnline(long userId) {
+        return online.contains(userId, userId, clock.getAsLong());
+    }
+
+    /** The subset of {@code userIds} that is online. */
+    public List<Long> online(List<Long> userIds) {
+        long now = clock.getAsLong();
+        return userIds.stream().filter(userId -> online.contains(userId, userId, now)).toList();
+    }
+
+    /** The user typed in the group; typing also counts as being online. */
+    public void typing(long groupId, long userId) {
+        long now = clock.getAsLong();
+        typing.touch(groupId, userId, now);
+        online.touch(userId, userId, now);
+    }
+
+    public void stoppedTyping(long groupId, long userId) {
+        typing.remove(groupId, userId);
+    }
+
+    /** Everyone typing in the group, on any instance. */
+    public List<Long> typing(long groupId) {
+        List<Long> here = typing.members(groupId, clock.getAsLong());
+        synchronized (announced) {
+            Map<Integer, Announced> nodes = announced.get(groupId);
+            if (nodes == null) {
+                return here;
+            }
+            Set<Long> all = new TreeSet<>(here);
+            nodes.forEach((n, a) -> {
+                if (n != node) {
+                    all.addAll(a.userIds());
+                }
+            });
+            return List.copyOf(all);
+        }
+    }
+
+    /** Users tracked as online, for monitoring. */
+    public int onlineCount() {
+        return online.size();
+    }
+
+    // Expires what is due and announces the groups whose typers changed
+    @Scheduled(fixedDelayString = "${forum.presence.tick-ms:250}")
+    public void tick() {
+        long now = clock.getAsLong();
+        online.expire(now);
+        Set<Long> groups = typing.expire(now);
+        if (now >= nextAnnouncement) {
+            nextAnnouncement = now + typingTtl / 2;
+            groups.addAll(typing.scopes());
+        }
+        if (!groups.isEmpty()) {
+            List<Typing> changes = new ArrayList<>(groups.size());
+            for (long groupId : groups) {
+                changes.add(new Typing(groupId, typing.members(groupId, now)));
+            }
+            bus.publish(TOPIC, new TypingUpdate(node, changes));
+        }
+        forget(n -> false);
+    }
+
+    private void announced(TypingUpdate update) {
+        long now = clock.getAsLong();
+        synchronized (announced) {
+            for (Typing t : update.groups()) {
+                Map<Integer, Announced> nodes = announced.computeIfAbsent(t.groupId(), g -> new HashMap<>());
+                List<Long> before = union(nodes);
+                if (t.userIds().isEmpty()) {
+                    nodes.remove(update.node());
+                } else {
+                    nodes.put(update.node(), new Announced(t.userIds(), now));
+                }
+                List<Long> after = union(nodes);
+                if (nodes.isEmpty()) {
+                    announced.remove(t.groupId());
+                }
+                if (!after.equals(before)) {
+                    // under the lock, so streams get a group's lists in the order they were made
+                    hub.publishTyping(new Typing(t.groupId(), after));
+                }
+            }
+        }
+    }
+
+    // Drops the lists of the nodes matched, and any not announced for a typing TTL
+    private void forget(IntPredicate nodes) {
+        long now = clock.getAsLong();
+        synchronized (announced) {
+            Iterator<Map.Entry<Long, Map<Integer, Announced>>> groups = announced.entrySet().iterator();
+            while (groups.hasNext()) {
+                Map.Entry<Long, Map<Integer, Announced>> group = groups.next();
+                List<Long> before = union(group.getValue());
+                if (group.getValue().entrySet().removeIf(
+                        e -> nodes.test(e.getKey()) || e.getValue().at() + typingTtl <= now)) {
+                    List<Long> after = union(group.getValue());
+                    if (group.getValue().isEmpty()) {
+                        groups.remove();
+                    }
+                    if (!after.equals(before)) {
+                        hub.publishTyping(new Typing(group.getKey(), after));
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<Long> union(Map<Integer, Announced> nodes) {
+        if (nodes.size() == 1) {
+            return nodes.values().iterator().next().userIds();
+        }
+        Set<Long> all = new TreeSet<>();
+        nodes.values().forEach(a -> all.addAll(a.userIds()));
+        return List.copyOf(all);
+    }
+
+    private final class Registry {
+        final Stripe[] stripes;
+        final long ttl;
+
+        Registry(int count, long ttl, long now) {
+            this.stripes = new Stripe[count];
+            this.ttl = ttl;
+            for (int i = 0; i < count; i++) {
+                stripes[i] = new Stripe(now / tickMillis);
+            }
+        }
+
+        Stripe stripe(long scope) {
+            return stripes[Math.floorMod(Long.hashCode(scope * 0x9E3779B97F4A7C15L), stripes.length)];
+        }
+
+        void touch(long scope, long user, long now) {
+            Stripe stripe = stripe(scope);
+            synchronized (stripe) {
+                Map<Long, Entry> users = stripe.scopes.computeIfAbsent(scope, s -> new HashMap<>());
+                Entry entry = users.get(user);
+                if (entry != null) {
+                    // still on the wheel; it moves to its new slot when the old one comes round
+                    if (entry.expiresAt <= now) {
+                        stripe.changed.add(scope);
+                    }
+                    entry.expiresAt = now + ttl;
+                    return;
+                }
+                entry = new Entry(scope, user, now + ttl);
+                users.put(user, entry);
+                stripe.schedule(entry);
+                stripe.changed.add(scope);
+                stripe.size++;
+            }
+        }
+
+        void remove(long scope, long user) {
+            Stripe stripe = stripe(scope);
+            synchronized (stripe) {
+                if (stripe.unmap(scope, user, null)) {
+                    stripe.changed.add(scope);
+                }
+            }
+        }
+
+        boolean contains(long scope, long user, long now) {
+            Stripe stripe = stripe(scope);
+            synchronized (stripe) {
+                Map<Long, Entry> users = stripe.scopes.get(scope);
+                Entry entry = users == null ? null : users.get(user);
+                return entry != null && entry.expiresAt > now;
+            }
+        }
+
+        List<Long> members(long scope, long now) {
+            Stripe stripe = stripe(scope);
+            synchronized (stripe) {
+                Map<Long, Entry> users = stripe.scopes.get(scope);
+                if (users == null) {
+                    return List.of();
+                }
+                List<Long> members = new ArrayList<>(users.size());
+                users.values().forEach(entry -> {
+                    if (entry.expiresAt > now) {
+                        members.add(entry.user);
+                    }
+                });
+                members.sort(null);
+                return members;
+            }
+        }
+
+        // Scopes with at least one entry, expired or not
+        Set<Long> scopes() {
+            Set<Long> scopes = new HashSet<>();
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    scopes.addAll(stripe.scopes.keySet());
+                }
+            }
+            return scopes;
+        }
+
+        int size() {
+            int size = 0;
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    size += stripe.size;
+                }
+            }
+            return size;
+        }
+
+        // Advances every wheel to now; returns the scopes that changed since the last call
+        Set<Long> expire(long now) {
+            Set<Long> changed = new HashSet<>();
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.advance(now);
+                    changed.addAll(stripe.changed);
+                    stripe.changed.clear();
+                }
+            }
+            return changed;
+        }
+    }
+
+    // Guarded by itself
+    private final class Stripe {
+        final Map<Long, Map<Long, Entry>> scopes = new HashMap<>();
+        @SuppressWarnings("unchecked")
+        final List<Entry>[] wheel = new List[WHEEL_SLOTS];
+        final Set<Long> changed = new HashSet<>();
+        long tick; // last tick processed
+        int size;
+
+        Stripe(long tick) {
+            this.tick = tick;
+        }
+
+        void schedule(Entry entry) {
+            // first tick at or after the deadline, and never one already passed
+            long due = Math.max((entry.expiresAt + tickMillis - 1) / tickMillis, tick + 1);
+            int slot = (int) (due % WHEEL_SLOTS);
+            if (wheel[slot] == null) {
+                wheel[slot] = new ArrayList<>();
+            }
+            wheel[slot].add(entry);
+        }
+
+        void advance(long now) {
+            long target = now / tickMillis;
+            // after a long pause every slot is due once, not many times
+            long from = Math.max(tick + 1, target - WHEEL_SLOTS + 1);
+            for (long t = from; t <= target; t++) {
+                int slot = (int) (t % WHEEL_SLOTS);
+                List<Entry> due = wheel[slot];
+                if (due == null) {
+                    continue;
+                }
+                wheel[slot] = null;
+                for (Entry entry : due) {
+                    if (entry.removed) {
+                        continue;
+                    }
+                    if (entry.expiresAt > now) {
+                        schedule(entry);
+                    } else if (unmap(entry.scope, entry.user, entry)) {
+                        changed.add(entry.scope);
+                    }
+                }
+            }
+            tick = Math.max(tick, target);
+        }
+
+        // Drops the user's entry in the scope (only if it is {@code expected}, when given)
+        boolean unmap(long scope, long user, Entry expected) {
+            Map<Long, Entry> users = scopes.get(scope);
+            Entry entry = users == null ? null : users.get(user);
+            if (entry == null || (expected != null && entry != expected)) {
+                return false;
+            }
+            entry.removed = true;
+            users.remove(user);
+            if (users.isEmpty()) {
+                scopes.remove(scope);
+            }
+            size--;
+            return true;
+        }
+    }
+
+    private static final class Entry {
+        final long scope;
+        final long user;
+        long expiresAt;
+        boolean removed;
+
+        Entry(long scope, long user, long expiresAt) {
+            this.scope = scope;
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
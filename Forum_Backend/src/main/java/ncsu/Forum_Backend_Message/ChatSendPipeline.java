@@ -0,0 +1,192 @@
+package ncsu.Forum_Backend_Message;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import ncsu.Config.EventBus;
+import ncsu.Config.Snowflake;
+
+/**
+ * Asynchronous send path for group chat messages.
+ *
+ * A send gets its Snowflake id and timestamp up front and is queued; one
+ * writer thread takes whatever has queued up (at most forum.chat.batch-size)
+ * and hands it to the {@link Store} as one batch. So a burst to one class chat
+ * costs one multi-row insert and one lastMessage / inbox update per group per
+ * flush, instead of a read-modify-write of the same GroupChat row per message.
+ * Ids are taken and queued under one lock and there is one writer, so within a
+ * group the insert order, the id order and the push order all match.
+ *
+ * forum.chat.ack chooses when the sender hears back: "commit" (default) once
+ * the batch is committed, "enqueue" as soon as it is queued, which can lose
+ * queued messages in a crash. When the queue (forum.chat.queue-capacity) is
+ * full a send is rejected instead of waiting.
+ *
+ * Committed messages go out on the {@link EventBus} topic {@value #TOPIC};
+ * every instance, this one included, adds them to its recent history and
+ * pushes them to its open streams.
+ */
+@Component
+public class ChatSendPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatSendPipeline.class);
+
+    public static final String TOPIC = "chat_message";
+
+    public enum Ack {
+        ENQUEUE, COMMIT;
+
+        static Ack parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /** Persists one batch of new messages in a single transaction. */
+    public interface Store {
+        void write(List<ChatMessage> batch);
+    }
+
+    private record Pending(ChatMessage message, CompletableFuture<ChatMessage> committed) {}
+
+    private final Store store;
+    private final GroupChatHub hub;
+    private final ChatHistoryCache history;
+    private final EventBus bus;
+    private final Snowflake ids;
+    private final Ack ack;
+    private final int batchSize;
+    private final BlockingQueue<Pending> queue;
+    private final Object enqueueLock = new Object();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public ChatSendPipeline(Store store, GroupChatHub hub, ChatHistoryCache history, EventBus bus,
+                            @Value("${forum.ids.node-id:0}") int nodeId,
+                            @Value("${forum.chat.ack:commit}") String ack,
+                            @Value("${forum.chat.batch-size:500}") int batchSize,
+                            @Value("${forum.chat.queue-capacity:10000}") int queueCapacity) {
+        this.store = store;
+        this.hub = hub;
+        this.history = history;
+        this.bus = bus;
+        this.ids = Snowflake.forNode(nodeId);
+        this.ack = Ack.parse(ack);
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        bus.subscribe(TOPIC, ChatMessage.class, this::delivered);
+        this.writer = new Thread(this::run, "chat-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public Ack ack() {
+        return ack;
+    }
+
+    /**
+     * Queues a message. The future holds the message with its id once it is
+     * acknowledged (see forum.chat.ack), and fails with a
+     * RejectedExecutionException when the queue is full.
+     */
+    public CompletableFuture<ChatMessage> send(long groupId, long senderId, String senderUnityId,
+                                               String senderDisplayName, String content) {
+        CompletableFuture<ChatMessage> committed = new CompletableFuture<>();
+        ChatMessage message;
+        synchronized (enqueueLock) {
+            message = new ChatMessage(ids.nextId(), groupId, senderId, senderUnityId, senderDisplayName, content,
+                    LocalDateTime.now());
+            if (!running || !queue.offer(new Pending(message, committed))) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException("Chat send queue is full"));
+            }
+        }
+        return ack == Ack.ENQUEUE ? CompletableFuture.completedFuture(message) : committed;
+    }
+
+    /** Messages waiting for the writer, for monitoring. */
+    public int backlog() {
+        return queue.size();
+    }
+
+    // Drain hook: stop taking sends and let the writer commit what is queued
+    @PreDestroy
+    public void drain() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        if (!queue.isEmpty()) {
+            log.warn("Chat send pipeline shut down with {} unwritten messages", queue.size());
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Chat writer failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        try {
+            store.write(batch.stream().map(Pending::message).toList());
+            batch.forEach(this::committed);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                failed(batch.get(0), e);
+                return;
+            }
+            // one bad message (say, its group was deleted) must not sink the rest
+            for (Pending pending : batch) {
+                try {
+                    store.write(List.of(pending.message()));
+                    committed(pending);
+                } catch (RuntimeException single) {
+                    failed(pending, single);
+                }
+            }
+        }
+    }
+
+    private void committed(Pending pending) {
+        bus.publish(TOPIC, pending.message());
+        pending.committed().complete(pending.message());
+    }
+
+    // Into the recent history before any stream, so a stream that resumes from it misses nothing
+    private void delivered(ChatMessage message) {
+        history.appended(message);
+        hub.publish(message);
+    }
+
+    private void failed(Pending pending, RuntimeException e) {
+        log.warn("Dropping chat message {} to group {}: {}", pending.message().id(), pending.message().groupId(),
+                e.getMessage());
+        pending.committed().completeExceptionally(e);
+    }
+}
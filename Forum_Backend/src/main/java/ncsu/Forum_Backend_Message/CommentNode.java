@@ -0,0 +1,75 @@
+package ncsu.Forum_Backend_Message;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import ncsu.Forum_Backend_Attachment.ImageVariants;
+
+/**
+ * One comment in a thread as returned by /api/posts/{id}/comments, with the
+ * replies that fell inside the requested window. replyCount is the full number
+ * of direct replies; when it is larger than replies.size() the rest can be
+ * fetched with repliesCursor.
+ */
+public class CommentNode implements VoteCounted {
+
+    private final Long id;
+    private final Long parentId;
+    private final String body;
+    private final LocalDateTime timestamp;
+    private final String senderUnityId;
+    private final String senderDisplayName;
+    private final String senderPictureUrl;
+    private int likeCount;
+    private int dislikeCount;
+    private final long replyCount;
+    private final List<CommentNode> replies = new ArrayList<>();
+    private String repliesCursor;
+
+    public CommentNode(Long id, Long parentId, String body, LocalDateTime timestamp,
+                       String senderUnityId, String senderDisplayName, String senderPictureUrl,
+                       int likeCount, int dislikeCount, long replyCount) {
+        this.id = id;
+        this.parentId = parentId;
+        this.body = body;
+        this.timestamp = timestamp;
+        this.senderUnityId = senderUnityId;
+        this.senderDisplayName = senderDisplayName;
+        this.senderPictureUrl = senderPictureUrl;
+        this.likeCount = likeCount;
+        this.dislikeCount = dislikeCount;
+        this.replyCount = replyCount;
+    }
+
+    public Long getId() { return id; }
+    public Long getParentId() { return parentId; }
+    public String getBody() { return body; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public String getSenderUnityId() { return senderUnityId; }
+    public String getSenderDisplayName() { return senderDisplayName; }
+    public String getSenderPictureUrl() { return ImageVariants.sized(senderPictureUrl, ImageVariants.SMALL); }
+    public int getLikeCount() { return likeCount; }
+    public int getDislikeCount() { return dislikeCount; }
+    public long getReplyCount() { return replyCount; }
+    public List<CommentNode> getReplies() { return replies; }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getRepliesCursor() { return repliesCursor; }
+
+    public int getLikes() {
+        return likeCount - dislikeCount;
+    }
+
+    void setRepliesCursor(String repliesCursor) {
+        this.repliesCursor = repliesCursor;
+    }
+
+    @Override
+    public void overlayVotes(int likeCount, int dislikeCount) {
+        this.likeCount = likeCount;
+        this.dislikeCount = dislikeCount;
+    }
+}
@@ -0,0 +1,134 @@
+package ncsu.Forum_Backend_Message;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads a window of a comment thread in one statement. A recursive CTE walks
+ * parent_id from the requested parent: one page of its direct replies, then at
+ * most {@code breadth} replies per comment for up to {@code depth} levels.
+ * Rows come back ordered by (depth, sibling rank), so the tree is assembled in
+ * a single pass with an id map; nothing is lazily loaded per level.
+ * Deleted comments are skipped together with their replies, and a deleted
+ * parent has no replies at all.
+ */
+@Component
+public class CommentTreeLoader {
+
+    public enum Sort {
+        NEW("ts DESC, id DESC"),
+        OLD("ts ASC, id ASC"),
+        TOP("score DESC, ts DESC, id DESC");
+
+        private final String orderBy;
+
+        Sort(String orderBy) {
+            this.orderBy = orderBy;
+        }
+
+        // null or blank means the default; anything unknown is rejected
+        public static Sort parse(String value) {
+            if (value == null || value.isBlank()) {
+                return NEW;
+            }
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /** One page of replies under a parent; nextCursor is null on the last page. */
+    public record CommentPage(List<CommentNode> comments, String nextCursor) {
+    }
+
+    // Each level ranks a parent's replies with row_number() so siblings keep
+    // the requested order. The top level fetches one extra row to tell whether
+    // another page exists; that row is returned but never expanded.
+    private static final String TREE_SQL = """
+        WITH RECURSIVE tree AS (
+            SELECT w.id, w.parent_id, 1 AS depth, row_number() OVER (ORDER BY %1$s) AS rn
+            FROM (SELECT m.id, m.parent_id, m.timestamp AS ts, m.like_count - m.dislike_count AS score
+                  FROM messages m
+                  WHERE m.parent_id = ? AND m.deleted_at IS NULL
+                    AND NOT EXISTS (SELECT 1 FROM messages p WHERE p.id = m.parent_id AND p.deleted_at IS NOT NULL)
+                  ORDER BY %1$s OFFSET ? LIMIT ?) w
+          UNION ALL
+            SELECT w.id, w.parent_id, t.depth + 1, w.rn
+            FROM tree t
+            CROSS JOIN LATERAL (
+                SELECT s.id, s.parent_id, row_number() OVER (ORDER BY %1$s) AS rn
+                FROM (SELECT m.id, m.parent_id, m.timestamp AS ts, m.like_count - m.dislike_count AS score
+                      FROM messages m WHERE m.parent_id = t.id AND m.deleted_at IS NULL
+                      ORDER BY %1$s LIMIT ?) s
+            ) w
+            WHERE t.depth < ? AND (t.depth > 1 OR t.rn <= ?)
+        )
+        SELECT t.id, t.parent_id, t.depth, m.body, m.timestamp, u.unity_id, u.display_name,
+               u.profile_picture_url, m.like_count, m.dislike_count,
+               (SELECT count(*) FROM messages r WHERE r.parent_id = t.id AND r.deleted_at IS NULL) AS reply_count
+        FROM tree t
+        JOIN messages m ON m.id = t.id
+        LEFT JOIN app_user u ON u.id = m.sender_id
+        ORDER BY t.depth, t.rn
+        """;
+
+    private static final Map<Sort, String> QUERIES = new HashMap<>();
+
+    static {
+        for (Sort sort : Sort.values()) {
+            QUERIES.put(sort, TREE_SQL.formatted(sort.orderBy));
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    /**
+     * Replies to {@code parentId} starting at {@code offset}: {@code limit} of
+     * them, each expanded {@code depth - 1} further levels with at most
+     * {@code breadth} replies per comment.
+     */
+    public CommentPage load(long parentId, int offset, int limit, int depth, int breadth, Sort sort) {
+        List<CommentNode> top = new ArrayList<>();
+        Map<Long, CommentNode> byId = new HashMap<>();
+        jdbc.query(QUERIES.get(sort), rs -> {
+            CommentNode node = new CommentNode(
+                    rs.getLong("id"),
+                    rs.getLong("parent_id"),
+                    rs.getString("body"),
+                    rs.getObject("timestamp", LocalDateTime.class),
+                    rs.getString("unity_id"),
+                    rs.getString("display_name"),
+                    rs.getString("profile_picture_url"),
+                    rs.getInt("like_count"),
+                    rs.getInt("dislike_count"),
+                    rs.getLong("reply_count"));
+            byId.put(node.getId(), node);
+            if (rs.getInt("depth") == 1) {
+                top.add(node);
+            } else {
+                // parents are always on an earlier row
+                byId.get(node.getParentId()).getReplies().add(node);
+            }
+        }, parentId, offset, limit + 1, breadth, depth, limit);
+
+        String nextCursor = null;
+        if (top.size() > limit) {
+            top.remove(limit);
+            nextCursor = new ReplyCursor(parentId, offset + limit).encode();
+        }
+        for (CommentNode node : byId.values()) {
+            int shown = node.getReplies().size();
+            if (node.getReplyCount() > shown) {
+                node.setRepliesCursor(new ReplyCursor(node.getId(), shown).encode());
+            }
+        }
+        return new CommentPage(top, nextCursor);
+    }
+}
@@ -0,0 +1,63 @@
+package ncsu.Forum_Backend_Message;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import ncsu.Config.CatalogResolver;
+
+@RestController
+@RequestMapping("/api/direct")
+@CrossOrigin(origins = "http://localhost:5173")
+public class DirectChatController {
+
+    static final String GROUP_ID_HEADER = "X-Group-Id";
+
+    @Autowired
+    private DirectChats directChats;
+
+    @Autowired
+    private GroupMessageController groupMessages;
+
+    @Autowired
+    private CatalogResolver catalog;
+
+    public record DirectChat(long groupId, long user1, long user2) {}
+
+    // GET the conversation between two users: the same pages as
+    // /api/groupchat/{groupId}, with the chat's id in X-Group-Id. 404 if the
+    // two have never talked.
+    @GetMapping("/direct-message/{user1}/{user2}")
+    public ResponseEntity<List<ChatMessage>> getConversation(
+            @PathVariable Long user1,
+            @PathVariable Long user2,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Integer limit) {
+        Optional<Long> groupId = directChats.find(user1, user2);
+        if (groupId.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        ResponseEntity<List<ChatMessage>> page = groupMessages.getGroupMessages(groupId.get(), before, limit);
+        return ResponseEntity.status(page.getStatusCode())
+                .headers(page.getHeaders())
+                .header(GROUP_ID_HEADER, Long.toString(groupId.get()))
+                .body(page.getBody());
+    }
+
+    // POST find or create the conversation between two users
+    @PostMapping("/direct-message/{user1}/{user2}")
+    public ResponseEntity<?> openConversation(@PathVariable Long user1, @PathVariable Long user2) {
+        if (user1.equals(user2)) {
+            return ResponseEntity.badRequest().body("A direct message needs two different users");
+        }
+        for (Long user : List.of(user1, user2)) {
+            if (catalog.userName(user) == null) {
+                return ResponseEntity.badRequest().body("User not found: " + user);
+            }
+        }
+        return ResponseEntity.ok(new DirectChat(directChats.findOrCreate(user1, user2, null), user1, user2));
+    }
+}
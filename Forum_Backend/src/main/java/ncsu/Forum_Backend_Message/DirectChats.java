@@ -0,0 +1,97 @@
+package ncsu.Forum_Backend_Message;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ncsu.Config.Snowflake;
+
+/**
+ * One-to-one conversations, keyed by their canonical participant pair
+ * (dm_low_user_id, dm_high_user_id): the smaller user id first, so both users
+ * name the same chat. The pair is unique in group_chat, which makes a lookup
+ * one index probe and lets two users opening a chat with each other at the
+ * same time end up in the same one: the second INSERT waits on the first and
+ * then does nothing.
+ */
+@Component
+public class DirectChats {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectChats.class);
+
+    public record Pair(long low, long high) {
+        public static Pair of(long user1, long user2) {
+            return new Pair(Math.min(user1, user2), Math.max(user1, user2));
+        }
+    }
+
+    private static final String FIND =
+        "SELECT id FROM group_chat WHERE dm_low_user_id = ? AND dm_high_user_id = ?";
+
+    private static final String CREATE = """
+        INSERT INTO group_chat (id, group_title, dm_low_user_id, dm_high_user_id)
+        VALUES (?, ?, ?, ?)
+        ON CONFLICT (dm_low_user_id, dm_high_user_id) DO NOTHING
+        """;
+
+    private static final String ADD_PARTICIPANTS =
+        "INSERT INTO group_chat_participants (group_chat_id, participants_id) VALUES (?, ?), (?, ?)";
+
+    // Two-person chats from before the key: the most recently active one per pair becomes the DM
+    private static final String BACKFILL = """
+        UPDATE group_chat g SET dm_low_user_id = p.low, dm_high_user_id = p.high
+        FROM (SELECT DISTINCT ON (low, high) c.id, low, high
+              FROM (SELECT group_chat_id, min(participants_id) AS low, max(participants_id) AS high
+                    FROM group_chat_participants
+                    GROUP BY group_chat_id
+                    HAVING count(*) = 2) pp
+              JOIN group_chat c ON c.id = pp.group_chat_id
+              ORDER BY low, high, c.last_message_id DESC NULLS LAST) p
+        WHERE g.id = p.id AND g.dm_low_user_id IS NULL
+          AND NOT EXISTS (SELECT 1 FROM group_chat d WHERE d.dm_low_user_id = p.low AND d.dm_high_user_id = p.high)
+        """;
+
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private TransactionTemplate transactions;
+    @Autowired private ChatInbox inbox;
+
+    @Value("${forum.ids.node-id:0}")
+    private int nodeId;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        int keyed = jdbc.update(BACKFILL);
+        if (keyed > 0) {
+            log.info("Keyed {} existing two-person chats by participant pair", keyed);
+        }
+    }
+
+    /** The chat between the two users, if they have one. */
+    public Optional<Long> find(long user1, long user2) {
+        Pair pair = Pair.of(user1, user2);
+        return jdbc.query(FIND, (rs, i) -> rs.getLong(1), pair.low(), pair.high()).stream().findFirst();
+    }
+
+    /** The chat between the two users, created (titled {@code title}) if they have none. */
+    public long findOrCreate(long user1, long user2, String title) {
+        Pair pair = Pair.of(user1, user2);
+        return transactions.execute(status -> {
+            long id = Snowflake.forNode(nodeId).nextId();
+            if (jdbc.update(CREATE, id, title, pair.low(), pair.high()) == 0) {
+                return jdbc.queryForObject(FIND, Long.class, pair.low(), pair.high());
+            }
+            jdbc.update(ADD_PARTICIPANTS, id, pair.low(), id, pair.high());
+            inbox.joined(id, List.of(pair.low(), pair.high()));
+            return id;
+        });
+    }
+}
@@ -11,11 +11,12 @@ import jakarta.persistence.ManyToMany;
 import ncsu.Forum_Backend_User.User;
 import ncsu.Forum_Backend_User.UserRepository;
 
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/messages")
@@ -25,9 +26,16 @@ public class DirectMessageController {
     @Autowired
     private DirectMessageRepository messageRepo;
     @Autowired
-    private GroupMessageRepository groupMessageRepo;
-    @Autowired
     private UserRepository userRepo;
+    @Autowired
+    private ChatInbox inbox;
+    @Autowired
+    private ChatSendPipeline sendPipeline;
+    @Autowired
+    private DirectChats directChats;
+
+    private static final int DEFAULT_INBOX_SIZE = 30;
+    private static final int MAX_INBOX_SIZE = 100;
 
 //    @GetMapping("{User}")
 //    public List<GroupChat> getGroupChatForUser(@PathVariable User user) {
@@ -37,11 +45,14 @@ public class DirectMessageController {
 //        return messageRepo.findDistinctByParticipantsContainingOrderByLastMessage_TimestampDesc(user);
 //    }
 
+    // Starts a conversation with its first message, sent like any other
+    // (see GroupMessageController.sendGroupMessage); the body is the chat.
     @PostMapping("/create/{userId}")
-    public ResponseEntity<?> addGroupChat(@RequestBody GroupChatRequest groupChatRequest, @PathVariable Long userId) {
+    public CompletableFuture<ResponseEntity<?>> addGroupChat(@RequestBody GroupChatRequest groupChatRequest,
+                                                             @PathVariable Long userId) {
         Optional<User> userOpt = userRepo.findById(userId);
         if(userOpt.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("User not found");
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("User not found"));
         }
 
         User user = userOpt.get();
@@ -57,20 +68,27 @@ public class DirectMessageController {
         }
         participants.add(user); // Include creator by default
 
-        newGroup.setParticipants(participants);
-        GroupChat updatedGroup = messageRepo.save(newGroup);
-
-        GroupMessage newMessage = new GroupMessage();
-        newMessage.setContent(groupChatRequest.getContent());
-        newMessage.setGroup(updatedGroup);
-        newMessage.setSender(user);
-        newMessage.setTimestamp(LocalDateTime.now());
-
-        GroupMessage updatedMessage = groupMessageRepo.save(newMessage);
-        updatedGroup.setLastMessage(updatedMessage);
-        messageRepo.save(updatedGroup);
+        GroupChat updatedGroup;
+        if (participants.size() == 2) {
+            // two people share one conversation; starting it again just adds a message to it
+            User other = participants.stream().filter(p -> !p.getId().equals(userId)).findFirst().orElseThrow();
+            long groupId = directChats.findOrCreate(userId, other.getId(), groupChatRequest.getGroupTitle());
+            updatedGroup = messageRepo.findById(groupId).orElseThrow();
+        } else {
+            newGroup.setParticipants(participants);
+            updatedGroup = messageRepo.save(newGroup);
+            inbox.joined(updatedGroup.getId(), participants.stream().map(User::getId).toList());
+        }
 
-        return ResponseEntity.ok(updatedGroup);
+        // the pipeline moves last_message_id and the inbox only forward, so a
+        // message sent to an existing chat meanwhile is never overwritten
+        return sendPipeline.send(updatedGroup.getId(), userId, user.getUnityId(), user.getDisplayName(),
+                        groupChatRequest.getContent())
+                .<ResponseEntity<?>>thenApply(message -> ResponseEntity.ok(updatedGroup))
+                .exceptionally(e -> e instanceof RejectedExecutionException
+                        || e.getCause() instanceof RejectedExecutionException
+                        ? ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build()
+                        : ResponseEntity.internalServerError().build());
     }
 
     @PostMapping("/{userId}")
@@ -78,18 +96,36 @@ public class DirectMessageController {
         try {
             User user = userRepo.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
             GroupChat groupChat = messageRepo.findById(groupId).orElseThrow(() -> new RuntimeException("Group not found"));
-            groupChat.getParticipants().add(user);
+            if (groupChat.getParticipants().add(user)) {
+                groupChat.clearDirectPair();
+            }
+            messageRepo.save(groupChat);
+            inbox.joined(groupId, List.of(userId));
             return ResponseEntity.ok(groupChat);
         } catch(Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error while adding participant: " + e.getMessage());
         }
     }
+    // GET the user's inbox: one row per conversation, most recent first, with
+    // a participant preview, the last message and the user's unread count.
+    // X-Next-Cursor is the before= value for older conversations.
     @GetMapping("/direct-message/{userId}")
-    public ResponseEntity<List<GroupChat>> getRecentConversations(@PathVariable Long userId) {
-        List<GroupChat> convos = messageRepo
-            .findByParticipants_IdOrderByLastMessage_TimestampDesc(userId);
-        return ResponseEntity.ok(convos);
+    public ResponseEntity<List<ChatInbox.Entry>> getRecentConversations(
+            @PathVariable Long userId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Integer limit) {
+        int size = limit == null || limit <= 0 ? DEFAULT_INBOX_SIZE : Math.min(limit, MAX_INBOX_SIZE);
+        List<ChatInbox.Entry> rows = inbox.inbox(userId, before == null ? Long.MAX_VALUE : before, size + 1);
+        if (rows.size() <= size) {
+            return ResponseEntity.ok(rows);
+        }
+        List<ChatInbox.Entry> page = rows.subList(0, size);
+        Long next = page.get(size - 1).lastMessageId();
+        // conversations without any message sort last; nothing comes after them
+        return next == null ? ResponseEntity.ok(page) : ResponseEntity.ok()
+                .header(MessageController.NEXT_CURSOR_HEADER, Long.toString(next))
+                .body(page);
     }
 
 
@@ -13,7 +13,5 @@ public interface DirectMessageRepository extends JpaRepository<GroupChat, Long>
 
     List<GroupChat> findByGroupTitle(String groupTitle);
 
-    List<GroupChat> findByParticipants_IdOrderByLastMessage_TimestampDesc(Long userId);
-
 }
 
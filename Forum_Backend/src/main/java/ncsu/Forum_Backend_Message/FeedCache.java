@@ -0,0 +1,332 @@
+package ncsu.Forum_Backend_Message;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import ncsu.Config.EventBus;
+import ncsu.Forum_Backend_Classes.Classes;
+import ncsu.Forum_Backend_Department.Department;
+import ncsu.Forum_Backend_Professor.Professor;
+
+/**
+ * First-page cache for post feeds, keyed by feed (department, class,
+ * professor, type or general board, plus sort and page size). Only page one
+ * is cached; later pages are cheap keyset scans and rarely shared.
+ *
+ * Bounded by an estimate of retained bytes (forum.feed-cache.max-bytes) and
+ * evicted least-recently-used. Callers always get copies, so overlaying votes
+ * never touches a cached row.
+ *
+ * Invalidation is driven by the write paths in MessageController:
+ * - a new post drops the feeds whose filters it matches;
+ * - an edit or delete drops the feeds that contain the post, plus the feeds
+ *   its filters match; replies that MessagePurger hides or removes later drop
+ *   the feeds that contain them;
+ * - a vote patches the counts of the post in NEW feeds, and drops TOP feeds
+ *   that contain it or that it could now enter;
+ * - HOT feeds are dropped whenever PostRanking rescores.
+ * Each of these goes out on the EventBus and is applied by every instance,
+ * so a write on one instance clears the feeds it made stale on all of them.
+ * A load that overlaps an invalidation is served but not cached, so a stale
+ * read cannot be stored after the write that made it stale.
+ *
+ * Every stored or patched entry gets a fresh version number, which
+ * MessageController uses as the ETag of the page.
+ */
+@Component
+public class FeedCache {
+
+    public record FeedKey(Long departmentId, Long classId, Long professorId, Message.MessageType type,
+                          boolean general, FeedSort sort, int size) {
+    }
+
+    /** A first page and the version of the entry it came from; 0 if it was not cached. */
+    public record Page(List<PostSummary> rows, long version) {
+    }
+
+    // EventBus topics, one per kind of invalidation
+    public static final String SCOPE_TOPIC = "feed_scope";
+    public static final String POSTS_TOPIC = "feed_posts";
+    public static final String SORT_TOPIC = "feed_sort";
+    public static final String VOTE_TOPIC = "feed_vote";
+
+    record Scope(Long departmentId, Long classId, Long professorId, Message.MessageType type) {
+    }
+
+    record Vote(long postId, int likeCount, int dislikeCount) {
+    }
+
+    // Rough per-row and per-entry overheads for the size estimate
+    private static final long ROW_BYTES = 160;
+    private static final long ENTRY_BYTES = 200;
+
+    @Autowired private EventBus bus;
+
+    @Value("${forum.feed-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${forum.feed-cache.max-bytes:16777216}")
+    private long maxBytes;
+
+    // Access-ordered for LRU; everything below is guarded by `this`
+    private final LinkedHashMap<FeedKey, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+    private long generation;
+    private long lastVersion;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    void subscribe() {
+        bus.subscribe(SCOPE_TOPIC, Scope.class, this::dropScope);
+        bus.subscribe(POSTS_TOPIC, long[].class, this::dropPosts);
+        bus.subscribe(SORT_TOPIC, FeedSort.class, this::dropSort);
+        bus.subscribe(VOTE_TOPIC, Vote.class, this::applyVote);
+        bus.subscribe(EventBus.RESYNC, EventBus.Resync.class, resync -> clear());
+    }
+
+    /** The cached first page for {@code key}, or the loader's result (cached for next time). */
+    public Page get(FeedKey key, Supplier<List<PostSummary>> loader) {
+        if (!enabled) {
+            return new Page(loader.get(), 0);
+        }
+        long seen;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits.incrementAndGet();
+                return new Page(copy(entry.rows), entry.version);
+            }
+            seen = generation;
+        }
+        misses.incrementAndGet();
+        List<PostSummary> rows = loader.get();
+        Entry entry = new Entry(copy(rows));
+        synchronized (this) {
+            if (generation == seen && entry.bytes <= maxBytes) {
+                entry.version = ++lastVersion;
+                Entry old = entries.put(key, entry);
+                bytes += entry.bytes - (old == null ? 0 : old.bytes);
+                evictLocked();
+                return new Page(rows, entry.version);
+            }
+        }
+        return new Page(rows, 0);
+    }
+
+    /** The version of the cached entry for {@code key}, or 0 if there is none. */
+    public synchronized long version(FeedKey key) {
+        Entry entry = enabled ? entries.get(key) : null;
+        return entry == null ? 0 : entry.version;
+    }
+
+    /** Drops every feed a post with these filters shows up in. */
+    public void invalidateScope(Message message) {
+        Department department = message.getDepartment();
+        Classes clazz = message.getClazz();
+        Professor professor = message.getProfessor();
+        invalidateScope(department == null ? null : department.getId(), clazz == null ? null : clazz.getId(),
+                professor == null ? null : professor.getId(), message.getType());
+    }
+
+    public void invalidateScope(Long departmentId, Long classId, Long professorId, Message.MessageType type) {
+        bus.publish(SCOPE_TOPIC, new Scope(departmentId, classId, professorId, type));
+    }
+
+    /** Drops every cached feed that contains the post. */
+    public void invalidatePost(long postId) {
+        bus.publish(POSTS_TOPIC, new long[] {postId});
+    }
+
+    /** Drops every cached feed that contains any of the posts. */
+    public void invalidatePosts(Collection<Long> postIds) {
+        if (!postIds.isEmpty()) {
+            bus.publish(POSTS_TOPIC, postIds.stream().mapToLong(Long::longValue).toArray());
+        }
+    }
+
+    /** Drops every cached feed with the given sort. */
+    public void invalidateSort(FeedSort sort) {
+        bus.publish(SORT_TOPIC, sort);
+    }
+
+    /** Applies new tallies for a post that was just voted on. */
+    public void onVote(long postId, int likeCount, int dislikeCount) {
+        bus.publish(VOTE_TOPIC, new Vote(postId, likeCount, dislikeCount));
+    }
+
+    private synchronized void dropScope(Scope scope) {
+        removeIf(key -> inScope(key, scope.departmentId(), scope.classId(), scope.professorId(), scope.type()),
+                null);
+    }
+
+    private synchronized void dropPosts(long[] postIds) {
+        if (postIds.length == 1) {
+            removeIf(key -> false, postIds[0]);
+            return;
+        }
+        Set<Long> ids = new HashSet<>();
+        for (long id : postIds) {
+            ids.add(id);
+        }
+        for (Iterator<Map.Entry<FeedKey, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<FeedKey, Entry> e = it.next();
+            if (!Collections.disjoint(e.getValue().ids, ids)) {
+                bytes -= e.getValue().bytes;
+                it.remove();
+                invalidations.incrementAndGet();
+            }
+        }
+        generation++;
+    }
+
+    // Invalidations may have been missed; nothing cached can be trusted
+    private synchronized void clear() {
+        invalidations.addAndGet(entries.size());
+        entries.clear();
+        bytes = 0;
+        generation++;
+    }
+
+    private synchronized void dropSort(FeedSort sort) {
+        removeIf(key -> key.sort() == sort, null);
+    }
+
+    private synchronized void applyVote(Vote vote) {
+        long postId = vote.postId();
+        int likeCount = vote.likeCount();
+        int dislikeCount = vote.dislikeCount();
+        int score = likeCount - dislikeCount;
+        for (Iterator<Map.Entry<FeedKey, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<FeedKey, Entry> e = it.next();
+            Entry entry = e.getValue();
+            FeedSort sort = e.getKey().sort();
+            boolean contains = entry.ids.contains(postId);
+            if (sort == FeedSort.NEW && contains) {
+                // order is by time, so only the counts on the row change
+                for (PostSummary row : entry.rows) {
+                    if (row.getId() == postId) {
+                        row.overlayVotes(likeCount, dislikeCount);
+                    }
+                }
+                entry.version = ++lastVersion;
+            } else if (sort == FeedSort.TOP && (contains || score >= entry.minScore)) {
+                bytes -= entry.bytes;
+                it.remove();
+                invalidations.incrementAndGet();
+            }
+        }
+        // a load in flight may have read the old counts
+        generation++;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long h = hits.get();
+        long m = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("bytes", bytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRate", h + m == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    private void removeIf(Predicate<FeedKey> keyMatches, Long postId) {
+        for (Iterator<Map.Entry<FeedKey, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<FeedKey, Entry> e = it.next();
+            if (keyMatches.test(e.getKey()) || (postId != null && e.getValue().ids.contains(postId))) {
+                bytes -= e.getValue().bytes;
+                it.remove();
+                invalidations.incrementAndGet();
+            }
+        }
+        // even with nothing cached, a load in flight may be stale now
+        generation++;
+    }
+
+    private void evictLocked() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= it.next().bytes;
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    // Mirrors the WHERE clauses of the MessageRepository feed queries
+    private static boolean inScope(FeedKey key, Long departmentId, Long classId, Long professorId,
+                                   Message.MessageType type) {
+        if (key.departmentId() == null) {
+            return true;
+        }
+        if (!key.departmentId().equals(departmentId)) {
+            return false;
+        }
+        if (key.general()) {
+            return classId == null && professorId == null;
+        }
+        return (key.classId() == null || key.classId().equals(classId))
+                && (key.professorId() == null || key.professorId().equals(professorId))
+                && (key.type() == null || key.type() == type);
+    }
+
+    private static List<PostSummary> copy(List<PostSummary> rows) {
+        List<PostSummary> copies = new ArrayList<>(rows.size());
+        for (PostSummary row : rows) {
+            copies.add(new PostSummary(row));
+        }
+        return copies;
+    }
+
+    private static final class Entry {
+        final List<PostSummary> rows;
+        final Set<Long> ids = new HashSet<>();
+        final long bytes;
+        final int minScore;
+        long version;
+
+        Entry(List<PostSummary> rows) {
+            this.rows = rows;
+            long size = ENTRY_BYTES;
+            int min = Integer.MAX_VALUE;
+            for (PostSummary row : rows) {
+                ids.add(row.getId());
+                size += ROW_BYTES + 2L * (length(row.getTitle()) + length(row.getSnippet())
+                        + length(row.getSenderUnityId()) + length(row.getSenderDisplayName())
+                        + length(row.getSenderPictureUrl())
+                        + length(row.getDepartmentName()) + length(row.getClassName())
+                        + length(row.getProfessorName()));
+                min = Math.min(min, row.getLikes());
+            }
+            this.bytes = size;
+            this.minScore = min;
+        }
+
+        private static int length(String s) {
+            return Objects.requireNonNullElse(s, "").length();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ncsu.Forum_Backend_Message;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position in a post feed: the (timestamp, id) of the last post the
+ * client has already seen. Clients get it back as an opaque token and hand it
+ * to the next request, so every page is an index range scan that starts where
+ * the previous one stopped instead of an OFFSET over everything before it.
+ */
+public record FeedCursor(LocalDateTime timestamp, long id) {
+
+    // Sorts after every real post, so page one uses the same query as page N
+    public static final FeedCursor FIRST = new FeedCursor(LocalDateTime.of(9999, 12, 31, 23, 59), Long.MAX_VALUE);
+
+    public static FeedCursor after(PostSummary last) {
+        return new FeedCursor(last.getTimestamp(), last.getId());
+    }
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses a token produced by {@link #encode()}. A null or blank token means
+     * "start from the top".
+     */
+    public static FeedCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            if (sep < 0) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new FeedCursor(LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+}
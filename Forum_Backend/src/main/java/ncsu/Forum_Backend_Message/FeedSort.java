@@ -0,0 +1,19 @@
+package ncsu.Forum_Backend_Message;
+
+import java.util.Locale;
+
+/**
+ * Feed orderings. NEW pages by (timestamp, id) with a FeedCursor; HOT and TOP
+ * page by the precomputed hot_score / top_score columns with a RankCursor.
+ */
+public enum FeedSort {
+    NEW, HOT, TOP;
+
+    // null or blank means NEW; anything unknown is rejected
+    public static FeedSort parse(String value) {
+        if (value == null || value.isBlank()) {
+            return NEW;
+        }
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
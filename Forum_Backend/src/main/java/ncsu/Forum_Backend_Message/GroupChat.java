@@ -9,19 +9,24 @@ import com.fasterxml.jackson.annotation.JsonManagedReference;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import ncsu.Config.SnowflakeId;
 import ncsu.Forum_Backend_User.User;
 @Entity
+@Table(uniqueConstraints = {
+    // one conversation per pair of users; null (and so never equal) for group chats
+    @UniqueConstraint(name = "uk_group_chat_direct_pair", columnNames = {"dm_low_user_id", "dm_high_user_id"})
+})
 public class GroupChat {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     @ManyToMany
@@ -30,7 +35,12 @@ public class GroupChat {
     @JsonManagedReference
     private GroupMessage lastMessage;
     private String groupTitle;
-   
+
+    // Set on one-to-one chats only, smaller user id first (see DirectChats)
+    @Column(name = "dm_low_user_id")
+    private Long directLowUserId;
+    @Column(name = "dm_high_user_id")
+    private Long directHighUserId;
 
 
 
@@ -63,6 +73,21 @@ public class GroupChat {
 	}
 
 
+	public Long getDirectLowUserId() {
+		return directLowUserId;
+	}
+
+	public Long getDirectHighUserId() {
+		return directHighUserId;
+	}
+
+	// A one-to-one chat that gains a third participant is a group chat from then on
+	public void clearDirectPair() {
+		this.directLowUserId = null;
+		this.directHighUserId = null;
+	}
+
+
 	public GroupChat(Long id, Set<User> participants, LocalDateTime lastUpdated, GroupMessage lastMessage,
 			String groupTitle) {
 		super();
@@ -0,0 +1,285 @@
+package ncsu.Forum_Backend_Message;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pushes new group chat messages to open Server-Sent Event streams, so chat
+ * clients hold an idle connection instead of polling the whole history.
+ *
+ * Every stream has a bounded send queue (forum.chat.send-buffer) drained by a
+ * small shared pool of sender threads; publishing never blocks on a socket.
+ * A stream whose queue is full is a slow consumer and is closed. The browser's
+ * EventSource then reconnects with Last-Event-ID, and the stream replays what
+ * was missed from the database before going live again. More than
+ * forum.chat.replay-limit missed messages, or missed messages that were
+ * archived since, are not replayed; the client gets a "reset" event and
+ * reloads the history instead. Streams also carry
+ * "typing" events from ChatPresence.
+ *
+ * Streams never keep a database connection: the replay is a plain JDBC call
+ * that returns its connection straight away, and a replay that
+ * ChatHistoryCache still holds needs no database at all. Who may open a
+ * stream is up to the caller (ChatInbox.isMember, the same check as sends).
+ */
+@Component
+public class GroupChatHub {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupChatHub.class);
+
+    private static final String MISSED = """
+        SELECT m.id, m.group_id, u.id AS sender_id, u.unity_id, u.display_name, m.content, m.timestamp
+        FROM group_message m
+        LEFT JOIN app_user u ON u.id = m.sender_id
+        WHERE m.group_id = ? AND m.id > ?
+        ORDER BY m.id
+        LIMIT ?
+        """;
+
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private ChatHistoryCache history;
+    @Autowired private ChatArchive archive;
+
+    @Value("${forum.chat.send-buffer:256}")
+    private int sendBuffer;
+
+    @Value("${forum.chat.replay-limit:500}")
+    private int replayLimit;
+
+    @Value("${forum.chat.stream-timeout-ms:1800000}")
+    private long streamTimeout;
+
+    @Value("${forum.chat.sender-threads:4}")
+    private int senderThreads;
+
+    private final ConcurrentHashMap<Long, Set<Stream>> groups = new ConcurrentHashMap<>();
+    private ExecutorService senders;
+
+    @PostConstruct
+    void init() {
+        senders = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread t = new Thread(r, "chat-sender");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        senders.shutdownNow();
+        groups.values().forEach(streams -> streams.forEach(stream -> stream.emitter.complete()));
+    }
+
+    /**
+     * Opens a stream of the group's new messages. With {@code lastSeenId} it
+     * first replays everything sent after that message.
+     */
+    public SseEmitter subscribe(long groupId, Long lastSeenId) {
+        Stream stream = new Stream(groupId, new SseEmitter(streamTimeout));
+        stream.emitter.onCompletion(stream::finished);
+        stream.emitter.onTimeout(stream::finished);
+        stream.emitter.onError(e -> stream.finished());
+        // Live messages queue up from here on; anything committed before is in the replay
+        groups.computeIfAbsent(groupId, id -> ConcurrentHashMap.newKeySet()).add(stream);
+        try {
+            if (lastSeenId != null) {
+                stream.replay(missed(groupId, lastSeenId));
+            }
+        } catch (IOException | RuntimeException e) {
+            stream.close();
+        }
+        stream.release();
+        return stream.emitter;
+    }
+
+    // Up to one more than the replay limit, so the stream can tell it is over;
+    // null when some of it is archived already
+    private List<ChatMessage> missed(long groupId, long lastSeenId) {
+        if (archive.lastArchivedId(groupId) > lastSeenId) {
+            return null;
+        }
+        List<ChatMessage> missed = history.after(groupId, lastSeenId, replayLimit + 1);
+        if (missed != null) {
+            return missed;
+        }
+        return jdbc.query(MISSED, (rs, i) -> new ChatMessage(rs.getLong("id"), rs.getLong("group_id"),
+                (Long) rs.getObject("sender_id"), rs.getString("unity_id"), rs.getString("display_name"),
+                rs.getString("content"), rs.getObject("timestamp", LocalDateTime.class)),
+                groupId, lastSeenId, replayLimit + 1);
+    }
+
+    /** Queues a newly saved message for every open stream of its group. */
+    public void publish(ChatMessage message) {
+        Set<Stream> streams = groups.get(message.groupId());
+        if (streams != null) {
+            streams.forEach(stream -> stream.offer(message));
+        }
+    }
+
+    // SSE comment so proxies and load balancers keep idle streams open
+    @Scheduled(fixedDelayString = "${forum.chat.heartbeat-ms:25000}")
+    public void heartbeat() {
+        groups.values().forEach(streams -> streams.forEach(Stream::ping));
+    }
+
+    /** Sends the group's current typers to its open streams (see ChatPresence). */
+    public void publishTyping(ChatPresence.Typing typing) {
+        Set<Stream> streams = groups.get(typing.groupId());
+        if (streams != null) {
+            streams.forEach(stream -> stream.offer(typing));
+        }
+    }
+
+    /** Open streams, for monitoring. */
+    public int streams() {
+        return groups.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void remove(Stream stream) {
+        groups.computeIfPresent(stream.groupId, (id, streams) -> {
+            streams.remove(stream);
+            return streams.isEmpty() ? null : streams;
+        });
+    }
+
+    private final class Stream {
+        final long groupId;
+        final SseEmitter emitter;
+        // ChatMessages and ChatPresence.Typing updates, in publish order
+        final ArrayBlockingQueue<Object> queue = new ArrayBlockingQueue<>(sendBuffer);
+        // Held by whoever is writing to the emitter; the subscriber holds it until the replay is out
+        final AtomicBoolean sending = new AtomicBoolean(true);
+        volatile boolean closed;
+        // set once the emitter itself is done (completed, timed out or failed)
+        volatile boolean finished;
+        volatile boolean pingDue;
+        // Replayed ids, kept for the life of the stream: a send can reach the
+        // replay before it is queued here, however late. Not a highest-id mark,
+        // since two instances commit a group's ids out of order; at most
+        // replay-limit ids.
+        Set<Long> replayed = Set.of();
+
+        Stream(long groupId, SseEmitter emitter) {
+            this.groupId = groupId;
+            this.emitter = emitter;
+        }
+
+        void replay(List<ChatMessage> missed) throws IOException {
+            if (missed == null || missed.size() > replayLimit) {
+                emitter.send(SseEmitter.event().name("reset").data(""));
+                return;
+            }
+            Set<Long> ids = new HashSet<>();
+            for (ChatMessage message : missed) {
+                send(message);
+                ids.add(message.id());
+            }
+            replayed = ids;
+        }
+
+        void offer(Object event) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                log.info("Closing slow group chat stream for group {}", groupId);
+                close();
+                return;
+            }
+            schedule();
+        }
+
+        void ping() {
+            pingDue = true;
+            schedule();
+        }
+
+        void finished() {
+            finished = true;
+            closed = true;
+            remove(this);
+        }
+
+        // Closing happens on a sender thread, never under a publisher
+        void close() {
+            closed = true;
+            remove(this);
+            schedule();
+        }
+
+        void release() {
+            sending.set(false);
+            if (closed || pingDue || !queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        void schedule() {
+            if (sending.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RuntimeException e) {
+                    // shutting down
+                    sending.set(false);
+                }
+            }
+        }
+
+        void drain() {
+            try {
+                Object event;
+                while (!closed && (event = queue.poll()) != null) {
+                    if (event instanceof ChatPresence.Typing typing) {
+                        emitter.send(SseEmitter.event().name("typing").data(typing, MediaType.APPLICATION_JSON));
+                    } else if (event instanceof ChatMessage message && !replayed.contains(message.id())) {
+                        send(message);
+                    }
+                }
+                if (!closed && pingDue) {
+                    pingDue = false;
+                    emitter.send(SseEmitter.event().comment("ping"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // client went away
+                closed = true;
+                remove(this);
+            }
+            if (closed) {
+                queue.clear();
+                if (!finished) {
+                    emitter.complete();
+                }
+                return;
+            }
+            release();
+        }
+
+        void send(ChatMessage message) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(Long.toString(message.id()))
+                    .name("message")
+                    .data(message, MediaType.APPLICATION_JSON));
+        }
+    }
+}
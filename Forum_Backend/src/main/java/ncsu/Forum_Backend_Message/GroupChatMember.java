@@ -0,0 +1,91 @@
+package ncsu.Forum_Backend_Message;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * One participant's view of one group chat: the group's latest message and
+ * how much of it this user has read. Denormalized so the inbox is a single
+ * scan of idx_group_chat_member_inbox; ChatInbox keeps it up to date on every
+ * send and read.
+ */
+@Entity
+@Table(name = "group_chat_member", indexes = {
+    @Index(name = "idx_group_chat_member_inbox", columnList = "user_id, last_message_id")
+})
+@IdClass(GroupChatMember.Key.class)
+public class GroupChatMember {
+
+    @Id
+    @Column(name = "group_id")
+    private Long groupId;
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    // Latest message in the group; Snowflake ids sort by send time
+    @Column(name = "last_message_id", nullable = false, columnDefinition = "bigint default 0")
+    private long lastMessageId;
+
+    @Column(name = "last_read_message_id", nullable = false, columnDefinition = "bigint default 0")
+    private long lastReadMessageId;
+
+    @Column(name = "unread_count", nullable = false, columnDefinition = "integer default 0")
+    private int unreadCount;
+
+    public GroupChatMember() {
+    }
+
+    public Long getGroupId() {
+        return groupId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public long getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public long getLastReadMessageId() {
+        return lastReadMessageId;
+    }
+
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+
+    public static class Key implements Serializable {
+        private Long groupId;
+        private Long userId;
+
+        public Key(Long groupId, Long userId) {
+            this.groupId = groupId;
+            this.userId = userId;
+        }
+
+        public Key() {
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return Objects.equals(groupId, other.groupId) && Objects.equals(userId, other.userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(groupId, userId);
+        }
+    }
+}
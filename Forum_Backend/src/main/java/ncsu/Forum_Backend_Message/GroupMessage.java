@@ -5,16 +5,21 @@ import java.time.LocalDateTime;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 
 import jakarta.persistence.*;
+import ncsu.Config.SnowflakeId;
 import ncsu.Forum_Backend_Classes.Classes;
 import ncsu.Forum_Backend_Department.Department;
 import ncsu.Forum_Backend_User.User;
 
 
 @Entity
+@Table(indexes = {
+    // history and stream resume: "this group, after id N"
+    @Index(name = "idx_group_message_group", columnList = "group_id, id")
+})
 public class GroupMessage {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
     @ManyToOne
     @JsonBackReference
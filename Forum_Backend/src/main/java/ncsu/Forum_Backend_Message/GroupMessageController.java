@@ -1,81 +1,166 @@
 package ncsu.Forum_Backend_Message;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
-import ncsu.Forum_Backend_User.User;
-import ncsu.Forum_Backend_User.UserRepository;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ncsu.Config.CatalogResolver;
+import ncsu.Forum_Backend_Attachment.ImageVariants;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/groupchat")
 @CrossOrigin(origins = "http://localhost:5173")
 public class GroupMessageController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private static final String GROUP_TITLE = "SELECT group_title FROM group_chat WHERE id = ?";
+    private static final String PARTICIPANTS = """
+        SELECT u.id, u.unity_id, u.display_name, u.email, u.profile_picture_url
+        FROM group_chat_participants p JOIN app_user u ON u.id = p.participants_id
+        WHERE p.group_chat_id = ?
+        ORDER BY u.display_name, u.id
+        """;
+
+    /** The header of a chat: its title (null when unnamed) and who is in it. */
+    public record GroupInfo(long id, String groupTitle, List<Participant> participants) {}
+
+    public record Participant(long id, String unityId, String displayName, String email, String profilePictureUrl) {}
+
     @Autowired
     private GroupMessageRepository groupMessageRepo;
 
     @Autowired
-    private DirectMessageRepository groupChatRepo;
+    private ChatSendPipeline sendPipeline;
 
     @Autowired
-    private UserRepository userRepo;
+    private CatalogResolver catalog;
 
-    // Get messages in a group chat
+    @Autowired
+    private GroupChatHub chatHub;
+
+    @Autowired
+    private ChatInbox inbox;
+
+    @Autowired
+    private ChatHistoryCache history;
+
+    @Autowired
+    private ChatArchive archive;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    // GET one page of a group chat, oldest first within the page. Without
+    // before it is the latest messages; X-Next-Cursor (absent at the start of
+    // the chat) is the before= value for the page of older ones. Recent pages
+    // come from ChatHistoryCache, and a page reaching back past group_message
+    // continues into ChatArchive.
     @GetMapping("/{groupId}")
-    public ResponseEntity<List<GroupMessageDTO>> getGroupMessages(@PathVariable Long groupId) {
-        List<GroupMessage> entities = groupMessageRepo.findByGroupIdOrderByTimestampAsc(groupId);
-        List<GroupMessageDTO> dtos = entities.stream()
-            .map(GroupMessageDTO::new)
-            .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+    public ResponseEntity<List<ChatMessage>> getGroupMessages(
+            @PathVariable Long groupId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Integer limit) {
+        int size = limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        long beforeId = before == null ? Long.MAX_VALUE : before;
+        List<ChatMessage> cached = history.before(groupId, beforeId, size + 1);
+        List<ChatMessage> rows = new ArrayList<>(cached != null ? cached
+                : groupMessageRepo.findPageBefore(groupId, beforeId, Limit.of(size + 1)));
+        if (rows.size() <= size) {
+            long below = rows.isEmpty() ? beforeId : rows.get(rows.size() - 1).id();
+            rows.addAll(archive.before(groupId, below, size + 1 - rows.size()));
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (rows.size() > size) {
+            rows.remove(size);
+            response.header(MessageController.NEXT_CURSOR_HEADER, Long.toString(rows.get(size - 1).id()));
+        }
+        Collections.reverse(rows);
+        return response.body(rows);
     }
 
-     //Send a message to group chat
+    // GET the chat's title and participants, which message pages do not carry.
+    // Plain JDBC, like the message pages, so no entity graph is loaded.
+    @GetMapping("/{groupId}/info")
+    public ResponseEntity<GroupInfo> getGroupInfo(@PathVariable Long groupId) {
+        List<String> title = jdbc.query(GROUP_TITLE, (rs, i) -> rs.getString(1), groupId);
+        if (title.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        List<Participant> participants = jdbc.query(PARTICIPANTS, (rs, i) -> new Participant(rs.getLong(1),
+                rs.getString(2), rs.getString(3), rs.getString(4),
+                ImageVariants.sized(rs.getString(5), ImageVariants.SMALL)), groupId);
+        return ResponseEntity.ok(new GroupInfo(groupId, title.get(0), participants));
+    }
+
+    // Send a message to group chat. The body is the message with its id;
+    // 200 once it is committed, or 202 when forum.chat.ack=enqueue acks on
+    // queueing. 503 when the send queue is full.
     @PostMapping("/send/{groupId}/{userId}")
-    public GroupMessage sendGroupMessage(
+    public CompletableFuture<ResponseEntity<?>> sendGroupMessage(
             @PathVariable Long groupId,
             @PathVariable Long userId,
             @RequestBody String content) {
-
-        User sender = userRepo.findById(userId).orElseThrow();
-        GroupMessage message = new GroupMessage();
-        GroupChat group = groupChatRepo.findById(groupId).orElseThrow();
-        message.setSender(sender);
-        message.setGroup(group);
-        message.setContent(content);
-        GroupMessage update = groupMessageRepo.save(message);
-        group.setLastMessage(message);
-        groupChatRepo.save(group);
-        return update;
-
+        if (!inbox.isMember(groupId, userId)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.FORBIDDEN).build());
+        }
+        CatalogResolver.UserName sender = catalog.userName(userId);
+        if (sender == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Unknown user " + userId));
+        }
+        HttpStatus status = sendPipeline.ack() == ChatSendPipeline.Ack.ENQUEUE ? HttpStatus.ACCEPTED : HttpStatus.OK;
+        return sendPipeline.send(groupId, userId, sender.unityId(), sender.displayName(), content)
+                .<ResponseEntity<?>>thenApply(message -> ResponseEntity.status(status).body(message))
+                .exceptionally(e -> e instanceof RejectedExecutionException
+                        || e.getCause() instanceof RejectedExecutionException
+                        ? ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build()
+                        : ResponseEntity.internalServerError().build());
     }
 
-    public record GroupMessageRequest(Long senderId, String content) {}
-    public class GroupMessageDTO {
-        private Long id;
-        private GroupChat group;
-        private User sender;
-        private String content;
-        private LocalDateTime timestamp;
-
-        // constructor to map from your entity
-        public GroupMessageDTO(GroupMessage gm) {
-            this.id                  = gm.getId();
-            this.group             = gm.getGroup();
-            this.sender = gm.getSender();
-            this.content             = gm.getContent();
-            this.timestamp           = gm.getTimestamp();
+    // Server-Sent Events stream of new messages in the group, for its
+    // members. Reconnects send Last-Event-ID (or lastSeenId on the first
+    // connect) and get everything sent since before going live.
+    @GetMapping(value = "/stream/{groupId}/{userId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamGroupMessages(
+            @PathVariable Long groupId,
+            @PathVariable Long userId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(required = false) Long lastSeenId) {
+        // the same membership check as sends, so whoever can read a group can post to it
+        if (!inbox.isMember(groupId, userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
+        return ResponseEntity.ok(chatHub.subscribe(groupId, lastEventId != null ? lastEventId : lastSeenId));
+    }
+
+    // GET recent-history cache size, hit/miss and eviction counters
+    @GetMapping("/recent-cache")
+    public ResponseEntity<Map<String, Object>> getRecentCacheStats() {
+        return ResponseEntity.ok(history.stats());
+    }
 
-        // getters (no setters needed if you only read)
-        public Long getId()                      { return id; }
-        public GroupChat getGroup()                 { return group; }
-        public User getSender() {return sender;}
-        public String getContent()               { return content; }
-        public LocalDateTime getTimestamp()      { return timestamp; }
+    // Marks the group read for the user up to messageId, or entirely without it
+    @PostMapping("/{groupId}/read/{userId}")
+    public ResponseEntity<Void> markRead(
+            @PathVariable Long groupId,
+            @PathVariable Long userId,
+            @RequestParam(required = false) Long messageId) {
+        return inbox.read(groupId, userId, messageId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
     }
+
+    public record GroupMessageRequest(Long senderId, String content) {}
 }
@@ -1,10 +1,21 @@
 package ncsu.Forum_Backend_Message;
 
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 
 import java.util.List;
 
 public interface GroupMessageRepository extends JpaRepository<GroupMessage, Long> {
-	List<GroupMessage> findByGroupIdOrderByTimestampAsc(Long groupId);}
+
+    String CHAT_SELECT = "SELECT new ncsu.Forum_Backend_Message.ChatMessage("
+         + "m.id, m.group.id, s.id, s.unityId, s.displayName, m.content, m.timestamp) "
+         + "FROM GroupMessage m LEFT JOIN m.sender s ";
+
+    // Newest first from just below beforeId; one range scan of idx_group_message_group
+    @Query(CHAT_SELECT + "WHERE m.group.id = :groupId AND m.id < :beforeId ORDER BY m.id DESC")
+    List<ChatMessage> findPageBefore(@Param("groupId") Long groupId, @Param("beforeId") Long beforeId, Limit limit);
+}
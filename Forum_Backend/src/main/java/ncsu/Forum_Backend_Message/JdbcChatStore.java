@@ -0,0 +1,46 @@
+package ncsu.Forum_Backend_Message;
+
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Writes a chat batch in one transaction: one batched INSERT for the messages,
+ * then per group one lastMessage UPDATE and one inbox UPDATE (ChatInbox).
+ */
+@Component
+public class JdbcChatStore implements ChatSendPipeline.Store {
+
+    private static final String INSERT =
+        "INSERT INTO group_message (id, group_id, sender_id, content, timestamp) VALUES (?, ?, ?, ?, ?)";
+
+    // Ids only grow, but never move the pointer back if batches overlap a restart
+    private static final String LAST_MESSAGE =
+        "UPDATE group_chat SET last_message_id = ? WHERE id = ? AND (last_message_id IS NULL OR last_message_id < ?)";
+
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private TransactionTemplate transactions;
+    @Autowired private ChatInbox inbox;
+
+    @Override
+    public void write(List<ChatMessage> batch) {
+        Map<Long, List<ChatMessage>> byGroup = batch.stream()
+                .collect(Collectors.groupingBy(ChatMessage::groupId, LinkedHashMap::new, Collectors.toList()));
+        transactions.executeWithoutResult(status -> {
+            jdbc.batchUpdate(INSERT, batch.stream().map(message -> new Object[] {message.id(), message.groupId(),
+                    message.senderId(), message.content(), Timestamp.valueOf(message.timestamp())}).toList());
+            byGroup.forEach((groupId, messages) -> {
+                long last = messages.get(messages.size() - 1).id();
+                jdbc.update(LAST_MESSAGE, last, groupId, last);
+                inbox.sent(groupId, messages);
+            });
+        });
+    }
+}
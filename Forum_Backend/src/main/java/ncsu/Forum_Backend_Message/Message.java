@@ -2,9 +2,7 @@ package ncsu.Forum_Backend_Message;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -13,17 +11,42 @@ import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.SQLRestriction;
+import ncsu.Config.SnowflakeId;
 import ncsu.Forum_Backend_User.User;
 import ncsu.Forum_Backend_Classes.Classes;      // your course entity
 import ncsu.Forum_Backend_Professor.Professor; // assume you have a Professor entity (not shown here)
 import ncsu.Forum_Backend_Department.Department;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+    // keyset feeds: every feed query is "filter columns, then (timestamp, id) descending"
+    @Index(name = "idx_messages_feed", columnList = "timestamp, id"),
+    @Index(name = "idx_messages_dept_feed", columnList = "department_id, timestamp, id"),
+    @Index(name = "idx_messages_dept_class_feed", columnList = "department_id, class_id, timestamp, id"),
+    @Index(name = "idx_messages_dept_prof_feed", columnList = "department_id, professor_id, timestamp, id"),
+    @Index(name = "idx_messages_dept_type_feed", columnList = "department_id, type, timestamp, id"),
+    // sort=hot|top: the same filters, then the precomputed score
+    @Index(name = "idx_messages_dept_hot", columnList = "department_id, hot_score, id"),
+    @Index(name = "idx_messages_dept_top", columnList = "department_id, top_score, id"),
+    @Index(name = "idx_messages_dept_class_hot", columnList = "department_id, class_id, hot_score, id"),
+    @Index(name = "idx_messages_dept_class_top", columnList = "department_id, class_id, top_score, id"),
+    @Index(name = "idx_messages_dept_prof_hot", columnList = "department_id, professor_id, hot_score, id"),
+    @Index(name = "idx_messages_dept_prof_top", columnList = "department_id, professor_id, top_score, id"),
+    // GET /api/posts filters on each of these alone (PostQuery); the parent
+    // index also serves comment counts on list rows and reply lookups
+    @Index(name = "idx_messages_class_feed", columnList = "class_id, timestamp, id"),
+    @Index(name = "idx_messages_prof_feed", columnList = "professor_id, timestamp, id"),
+    @Index(name = "idx_messages_sender_feed", columnList = "sender_id, timestamp, id"),
+    @Index(name = "idx_messages_parent_feed", columnList = "parent_id, timestamp, id")
+})
+// Deleted posts stay as tombstones until MessagePurger removes them; every
+// JPA query, load and collection skips them
+@SQLRestriction("deleted_at IS NULL")
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
-public class Message {
+public class Message implements VoteCounted {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     // who wrote it:
@@ -67,23 +90,34 @@ public class Message {
     @Column(columnDefinition = "TEXT")
     private String body;
     
-    @ElementCollection
-    @CollectionTable(
-      name = "message_likes", 
-      joinColumns = @JoinColumn(name = "message_id")
-    )
-    @Column(name = "unity_id")
-    private Set<String> likedBy;
-    
-    @ElementCollection
-    @CollectionTable(
-      name = "message_dislikes",
-      joinColumns = @JoinColumn(name = "message_id")
-    )
-    @Column(name = "unity_id")
-    private Set<String> dislikedBy;
+    // Denormalized vote tallies. Only MessageVoteRepository writes these, in the
+    // same statement that records the vote, so they are never set from JPA.
+    @Column(name = "like_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "integer default 0")
+    private int likeCount;
+
+    @Column(name = "dislike_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "integer default 0")
+    private int dislikeCount;
+
+    // Ranking keys for sort=hot|top. hot_score is rewritten by PostRanking;
+    // top_score is computed by the database from the counters above.
+    @Column(name = "hot_score", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "double precision default 0")
+    @JsonIgnore
+    private double hotScore;
+
+    @Column(name = "top_score", insertable = false, updatable = false,
+            columnDefinition = "integer generated always as (like_count - dislike_count) stored")
+    @JsonIgnore
+    private int topScore;
     
     private LocalDateTime timestamp;
+
+    // Set only by MessageRepository.tombstone and MessagePurger
+    @Column(name = "deleted_at", insertable = false, updatable = false)
+    @JsonIgnore
+    private LocalDateTime deletedAt;
     
     // If you still want an easy discriminator for UI logic
     public enum MessageType {
@@ -182,6 +216,10 @@ public class Message {
         this.timestamp = timestamp;
     }
 
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
     public MessageType getType() {
         return type;
     }
@@ -217,54 +255,22 @@ public class Message {
     }
     
     public int getLikes() {
-        int likes = (likedBy == null) ? 0 : likedBy.size();
-        int dislikes = (dislikedBy == null) ? 0 : dislikedBy.size();
-        return likes - dislikes;
-    }
-    
-    public Set<String> getLikedBy() {
-        return likedBy;
-    }
-    
-    public void setLikedBy(Set<String> likedBy) {
-        this.likedBy = likedBy;
+        return likeCount - dislikeCount;
     }
     
-    public void addLiked(String unityId) {
-        if (likedBy == null) likedBy = new HashSet<>();
-        if (dislikedBy == null) dislikedBy = new HashSet<>();
-        dislikedBy.remove(unityId);
-        if(!likedBy.contains(unityId)) {
-            likedBy.add(unityId);
-        }
+    public int getLikeCount() {
+        return likeCount;
     }
     
-    public void removeLiked(String unityId) {
-        likedBy.remove(unityId);
-    }
-    public void removeDisliked(String unityId) {
-        dislikedBy.remove(unityId);
+    public int getDislikeCount() {
+        return dislikeCount;
     }
     
-    public void addDislike(String unityId) {
-        if (likedBy == null) likedBy = new HashSet<>();
-        if (dislikedBy == null) dislikedBy = new HashSet<>();
-        likedBy.remove(unityId);
-        if(!dislikedBy.contains(unityId)) {
-            dislikedBy.add(unityId);
-        }
+    // Shows tallies that include votes still sitting in the VoteBuffer; never persisted
+    @Override
+    public void overlayVotes(int likeCount, int dislikeCount) {
+        this.likeCount = likeCount;
+        this.dislikeCount = dislikeCount;
     }
-    public Set<String> getDislikedBy() {
-        if (dislikedBy == null) {
-            return null;
-        }
-        return dislikedBy;
-    }
-
-    // (optional) if you want Jackson to bind it on updates
-    public void setDislikedBy(Set<String> dislikedBy) {
-        this.dislikedBy = dislikedBy;
-    }
-    
     
 }
\ No newline at end of file
@@ -4,11 +4,15 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import ncsu.Forum_Backend_User.User;
 import ncsu.Forum_Backend_User.UserRepository;
@@ -18,6 +22,8 @@ import ncsu.Forum_Backend_Classes.Classes;
 import ncsu.Forum_Backend_Classes.ClassesRepository;
 import ncsu.Forum_Backend_Department.Department;
 import ncsu.Forum_Backend_Department.DepartmentRepository;
+import ncsu.Config.CatalogResolver;
+import ncsu.Config.ResourceVersions;
 
 @RestController
 @RequestMapping("/api/posts")
@@ -29,89 +35,359 @@ public class MessageController {
     @Autowired private DepartmentRepository departmentRepository;
     @Autowired private ProfessorRepository professorRepository;
     @Autowired private ClassesRepository classRepository;
+    @Autowired private VoteBuffer voteBuffer;
+    @Autowired private CommentTreeLoader commentTreeLoader;
+    @Autowired private PostRanking postRanking;
+    @Autowired private PostSearchIndex postSearchIndex;
+    @Autowired private FeedCache feedCache;
+    @Autowired private PostVersions postVersions;
+    @Autowired private PostQuery postQuery;
+    @Autowired private CatalogResolver catalog;
+    @Autowired private ResourceVersions versions;
 
-    // GET all messages
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int DEFAULT_COMMENT_DEPTH = 3;
+    private static final int MAX_COMMENT_DEPTH = 10;
+    private static final int DEFAULT_COMMENT_BREADTH = 5;
+    private static final int MAX_COMMENT_BREADTH = 50;
+
+    // GET one page of the global feed (top-level posts), newest first, as flat
+    // PostSummary rows. The token for the next page comes back in the
+    // X-Next-Cursor header (absent on the last page). Page one carries an ETag
+    // and answers a matching If-None-Match with 304.
+    //
+    // Any of department, course (class id or course code), professor, user
+    // (user id or unity id) or parent narrows it to top-level posts (or that
+    // post's replies) matching all of them, via PostQuery. sort=recent|new,
+    // old, popular|top, trending|hot or unanswered; page is one-based (as on
+    // every paged endpoint here), and recent and unanswered also hand out a
+    // cursor. Posts have no tags, so tag is rejected.
     @GetMapping
-    public List<Message> getAllMessages() {
-        return messageRepository.findAllByOrderByTimestampDesc();
+    public ResponseEntity<List<PostSummary>> getAllMessages(
+            @RequestParam(required = false) Long department,
+            @RequestParam(required = false) String course,
+            @RequestParam(required = false) Long professor,
+            @RequestParam(required = false) String user,
+            @RequestParam(required = false) Long parent,
+            @RequestParam(required = false) String tag,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest request) {
+        FeedCursor after;
+        try {
+            after = FeedCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        int size = pageSize(limit);
+        PostQuery.Filter filter = new PostQuery.Filter(department, longOrNull(course),
+                longOrNull(course) == null ? blankToNull(course) : null, professor, longOrNull(user),
+                longOrNull(user) == null ? blankToNull(user) : null, parent);
+        if (tag != null || !filter.isEmpty() || sort != null || page != null) {
+            if (tag != null || (page != null && page < 1)) {
+                return ResponseEntity.badRequest().build();
+            }
+            return queryPosts(filter, sort, page, cursor == null ? null : after, size);
+        }
+
+        FeedCursor from = after;
+        FeedCache.Page rows = firstPage(cursor, new FeedCache.FeedKey(null, null, null, null, false, FeedSort.NEW, size),
+                () -> messageRepository.findFeedPage(from.timestamp(), from.id(), Limit.of(size + 1)), request);
+        if (rows == null) {
+            return null;
+        }
+        return feedPage(rows, size, last -> FeedCursor.after(last).encode());
     }
-    @PostMapping("/{id}/like")
-    public ResponseEntity<?> likedMessage(
-        @PathVariable long id,
-        @RequestBody VoteRequest req
-    ) {
+
+    private ResponseEntity<List<PostSummary>> queryPosts(PostQuery.Filter filter, String sort, Integer page,
+                                                         FeedCursor after, int size) {
+        PostQuery.Sort order;
         try {
-            Message msg = messageRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Message not found"));
+            order = PostQuery.Sort.parse(sort);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        int offset = page == null ? 0 : offset(page, size);
+        if (order.byTime()) {
+            List<PostSummary> rows = postQuery.find(filter, order, after, offset, size + 1);
+            return feedPage(new FeedCache.Page(rows, 0), size, last -> FeedCursor.after(last).encode());
+        }
+        List<PostSummary> rows = postQuery.find(filter, order, null, offset, size);
+        voteBuffer.overlay(rows);
+        return ResponseEntity.ok(rows);
+    }
+
+    private static Long longOrNull(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
 
-            if (req.getUnityId() == null || req.getUnityId().isEmpty()) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body("Missing unityId in request");
+    // GET one page of a department feed, optionally narrowed to a class,
+    // a professor, a message type, or only the general board. sort=hot|top
+    // (department, class or professor feeds only) pages by the precomputed
+    // ranking scores; the default sort=new pages by time.
+    @GetMapping("/department/{departmentId}")
+    public ResponseEntity<List<PostSummary>> getDepartmentFeed(
+            @PathVariable Long departmentId,
+            @RequestParam(required = false) Long classId,
+            @RequestParam(required = false) Long professorId,
+            @RequestParam(required = false) Message.MessageType type,
+            @RequestParam(defaultValue = "false") boolean general,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest request) {
+        FeedSort order;
+        try {
+            order = FeedSort.parse(sort);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (order != FeedSort.NEW) {
+            if (general || type != null || (classId != null && professorId != null)) {
+                return ResponseEntity.badRequest().build();
             }
+            return getRankedFeed(departmentId, classId, professorId, order, cursor, limit, request);
+        }
 
-            msg.addLiked(req.getUnityId());
-            Message updated = messageRepository.save(msg);
-            return ResponseEntity.ok(updated);
+        FeedCursor after;
+        try {
+            after = FeedCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        int size = pageSize(limit);
+        FeedCursor from = after;
+        FeedCache.Page rows = firstPage(cursor,
+                new FeedCache.FeedKey(departmentId, classId, professorId, type, general, FeedSort.NEW, size),
+                () -> departmentFeedRows(departmentId, classId, professorId, type, general, from, Limit.of(size + 1)),
+                request);
+        if (rows == null) {
+            return null;
+        }
+        return feedPage(rows, size, last -> FeedCursor.after(last).encode());
+    }
 
-        } catch (Exception e) {
-        	 e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error while liking post: " + e.getMessage());
+    private List<PostSummary> departmentFeedRows(Long departmentId, Long classId, Long professorId,
+                                                 Message.MessageType type, boolean general,
+                                                 FeedCursor after, Limit fetch) {
+        LocalDateTime ts = after.timestamp();
+        long id = after.id();
+        if (general) {
+            return messageRepository.findGeneralFeedPage(departmentId, ts, id, fetch);
+        } else if (classId != null && professorId != null) {
+            return messageRepository.findClassProfessorFeedPage(departmentId, classId, professorId, ts, id, fetch);
+        } else if (classId != null) {
+            return messageRepository.findClassFeedPage(departmentId, classId, ts, id, fetch);
+        } else if (professorId != null) {
+            return messageRepository.findProfessorFeedPage(departmentId, professorId, ts, id, fetch);
+        } else if (type != null) {
+            return messageRepository.findTypeFeedPage(departmentId, type, ts, id, fetch);
         }
+        return messageRepository.findDepartmentFeedPage(departmentId, ts, id, fetch);
+    }
+
+    private ResponseEntity<List<PostSummary>> getRankedFeed(Long departmentId, Long classId, Long professorId,
+                                                           FeedSort order, String cursor, Integer limit,
+                                                           WebRequest request) {
+        RankCursor parsed;
+        try {
+            parsed = RankCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        RankCursor after = parsed;
+        int size = pageSize(limit);
+        FeedCache.Page rows = firstPage(cursor,
+                new FeedCache.FeedKey(departmentId, classId, professorId, null, false, order, size),
+                () -> rankedFeedRows(departmentId, classId, professorId, order, after, Limit.of(size + 1)), request);
+        if (rows == null) {
+            return null;
+        }
+        if (order == FeedSort.HOT) {
+            return feedPage(rows, size, last -> new RankCursor(last.getHotScore(), last.getId()).encode());
+        }
+        // getLikes() is still the persisted top_score here; feedPage overlays afterwards
+        return feedPage(rows, size, last -> new RankCursor(last.getLikes(), last.getId()).encode());
     }
-    @PutMapping("/{id}/remove/like")
-    public ResponseEntity<?> removeLiked(@PathVariable Long id, @RequestBody VoteRequest unityId) {
-    	Message msg = messageRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Message not found"));
 
-            if (unityId.getUnityId() == null || unityId.getUnityId().isEmpty()) {
-            	return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body("Missing unityId in request");
+    private List<PostSummary> rankedFeedRows(Long departmentId, Long classId, Long professorId,
+                                             FeedSort order, RankCursor after, Limit fetch) {
+        long id = after.id();
+        if (order == FeedSort.HOT) {
+            double score = after.score();
+            if (classId != null) {
+                return messageRepository.findClassHotPage(departmentId, classId, score, id, fetch);
+            } else if (professorId != null) {
+                return messageRepository.findProfessorHotPage(departmentId, professorId, score, id, fetch);
             }
-            msg.removeLiked(unityId.getUnityId());
-            Message updated = messageRepository.save(msg);
-            return ResponseEntity.ok(updated);
+            return messageRepository.findDepartmentHotPage(departmentId, score, id, fetch);
+        }
+        int score = (int) Math.min(after.score(), Integer.MAX_VALUE);
+        if (classId != null) {
+            return messageRepository.findClassTopPage(departmentId, classId, score, id, fetch);
+        } else if (professorId != null) {
+            return messageRepository.findProfessorTopPage(departmentId, professorId, score, id, fetch);
+        }
+        return messageRepository.findDepartmentTopPage(departmentId, score, id, fetch);
+    }
+
+    // Page one (no cursor) of a feed is served from FeedCache, with the cache
+    // entry's version as its ETag; later pages go to the database. Returns null
+    // once a 304 has been sent.
+    private FeedCache.Page firstPage(String cursor, FeedCache.FeedKey key, Supplier<List<PostSummary>> loader,
+                                     WebRequest request) {
+        if (cursor != null && !cursor.isBlank()) {
+            return new FeedCache.Page(loader.get(), 0);
+        }
+        long version = feedCache.version(key);
+        if (version != 0 && request.checkNotModified(versions.etag("f", version))) {
+            return null;
+        }
+        return feedCache.get(key, loader);
+    }
+
+    // Pages are numbered from 1; callers reject anything lower
+    private static int offset(int page, int size) {
+        return (page - 1) * size;
+    }
+
+    private static int pageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    // Queries fetch one row past the page so we know whether a next page exists.
+    // The cursor is taken before pending votes are overlaid, so it matches the
+    // persisted sort key.
+    private ResponseEntity<List<PostSummary>> feedPage(FeedCache.Page result, int size,
+                                                       Function<PostSummary, String> cursorOf) {
+        List<PostSummary> rows = result.rows();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (result.version() != 0) {
+            response.eTag(versions.etag("f", result.version()));
+        }
+        if (rows.size() <= size) {
+            voteBuffer.overlay(rows);
+            return response.body(rows);
+        }
+        List<PostSummary> page = rows.subList(0, size);
+        String next = cursorOf.apply(page.get(size - 1));
+        voteBuffer.overlay(page);
+        return response
+                .header(NEXT_CURSOR_HEADER, next)
+                .body(page);
+    }
+
+    // GET full-text search over post titles and bodies, best match first,
+    // optionally limited to a department, class or professor; page is
+    // one-based. Served from the in-memory index; 503 while it is still being
+    // built after startup.
+    @GetMapping("/search")
+    public ResponseEntity<List<PostSearchIndex.Hit>> searchPosts(
+            @RequestParam String q,
+            @RequestParam(required = false) Long departmentId,
+            @RequestParam(required = false) Long classId,
+            @RequestParam(required = false) Long professorId,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(required = false) Integer limit) {
+        if (page < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!postSearchIndex.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        int size = pageSize(limit);
+        return ResponseEntity.ok(postSearchIndex.search(q, departmentId, classId, professorId,
+                offset(page, size), size));
+    }
+
+    @PostMapping("/{id}/like")
+    public ResponseEntity<?> likedMessage(
+        @PathVariable long id,
+        @RequestBody VoteRequest req
+    ) {
+        if (req.getUnityId() == null || req.getUnityId().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Missing unityId in request");
+        }
+        return voteBuffer.vote(id, req.getUnityId(), MessageVote.LIKE)
+                .<ResponseEntity<?>>map(tally -> voted(id, tally))
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).body("Message not found"));
+    }
+    @PutMapping("/{id}/remove/like")
+    public ResponseEntity<?> removeLiked(@PathVariable Long id, @RequestBody VoteRequest unityId) {
+        if (unityId.getUnityId() == null || unityId.getUnityId().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Missing unityId in request");
+        }
+        return voteBuffer.retract(id, unityId.getUnityId(), MessageVote.LIKE)
+                .<ResponseEntity<?>>map(tally -> voted(id, tally))
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).body("Message not found"));
     }
     @PutMapping("/{id}/remove/dislike")
     public ResponseEntity<?> removeDisliked(@PathVariable Long id, @RequestBody VoteRequest unityId) {
-    	Message msg = messageRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Message not found"));
-
-            if (unityId.getUnityId() == null || unityId.getUnityId().isEmpty()) {
-            	return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body("Missing unityId in request");
-            }
-            msg.removeDisliked(unityId.getUnityId());
-            Message updated = messageRepository.save(msg);
-            return ResponseEntity.ok(updated);
+        if (unityId.getUnityId() == null || unityId.getUnityId().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Missing unityId in request");
+        }
+        return voteBuffer.retract(id, unityId.getUnityId(), MessageVote.DISLIKE)
+                .<ResponseEntity<?>>map(tally -> voted(id, tally))
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).body("Message not found"));
     }
     @PostMapping("/{id}/dislike")
     public ResponseEntity<?> dislikedMessage(
         @PathVariable long id,
         @RequestBody VoteRequest req
     ) {
-    	try {
-            Message msg = messageRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Message not found"));
-
-            if (req.getUnityId() == null || req.getUnityId().isEmpty()) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body("Missing unityId in request");
-            }
+        if (req.getUnityId() == null || req.getUnityId().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Missing unityId in request");
+        }
+        return voteBuffer.vote(id, req.getUnityId(), MessageVote.DISLIKE)
+                .<ResponseEntity<?>>map(tally -> voted(id, tally))
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).body("Message not found"));
+    }
+    // Cached feed rows and the post's ETag follow the new tallies
+    private ResponseEntity<?> voted(long id, MessageVoteRepository.VoteTally tally) {
+        feedCache.onVote(id, tally.getLikeCount(), tally.getDislikeCount());
+        postVersions.touch(id);
+        return ResponseEntity.ok(tally);
+    }
 
-            msg.addDislike(req.getUnityId());
-            Message updated = messageRepository.save(msg);
-            return ResponseEntity.ok(updated);
+    // GET feed cache size, hit/miss and eviction/invalidation counters
+    @GetMapping("/feed-cache")
+    public ResponseEntity<Map<String, Object>> getFeedCacheStats() {
+        return ResponseEntity.ok(feedCache.stats());
+    }
 
-        } catch (Exception e) {
-        	 e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error while liking post: " + e.getMessage());
-        }
+    // GET the caller's current vote on a post: 1 (like), -1 (dislike) or 0
+    @GetMapping("/{id}/vote/{unityId}")
+    public ResponseEntity<Map<String, Integer>> getVote(@PathVariable Long id, @PathVariable String unityId) {
+        return ResponseEntity.ok(Map.of("vote", voteBuffer.currentVote(id, unityId)));
     }
-    // POST message
+    // POST message. Sender, department, class and professor come from the
+    // CatalogResolver as references, so a new post is one INSERT (a reply
+    // also reads its parent's department). Answers with the new post as a
+    // list row, or 400 naming the reference that does not exist.
     @PostMapping
-    public Message postMessage(@RequestBody MessageRequest messageRequest) {
+    public ResponseEntity<?> postMessage(@RequestBody MessageRequest messageRequest) {
         Message newMsg = new Message();
         
         // Set basic message properties
@@ -120,38 +396,53 @@ public class MessageController {
         newMsg.setTimestamp(LocalDateTime.now());
         
         // Set sender
-        User sender = userRepository.findByUnityId(messageRequest.getSenderId());
-        	newMsg.setSender(sender);
-        
-        
+        CatalogResolver.Ref<User> sender = messageRequest.getSenderId() == null ? null
+                : catalog.user(messageRequest.getSenderId());
+        if (sender == null) {
+            return ResponseEntity.badRequest().body("Sender not found");
+        }
+        newMsg.setSender(sender.reference());
         
         // Optional: Set professor
+        CatalogResolver.Ref<Professor> professor = null;
         if (messageRequest.getProfessorId() != null) {
-            Professor professor = professorRepository.findById(messageRequest.getProfessorId())
-                .orElseThrow(() -> new RuntimeException("Professor not found"));
-            newMsg.setProfessor(professor);
-            
+            professor = catalog.professor(messageRequest.getProfessorId());
+            if (professor == null) {
+                return ResponseEntity.badRequest().body("Professor not found");
+            }
+            newMsg.setProfessor(professor.reference());
         }
         
         // Optional: Set class
+        CatalogResolver.Ref<Classes> clazz = null;
         if (messageRequest.getClassId() != null) {
-            Classes clazz = classRepository.findById(messageRequest.getClassId())
-                .orElseThrow(() -> new RuntimeException("Class not found"));
-            newMsg.setClazz(clazz);
+            clazz = catalog.course(messageRequest.getClassId());
+            if (clazz == null) {
+                return ResponseEntity.badRequest().body("Class not found");
+            }
+            newMsg.setClazz(clazz.reference());
         }
         
-        // Optional: Set parent message for replies
+        // Optional: Set parent message for replies; a reply lives in its parent's department
+        Long departmentId = messageRequest.getDepartmentId();
         if (messageRequest.getParentId() != null) {
-            Message parent = messageRepository.findById(messageRequest.getParentId())
-                .orElseThrow(() -> new RuntimeException("Parent message not found"));
-            newMsg.setParentMessage(parent);
-            newMsg.setDepartment(parent.getDepartment());
-
+            Long parentDepartment = messageRepository.findDepartmentIdById(messageRequest.getParentId()).orElse(null);
+            if (parentDepartment == null) {
+                return ResponseEntity.badRequest().body("Parent message not found");
+            }
+            newMsg.setParentMessage(messageRepository.getReferenceById(messageRequest.getParentId()));
+            departmentId = parentDepartment == 0 ? null : parentDepartment;
+        }
+        else if (departmentId == null) {
+            return ResponseEntity.badRequest().body("Department not found");
         }
-        else {
-        	Department department = departmentRepository.findById(messageRequest.getDepartmentId())
-                    .orElseThrow(() -> new RuntimeException("Department not found"));
-                newMsg.setDepartment(department);
+        CatalogResolver.Ref<Department> department = null;
+        if (departmentId != null) {
+            department = catalog.department(departmentId);
+            if (department == null) {
+                return ResponseEntity.badRequest().body("Department not found");
+            }
+            newMsg.setDepartment(department.reference());
         }
         
         // Determine message type
@@ -163,25 +454,136 @@ public class MessageController {
             newMsg.setType(Message.MessageType.CLASS);
         }
         
-        return messageRepository.save(newMsg);
+        Message saved = messageRepository.save(newMsg);
+        // a new post needs its first hot score; a reply bumps its parent's
+        postRanking.markDirty(saved.getId());
+        if (saved.getParentId() != null) {
+            postRanking.markDirty(saved.getParentId());
+        }
+        if (saved.getParentId() == null) {
+            postSearchIndex.postChanged(saved.getId());
+        }
+        feedCache.invalidateScope(saved);
+        if (saved.getParentId() != null) {
+            feedCache.invalidatePost(saved.getParentId());
+        }
+        postVersions.posted(saved);
+        // built from what we already hold; serializing the entity would load every reference
+        return ResponseEntity.ok(new PostSummary(saved.getId(), saved.getTitle(), saved.getBody(),
+                saved.getTimestamp(), saved.getType(), messageRequest.getSenderId(), sender.name(), null,
+                department == null ? null : department.id(), department == null ? null : department.name(),
+                clazz == null ? null : clazz.id(), clazz == null ? null : clazz.name(),
+                professor == null ? null : professor.id(), professor == null ? null : professor.name(),
+                0, 0, 0, 0));
     }
-    // DELETE message by ID
+    // DELETE message by ID. Only tombstones the post, which hides it (and its
+    // thread) right away; MessagePurger removes the rows in the background.
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteMessage(@PathVariable Long id) {
-        if (!messageRepository.existsById(id)) {
+        List<String> stale = postVersions.chain(id);
+        MessageRepository.Tombstone deleted = messageRepository.tombstone(id).orElse(null);
+        if (deleted == null) {
             return ResponseEntity.notFound().build();
         }
-        messageRepository.deleteById(id);
+        voteBuffer.postDeleted(id);
+        postSearchIndex.postChanged(id);
+        feedCache.invalidateScope(deleted.getDepartmentId(), deleted.getClassId(), deleted.getProfessorId(),
+                deleted.getType());
+        feedCache.invalidatePost(id);
+        if (deleted.getParentId() != null) {
+            // the parent lost a comment
+            feedCache.invalidatePost(deleted.getParentId());
+            postRanking.markDirty(deleted.getParentId());
+        }
+        postVersions.bump(stale);
         return ResponseEntity.ok().build();
     }
 
-    // GET post details by ID
+    // GET post details by ID. The ETag is the version of the post's whole
+    // thread, checked before the post is loaded.
     @GetMapping("/{postId}")
-    public ResponseEntity<Message> getPostDetails(@PathVariable Long postId) {
+    public ResponseEntity<Message> getPostDetails(@PathVariable Long postId, WebRequest request) {
+        String etag = postVersions.etag(postId);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         return messageRepository.findById(postId)
-            .map(ResponseEntity::ok)
+            .map(msg -> {
+                overlayReplies(List.of(msg));
+                return ResponseEntity.ok().eTag(etag).body(msg);
+            })
             .orElse(ResponseEntity.notFound().build());
     }
+
+    private void overlayReplies(List<Message> messages) {
+        voteBuffer.overlay(messages);
+        for (Message message : messages) {
+            overlayReplies(message.getComments());
+        }
+    }
+    // GET a window of a post's comment thread: one page of top-level comments,
+    // each with up to `depth` levels of replies and at most `breadth` replies
+    // per comment. Comments with more replies than shown carry a repliesCursor;
+    // passing it back as `cursor` continues that comment's replies instead. The
+    // cursor for the next page at the requested level is in X-Next-Cursor;
+    // page (one-based) is an alternative to it for top-level comments.
+    @GetMapping("/{postId}/comments")
+    public ResponseEntity<List<CommentNode>> getComments(
+            @PathVariable Long postId,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Integer depth,
+            @RequestParam(required = false) Integer breadth,
+            @RequestParam(required = false) String cursor,
+            WebRequest request) {
+        if (page < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        CommentTreeLoader.Sort order;
+        ReplyCursor from;
+        try {
+            order = CommentTreeLoader.Sort.parse(sort);
+            from = cursor == null || cursor.isBlank()
+                    ? new ReplyCursor(postId, offset(page, pageSize(limit)))
+                    : ReplyCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        String etag = postVersions.etag(from.parentId());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        CommentTreeLoader.CommentPage comments = commentTreeLoader.load(from.parentId(), from.offset(),
+                pageSize(limit), clamp(depth, DEFAULT_COMMENT_DEPTH, MAX_COMMENT_DEPTH),
+                clamp(breadth, DEFAULT_COMMENT_BREADTH, MAX_COMMENT_BREADTH), order);
+        if (comments.comments().isEmpty() && !messageRepository.existsById(from.parentId())) {
+            return ResponseEntity.notFound().build();
+        }
+        overlayThread(comments.comments());
+        if (comments.nextCursor() == null) {
+            return ResponseEntity.ok().eTag(etag).body(comments.comments());
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .header(NEXT_CURSOR_HEADER, comments.nextCursor())
+                .body(comments.comments());
+    }
+
+    private static int clamp(Integer value, int fallback, int max) {
+        if (value == null || value <= 0) {
+            return fallback;
+        }
+        return Math.min(value, max);
+    }
+
+    private void overlayThread(List<CommentNode> nodes) {
+        voteBuffer.overlay(nodes);
+        for (CommentNode node : nodes) {
+            overlayThread(node.getReplies());
+        }
+    }
+
     @PutMapping("/{postId}")
     public ResponseEntity<Message> updatePost(
             @PathVariable("postId") long postId,
@@ -205,6 +607,12 @@ public class MessageController {
                 }
 
                 Message saved = messageRepository.save(existing);
+                if (saved.getParentId() == null) {
+                    postSearchIndex.postChanged(postId);
+                }
+                feedCache.invalidatePost(postId);
+                feedCache.invalidateScope(saved);
+                postVersions.touch(postId);
                 return ResponseEntity.ok(saved);
             })
             .orElseGet(() -> ResponseEntity.notFound().build());
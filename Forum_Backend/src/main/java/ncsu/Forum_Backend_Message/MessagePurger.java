@@ -0,0 +1,124 @@
+package ncsu.Forum_Backend_Message;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Physically removes deleted posts. DELETE /api/posts/{id} only stamps
+ * messages.deleted_at on the one row; this cleans up behind it.
+ *
+ * Each forum.purge.interval-ms it runs up to forum.purge.rounds rounds of two
+ * set-based statements, each capped at forum.purge.batch-size rows:
+ * - tombstone live replies of tombstoned messages, so a deleted thread is
+ *   hidden level by level all the way down;
+ * - delete tombstoned messages with no replies left, together with their
+ *   vote and join-table rows.
+ * Threads therefore go bottom-up without ever loading an entity. Every
+ * statement commits on its own, and the fixed per-tick budget keeps the
+ * purger from competing with request traffic for locks or connections.
+ */
+@Component
+public class MessagePurger {
+
+    private static final Logger log = LoggerFactory.getLogger(MessagePurger.class);
+
+    private static final String ANY_TOMBSTONES =
+        "SELECT EXISTS (SELECT 1 FROM messages WHERE deleted_at IS NOT NULL)";
+
+    // Tombstones first (partial index), then their replies via idx_messages_parent_feed
+    private static final String HIDE_REPLIES = """
+        WITH dead AS MATERIALIZED (
+            SELECT id FROM messages WHERE deleted_at IS NOT NULL
+        )
+        UPDATE messages SET deleted_at = localtimestamp
+        WHERE id IN (SELECT c.id
+                     FROM dead p
+                     JOIN messages c ON c.parent_id = p.id
+                     WHERE c.deleted_at IS NULL
+                     LIMIT ?)
+        RETURNING id, department_id
+        """;
+
+    private static final String DELETE_LEAVES = """
+        WITH doomed AS (
+            SELECT m.id FROM messages m
+            WHERE m.deleted_at IS NOT NULL
+              AND NOT EXISTS (SELECT 1 FROM messages c WHERE c.parent_id = m.id)
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+        ), votes AS (
+            DELETE FROM message_votes v USING doomed d WHERE v.message_id = d.id
+        ), senders AS (
+            DELETE FROM app_user_messages j USING doomed d WHERE j.messages_id = d.id
+        ), professors AS (
+            DELETE FROM professor_messages j USING doomed d WHERE j.messages_id = d.id
+        )
+        DELETE FROM messages m USING doomed d WHERE m.id = d.id
+        RETURNING m.id
+        """;
+
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private FeedCache feedCache;
+    @Autowired private PostVersions postVersions;
+
+    @Value("${forum.purge.batch-size:500}")
+    private int batchSize;
+
+    @Value("${forum.purge.rounds:4}")
+    private int rounds;
+
+    // Keeps "is there anything to purge?" an index probe instead of a table scan
+    @EventListener(ApplicationReadyEvent.class)
+    public void createTombstoneIndex() {
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_messages_tombstones "
+                + "ON messages (deleted_at) WHERE deleted_at IS NOT NULL");
+    }
+
+    @Scheduled(fixedDelayString = "${forum.purge.interval-ms:1000}")
+    public void purge() {
+        if (!Boolean.TRUE.equals(jdbc.queryForObject(ANY_TOMBSTONES, Boolean.class))) {
+            return;
+        }
+        for (int round = 0; round < rounds; round++) {
+            List<Long> hidden = new ArrayList<>();
+            Set<Long> departments = new HashSet<>();
+            List<Long> deleted;
+            try {
+                jdbc.query(HIDE_REPLIES, rs -> {
+                    hidden.add(rs.getLong(1));
+                    long departmentId = rs.getLong(2);
+                    if (!rs.wasNull()) {
+                        departments.add(departmentId);
+                    }
+                }, batchSize);
+                deleted = jdbc.queryForList(DELETE_LEAVES, Long.class, batchSize);
+            } catch (RuntimeException ex) {
+                log.error("Purging deleted posts failed, will retry", ex);
+                return;
+            }
+            if (hidden.isEmpty() && deleted.isEmpty()) {
+                return;
+            }
+            List<Long> gone = new ArrayList<>(hidden);
+            gone.addAll(deleted);
+            // feeds list replies too, and their ETags must not match anymore;
+            // departments list hidden replies of their own
+            feedCache.invalidatePosts(gone);
+            List<String> keys = new ArrayList<>(gone.stream().map(PostVersions::key).toList());
+            departments.forEach(id -> keys.add(PostVersions.departmentKey(id)));
+            postVersions.bump(keys);
+        }
+    }
+}
@@ -1,31 +1,156 @@
 package ncsu.Forum_Backend_Message;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface MessageRepository extends JpaRepository<Message, Long> {
+    // Feed pages are keyset scans: everything strictly older than the cursor
+    // (timestamp, id), newest first. Pass FeedCursor.FIRST for page one.
+
+    // Shared head of every feed query: one flat PostSummary per row, with the
+    // names joined in and the comment count as a correlated subquery, so a page
+    // is a single statement. Argument order must match the PostSummary constructor.
+    String SUMMARY_SELECT = "SELECT new ncsu.Forum_Backend_Message.PostSummary("
+         + "m.id, m.title, substring(m.body, 1, " + (PostSummary.SNIPPET_LENGTH + 1) + "), m.timestamp, m.type, "
+         + "s.unityId, s.displayName, s.profilePictureUrl, d.id, d.name, c.id, c.courseTitle, p.id, p.name, "
+         + "m.likeCount, m.dislikeCount, "
+         + "(SELECT count(r) FROM Message r WHERE r.parentMessage = m), m.hotScore) "
+         + "FROM Message m LEFT JOIN m.sender s LEFT JOIN m.department d "
+         + "LEFT JOIN m.clazz c LEFT JOIN m.professor p ";
+
+    // 1.1 Global feed: top-level posts only, like GET /api/posts with filters
+    @Query(SUMMARY_SELECT
+         + "WHERE m.parentMessage IS NULL AND (m.timestamp, m.id) < (:ts, :id) "
+         + "ORDER BY m.timestamp DESC, m.id DESC")
+    List<PostSummary> findFeedPage(@Param("ts") LocalDateTime ts, @Param("id") Long id, Limit limit);
+
     // 2.1 All messages in a department (any type)
-    List<Message> findByDepartmentIdOrderByTimestampDesc(Long departmentId);
+    @Query(SUMMARY_SELECT
+         + "WHERE m.department.id = :departmentId AND (m.timestamp, m.id) < (:ts, :id) "
+         + "ORDER BY m.timestamp DESC, m.id DESC")
+    List<PostSummary> findDepartmentFeedPage(@Param("departmentId") Long departmentId,
+                                             @Param("ts") LocalDateTime ts, @Param("id") Long id, Limit limit);
 
     // 2.2 All “general” department posts (no class, no professor)
-    List<Message> findByDepartmentIdAndProfessorIsNullAndClazzIsNullOrderByTimestampDesc(Long departmentId);
+    @Query(SUMMARY_SELECT
+         + "WHERE m.department.id = :departmentId AND m.professor IS NULL AND m.clazz IS NULL "
+         + "AND (m.timestamp, m.id) < (:ts, :id) "
+         + "ORDER BY m.timestamp DESC, m.id DESC")
+    List<PostSummary> findGeneralFeedPage(@Param("departmentId") Long departmentId,
+                                          @Param("ts") LocalDateTime ts, @Param("id") Long id, Limit limit);
 
     // 2.3 All class‑specific posts in a department
-    List<Message> findByDepartmentIdAndClazzIdOrderByTimestampDesc(Long departmentId, Long classId);
+    @Query(SUMMARY_SELECT
+         + "WHERE m.department.id = :departmentId AND m.clazz.id = :classId "
+         + "AND (m.timestamp, m.id) < (:ts, :id) "
+         + "ORDER BY m.timestamp DESC, m.id DESC")
+    List<PostSummary> findClassFeedPage(@Param("departmentId") Long departmentId, @Param("classId") Long classId,
+                                        @Param("ts") LocalDateTime ts, @Param("id") Long id, Limit limit);
 
     // 2.4 All professor‑specific posts in a department
-    List<Message> findByDepartmentIdAndProfessorIdOrderByTimestampDesc(Long departmentId, Long professorId);
+    @Query(SUMMARY_SELECT
+         + "WHERE m.department.id = :departmentId AND m.professor.id = :professorId "
+         + "AND (m.timestamp, m.id) < (:ts, :id) "
+         + "ORDER BY m.timestamp DESC, m.id DESC")
+    List<PostSummary> findProfessorFeedPage(@Param("departmentId") Long departmentId, @Param("professorId") Long professorId,
+                                            @Param("ts") LocalDateTime ts, @Param("id") Long id, Limit limit);
 
-    // 2.5 Posts for a given professor + class (e.g. CSC 116 with Dr. Nguyen)
-    List<Message> findByDepartmentIdAndClazzIdAndProfessorIdOrderByTimestampDesc(
-        Long departmentId, Long classId, Long professorId
-    );
+    // 2.5 Posts for a given professor + class (e.g. CSC 116 with Dr. Nguyen)
+    @Query(SUMMARY_SELECT
+         + "WHERE m.department.id = :departmentId AND m.clazz.id = :classId AND m.professor.id = :professorId "
+         + "AND (m.timestamp, m.id) < (:ts, :id) "
+         + "ORDER BY m.timestamp DESC, m.id DESC")
+    List<PostSummary> findClassProfessorFeedPage(@Param("departmentId") Long departmentId, @Param("classId") Long classId,
+                                                 @Param("professorId") Long professorId,
+                                                 @Param("ts") LocalDateTime ts, @Param("id") Long id, Limit limit);
 
     // 2.6 If you want to filter by “type” enum as well:
-    List<Message> findByDepartmentIdAndTypeOrderByTimestampDesc(Long departmentId, Message.MessageType type);
+    @Query(SUMMARY_SELECT
+         + "WHERE m.department.id = :departmentId AND m.type = :type "
+         + "AND (m.timestamp, m.id) < (:ts, :id) "
+         + "ORDER BY m.timestamp DESC, m.id DESC")
+    List<PostSummary> findTypeFeedPage(@Param("departmentId") Long departmentId, @Param("type") Message.MessageType type,
+                                       @Param("ts") LocalDateTime ts, @Param("id") Long id, Limit limit);
+
+    // 3.x Ranked department, class and professor feeds (sort=hot|top). Same
+    // keyset idea, but on (score, id); pass RankCursor.FIRST for page one.
+    @Query(SUMMARY_SELECT
+         + "WHERE m.department.id = :departmentId AND (m.hotScore, m.id) < (:score, :id) "
+         + "ORDER BY m.hotScore DESC, m.id DESC")
+    List<PostSummary> findDepartmentHotPage(@Param("departmentId") Long departmentId,
+                                            @Param("score") double score, @Param("id") Long id, Limit limit);
+
+    @Query(SUMMARY_SELECT
+         + "WHERE m.department.id = :departmentId AND (m.topScore, m.id) < (:score, :id) "
+         + "ORDER BY m.topScore DESC, m.id DESC")
+    List<PostSummary> findDepartmentTopPage(@Param("departmentId") Long departmentId,
+                                            @Param("score") int score, @Param("id") Long id, Limit limit);
+
+    @Query(SUMMARY_SELECT
+         + "WHERE m.department.id = :departmentId AND m.clazz.id = :classId "
+         + "AND (m.hotScore, m.id) < (:score, :id) "
+         + "ORDER BY m.hotScore DESC, m.id DESC")
+    List<PostSummary> findClassHotPage(@Param("departmentId") Long departmentId, @Param("classId") Long classId,
+                                       @Param("score") double score, @Param("id") Long id, Limit limit);
+
+    @Query(SUMMARY_SELECT
+         + "WHERE m.department.id = :departmentId AND m.clazz.id = :classId "
+         + "AND (m.topScore, m.id) < (:score, :id) "
+         + "ORDER BY m.topScore DESC, m.id DESC")
+    List<PostSummary> findClassTopPage(@Param("departmentId") Long departmentId, @Param("classId") Long classId,
+                                       @Param("score") int score, @Param("id") Long id, Limit limit);
+
+    @Query(SUMMARY_SELECT
+         + "WHERE m.department.id = :departmentId AND m.professor.id = :professorId "
+         + "AND (m.hotScore, m.id) < (:score, :id) "
+         + "ORDER BY m.hotScore DESC, m.id DESC")
+    List<PostSummary> findProfessorHotPage(@Param("departmentId") Long departmentId, @Param("professorId") Long professorId,
+                                           @Param("score") double score, @Param("id") Long id, Limit limit);
+
+    @Query(SUMMARY_SELECT
+         + "WHERE m.department.id = :departmentId AND m.professor.id = :professorId "
+         + "AND (m.topScore, m.id) < (:score, :id) "
+         + "ORDER BY m.topScore DESC, m.id DESC")
+    List<PostSummary> findProfessorTopPage(@Param("departmentId") Long departmentId, @Param("professorId") Long professorId,
+                                           @Param("score") int score, @Param("id") Long id, Limit limit);
+
+    // Department of a live post, 0 when it has none; empty if there is no such
+    // post. Replies take their parent's department without loading the parent.
+    @Query("SELECT coalesce(m.department.id, 0) FROM Message m WHERE m.id = :id")
+    Optional<Long> findDepartmentIdById(@Param("id") Long id);
+
+    // Soft delete: stamps the post as deleted (one row, no cascade) and returns
+    // what the caller needs to invalidate caches. Empty if the post does not
+    // exist or is already deleted. MessagePurger removes the rows later.
+    @Transactional
+    @Query(nativeQuery = true, value = """
+        WITH stamped AS (
+            UPDATE messages SET deleted_at = localtimestamp
+            WHERE id = :id AND deleted_at IS NULL
+            RETURNING id, parent_id, department_id, class_id, professor_id, type
+        )
+        SELECT id, parent_id AS parentId, department_id AS departmentId, class_id AS classId,
+               professor_id AS professorId, type
+        FROM stamped
+        """)
+    Optional<Tombstone> tombstone(@Param("id") Long id);
+
+    interface Tombstone {
+        Long getId();
+        Long getParentId();
+        Long getDepartmentId();
+        Long getClassId();
+        Long getProfessorId();
+        Message.MessageType getType();
+    }
 
     // …and any combination you like (e.g. findBySenderId, pagination, etc.)…
     List<Message> findByParentMessageIdOrderByTimestampDesc(Long id);
-
-	List<Message> findAllByOrderByTimestampDesc();
 }
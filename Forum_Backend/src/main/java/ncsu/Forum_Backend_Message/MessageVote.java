@@ -0,0 +1,85 @@
+package ncsu.Forum_Backend_Message;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+/**
+ * One user's vote on one post: +1 for a like, -1 for a dislike. The primary key
+ * (message_id, unity_id) is what lets a vote or a vote switch be applied with a
+ * single INSERT ... ON CONFLICT, see MessageVoteRepository.
+ */
+@Entity
+@Table(name = "message_votes")
+@IdClass(MessageVote.Key.class)
+public class MessageVote {
+
+    public static final short LIKE = 1;
+    public static final short DISLIKE = -1;
+
+    @Id
+    @Column(name = "message_id")
+    private Long messageId;
+
+    @Id
+    @Column(name = "unity_id")
+    private String unityId;
+
+    @Column(nullable = false)
+    private short vote;
+
+    public MessageVote(Long messageId, String unityId, short vote) {
+        this.messageId = messageId;
+        this.unityId = unityId;
+        this.vote = vote;
+    }
+
+    public MessageVote() {
+    }
+
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public String getUnityId() {
+        return unityId;
+    }
+
+    public short getVote() {
+        return vote;
+    }
+
+    public void setVote(short vote) {
+        this.vote = vote;
+    }
+
+    public static class Key implements Serializable {
+        private Long messageId;
+        private String unityId;
+
+        public Key(Long messageId, String unityId) {
+            this.messageId = messageId;
+            this.unityId = unityId;
+        }
+
+        public Key() {
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return Objects.equals(messageId, other.messageId) && Objects.equals(unityId, other.unityId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(messageId, unityId);
+        }
+    }
+}
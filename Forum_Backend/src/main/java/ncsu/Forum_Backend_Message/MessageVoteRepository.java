@@ -0,0 +1,86 @@
+package ncsu.Forum_Backend_Message;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Vote engine. Each write is one statement: the vote row is upserted (or
+ * deleted) and the denormalized like_count / dislike_count on messages is
+ * adjusted by exactly the delta that upsert caused, so concurrent votes never
+ * lose updates and the voter sets are never loaded.
+ *
+ * Both writes return the post's tallies after the change, or nothing if the
+ * post does not exist. Repeating the vote a user already has is a no-op.
+ */
+public interface MessageVoteRepository extends JpaRepository<MessageVote, MessageVote.Key> {
+
+    // The upsert only fires when the stored vote differs; (xmax = 0) tells a
+    // fresh insert (previous vote: none) from a switch (previous vote: -vote).
+    @Transactional
+    @Query(nativeQuery = true, value = """
+        WITH applied AS (
+            INSERT INTO message_votes (message_id, unity_id, vote)
+            SELECT :messageId, :unityId, :vote
+            WHERE EXISTS (SELECT 1 FROM messages WHERE id = :messageId AND deleted_at IS NULL)
+            ON CONFLICT (message_id, unity_id) DO UPDATE SET vote = EXCLUDED.vote
+            WHERE message_votes.vote <> EXCLUDED.vote
+            RETURNING (xmax = 0) AS inserted
+        ), bumped AS (
+            UPDATE messages m SET
+                like_count = m.like_count
+                    + CASE WHEN :vote = 1 THEN 1 WHEN a.inserted THEN 0 ELSE -1 END,
+                dislike_count = m.dislike_count
+                    + CASE WHEN :vote = -1 THEN 1 WHEN a.inserted THEN 0 ELSE -1 END
+            FROM applied a
+            WHERE m.id = :messageId
+            RETURNING m.id, m.like_count, m.dislike_count
+        )
+        SELECT id, like_count AS likeCount, dislike_count AS dislikeCount FROM bumped
+        UNION ALL
+        SELECT id, like_count, dislike_count FROM messages
+        WHERE id = :messageId AND deleted_at IS NULL AND NOT EXISTS (SELECT 1 FROM bumped)
+        """)
+    Optional<VoteTally> applyVote(@Param("messageId") Long messageId, @Param("unityId") String unityId,
+                                  @Param("vote") int vote);
+
+    // Removes the user's vote only if it is the one being retracted
+    @Transactional
+    @Query(nativeQuery = true, value = """
+        WITH removed AS (
+            DELETE FROM message_votes
+            WHERE message_id = :messageId AND unity_id = :unityId AND vote = :vote
+            RETURNING vote
+        ), bumped AS (
+            UPDATE messages m SET
+                like_count = m.like_count - CASE WHEN r.vote = 1 THEN 1 ELSE 0 END,
+                dislike_count = m.dislike_count - CASE WHEN r.vote = -1 THEN 1 ELSE 0 END
+            FROM removed r
+            WHERE m.id = :messageId
+            RETURNING m.id, m.like_count, m.dislike_count
+        )
+        SELECT id, like_count AS likeCount, dislike_count AS dislikeCount FROM bumped
+        UNION ALL
+        SELECT id, like_count, dislike_count FROM messages
+        WHERE id = :messageId AND deleted_at IS NULL AND NOT EXISTS (SELECT 1 FROM bumped)
+        """)
+    Optional<VoteTally> retractVote(@Param("messageId") Long messageId, @Param("unityId") String unityId,
+                                    @Param("vote") int vote);
+
+    @Query("SELECT v.vote FROM MessageVote v WHERE v.messageId = :messageId AND v.unityId = :unityId")
+    Optional<Short> findVote(@Param("messageId") Long messageId, @Param("unityId") String unityId);
+
+    // Tallies after a vote write
+    interface VoteTally {
+        Long getId();
+        int getLikeCount();
+        int getDislikeCount();
+
+        default int getLikes() {
+            return getLikeCount() - getDislikeCount();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package ncsu.Forum_Backend_Message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import ncsu.Forum_Backend_Classes.Classes;
+import ncsu.Forum_Backend_Department.Department;
+import ncsu.Forum_Backend_Professor.Professor;
+import ncsu.Forum_Backend_User.User;
+
+/**
+ * Filtered post listing behind GET /api/posts. The query is built with the
+ * Criteria API and only gets a predicate for each filter that was supplied,
+ * so one code path covers every combination instead of a finder per
+ * combination. Rows are the same flat PostSummary as the feeds, so a page is
+ * one statement.
+ *
+ * Every id filter compares a foreign key column that leads an index ending in
+ * (timestamp, id) (see PostQueryIndexCoverageTest), so any combination starts
+ * from an index and the newest-first order needs no sort.
+ */
+@Component
+public class PostQuery {
+
+    public enum Sort {
+        NEW, OLD, TOP, HOT, UNANSWERED;
+
+        // Also accepts the frontend's names: recent, popular and trending
+        public static Sort parse(String value) {
+            if (value == null || value.isBlank()) {
+                return NEW;
+            }
+            String name = value.trim().toUpperCase(Locale.ROOT);
+            return switch (name) {
+                case "RECENT" -> NEW;
+                case "POPULAR" -> TOP;
+                case "TRENDING" -> HOT;
+                default -> valueOf(name);
+            };
+        }
+
+        /** Sorts that page newest first and so can use a FeedCursor. */
+        public boolean byTime() {
+            return this == NEW || this == UNANSWERED;
+        }
+    }
+
+    /**
+     * Filters of GET /api/posts; null means any. Without a parentId only
+     * top-level posts match, with one only that post's direct replies.
+     */
+    public record Filter(Long departmentId, Long classId, String courseCode, Long professorId,
+                         Long senderId, String senderUnityId, Long parentId) {
+
+        public boolean isEmpty() {
+            return departmentId == null && classId == null && courseCode == null && professorId == null
+                    && senderId == null && senderUnityId == null && parentId == null;
+        }
+    }
+
+    // Associations the filters compare by id, in Filter order
+    static final List<String> FILTERED_ASSOCIATIONS = List.of("department", "clazz", "professor", "sender",
+            "parentMessage");
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * One page of matching posts. {@code after} continues a time-ordered sort
+     * (pass null otherwise); {@code offset} skips rows for the other sorts.
+     */
+    public List<PostSummary> find(Filter filter, Sort sort, FeedCursor after, int offset, int limit) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<PostSummary> query = cb.createQuery(PostSummary.class);
+        Root<Message> m = query.from(Message.class);
+        Join<Message, User> s = m.join("sender", JoinType.LEFT);
+        Join<Message, Department> d = m.join("department", JoinType.LEFT);
+        Join<Message, Classes> c = m.join("clazz", JoinType.LEFT);
+        Join<Message, Professor> p = m.join("professor", JoinType.LEFT);
+
+        // Same columns, in the same order, as MessageRepository.SUMMARY_SELECT
+        query.select(cb.construct(PostSummary.class,
+                m.get("id"), m.get("title"), cb.substring(m.get("body"), 1, PostSummary.SNIPPET_LENGTH + 1),
+                m.get("timestamp"), m.get("type"), s.get("unityId"), s.get("displayName"),
+                s.get("profilePictureUrl"),
+                d.get("id"), d.get("name"), c.get("id"), c.get("courseTitle"), p.get("id"), p.get("name"),
+                m.get("likeCount"), m.get("dislikeCount"), replies(cb, query, m), m.get("hotScore")));
+
+        List<Predicate> where = new ArrayList<>();
+        equalId(cb, m, where, "department", filter.departmentId());
+        equalId(cb, m, where, "clazz", filter.classId());
+        equalId(cb, m, where, "professor", filter.professorId());
+        equalId(cb, m, where, "sender", filter.senderId());
+        if (filter.parentId() != null) {
+            equalId(cb, m, where, "parentMessage", filter.parentId());
+        } else {
+            where.add(cb.isNull(m.get("parentMessage")));
+        }
+        if (filter.courseCode() != null) {
+            where.add(cb.equal(c.get("courseTitle"), filter.courseCode()));
+        }
+        if (filter.senderUnityId() != null) {
+            where.add(cb.equal(s.get("unityId"), filter.senderUnityId()));
+        }
+        if (sort == Sort.UNANSWERED) {
+            Subquery<Long> reply = query.subquery(Long.class);
+            Root<Message> r = reply.from(Message.class);
+            reply.select(r.get("id")).where(cb.equal(r.get("parentMessage"), m));
+            where.add(cb.not(cb.exists(reply)));
+        }
+        if (after != null && sort.byTime()) {
+            // (timestamp, id) < (ts, id); the plain <= gives the index scan its start key
+            where.add(cb.lessThanOrEqualTo(m.get("timestamp"), after.timestamp()));
+            where.add(cb.or(cb.lessThan(m.get("timestamp"), after.timestamp()),
+                    cb.lessThan(m.get("id"), after.id())));
+        }
+        query.where(where.toArray(Predicate[]::new));
+        query.orderBy(order(cb, m, sort));
+
+        return em.createQuery(query)
+                .setFirstResult(after != null && sort.byTime() ? 0 : offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private static Subquery<Long> replies(CriteriaBuilder cb, CriteriaQuery<?> query, Root<Message> m) {
+        Subquery<Long> count = query.subquery(Long.class);
+        Root<Message> r = count.from(Message.class);
+        return count.select(cb.count(r)).where(cb.equal(r.get("parentMessage"), m));
+    }
+
+    private static void equalId(CriteriaBuilder cb, Root<Message> m, List<Predicate> where, String association,
+                                Long id) {
+        if (id != null) {
+            // compares the foreign key column; no join
+            where.add(cb.equal(m.get(association).get("id"), id));
+        }
+    }
+
+    private static List<Order> order(CriteriaBuilder cb, Root<Message> m, Sort sort) {
+        return switch (sort) {
+            case OLD -> List.of(cb.asc(m.get("timestamp")), cb.asc(m.get("id")));
+            case TOP -> List.of(cb.desc(m.get("topScore")), cb.desc(m.get("id")));
+            case HOT -> List.of(cb.desc(m.get("hotScore")), cb.desc(m.get("id")));
+            default -> List.of(cb.desc(m.get("timestamp")), cb.desc(m.get("id")));
+        };
+    }
+}
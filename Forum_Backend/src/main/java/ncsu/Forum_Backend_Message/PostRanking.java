@@ -0,0 +1,106 @@
+package ncsu.Forum_Backend_Message;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Keeps messages.hot_score current so sort=hot is an index scan.
+ *
+ * hot = (net votes + 1 + comment-weight * comments) / (age in hours + 2) ^ gravity,
+ * and 0 once a post is older than the window. top_score is a generated column
+ * (like_count - dislike_count) and needs no upkeep.
+ *
+ * Posts whose votes or comments change are marked dirty and rescored in one
+ * statement every forum.ranking.refresh-interval-ms. Separately, every
+ * forum.ranking.decay-interval-ms all posts inside the window (plus one day, so
+ * posts that just aged out drop to 0) are rescored to apply the time decay.
+ */
+@Component
+public class PostRanking {
+
+    private static final Logger log = LoggerFactory.getLogger(PostRanking.class);
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private FeedCache feedCache;
+
+    @Value("${forum.ranking.gravity:1.8}")
+    private double gravity;
+
+    @Value("${forum.ranking.comment-weight:0.5}")
+    private double commentWeight;
+
+    @Value("${forum.ranking.window-hours:168}")
+    private int windowHours;
+
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private String rescoreByIds;
+    private String rescoreRecent;
+
+    @PostConstruct
+    void init() {
+        // Only config numbers are inlined; ids and times stay bind parameters
+        String hot = String.format(Locale.ROOT, """
+            UPDATE messages m SET hot_score = CASE
+                WHEN m.timestamp < localtimestamp - make_interval(hours => %1$d) THEN 0
+                ELSE (m.like_count - m.dislike_count + 1
+                      + %2$f * (SELECT count(*) FROM messages r WHERE r.parent_id = m.id AND r.deleted_at IS NULL))
+                     / power(greatest(extract(epoch FROM localtimestamp - m.timestamp)::float8, 0) / 3600 + 2, %3$f)
+            END
+            """, windowHours, commentWeight, gravity);
+        rescoreByIds = hot + "WHERE m.id = ANY (?)";
+        rescoreRecent = hot + String.format(Locale.ROOT,
+                "WHERE m.timestamp > localtimestamp - make_interval(hours => %d)", windowHours + 24);
+    }
+
+    /** Queues a post for rescoring after its votes or comments changed. */
+    public void markDirty(long messageId) {
+        dirty.add(messageId);
+    }
+
+    public void markDirty(Collection<Long> messageIds) {
+        dirty.addAll(messageIds);
+    }
+
+    @Scheduled(fixedDelayString = "${forum.ranking.refresh-interval-ms:1000}")
+    public void refreshDirty() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Iterator<Long> it = dirty.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        try {
+            jdbc.update(rescoreByIds, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())));
+            feedCache.invalidateSort(FeedSort.HOT);
+        } catch (RuntimeException ex) {
+            dirty.addAll(ids);
+            log.error("Rescoring {} posts failed, will retry", ids.size(), ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${forum.ranking.decay-interval-ms:300000}")
+    public void decay() {
+        jdbc.update(rescoreRecent);
+        feedCache.invalidateSort(FeedSort.HOT);
+    }
+}
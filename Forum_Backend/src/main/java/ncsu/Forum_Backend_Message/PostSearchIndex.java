@@ -0,0 +1,505 @@
+package ncsu.Forum_Backend_Message;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import ncsu.Config.EventBus;
+
+/**
+ * In-memory inverted index over top-level post titles and bodies, scored with
+ * BM25. Title terms count double. Search never touches the database: each
+ * document keeps its department/class/professor ids, title and timestamp next
+ * to its postings, so filters and result rows come from memory.
+ *
+ * MessageController reports every create, update and delete through
+ * postChanged, which publishes the post id on the EventBus topic
+ * {@value #TOPIC}. Every instance, this one included, reads those rows back
+ * and indexes or drops them, so the index follows writes made anywhere and
+ * an event stays small whatever the size of the post.
+ *
+ * At startup the index is rebuilt on a background thread from a streaming
+ * scan of messages, and again after {@link EventBus#RESYNC} since changes may
+ * have been missed; until a rebuild finishes, isReady() is false. Changes
+ * that land during the scan win over the rows the scan reads.
+ *
+ * Updates and deletes leave the old document as a tombstone in the postings.
+ * Once tombstones reach a quarter of the live documents, the postings are
+ * compacted in place.
+ */
+@Component
+public class PostSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(PostSearchIndex.class);
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int TITLE_WEIGHT = 2;
+    private static final int MAX_TOKEN_LENGTH = 64;
+    private static final int REBUILD_BATCH = 512;
+
+    public static final String TOPIC = "search_posts";
+
+    private static final String COLUMNS = "SELECT id, title, body, timestamp, department_id, class_id, professor_id "
+            + "FROM messages WHERE parent_id IS NULL AND deleted_at IS NULL";
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it",
+            "of", "on", "or", "that", "the", "this", "to", "was", "with");
+
+    /** One search result, built entirely from the index. */
+    public record Hit(long id, String title, LocalDateTime timestamp,
+                      Long departmentId, Long classId, Long professorId, double score) {
+    }
+
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private EventBus bus;
+
+    @Value("${forum.search.rebuild-fetch-size:1000}")
+    private int fetchSize;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All fields below are guarded by lock
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Long, Integer> docByPost = new HashMap<>();
+    // Per-document columns indexed by doc id; length -1 marks a tombstone and
+    // 0 stands for "no department/class/professor"
+    private long[] postIds = new long[1024];
+    private long[] departmentIds = new long[1024];
+    private long[] classIds = new long[1024];
+    private long[] professorIds = new long[1024];
+    private int[] lengths = new int[1024];
+    private String[] titles = new String[1024];
+    private LocalDateTime[] timestamps = new LocalDateTime[1024];
+    private int docCount;
+    private int liveDocs;
+    private int deadDocs;
+    private long totalLength;
+    private boolean building;
+    private final Set<Long> touchedDuringBuild = new HashSet<>();
+
+    private volatile boolean ready;
+    private volatile boolean started;
+
+    // One rebuild at a time; a request while one runs queues at most one more
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(task -> {
+        Thread t = new Thread(task, "post-search-rebuild");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @PostConstruct
+    void subscribe() {
+        bus.subscribe(TOPIC, long[].class, this::reload);
+        // before startup the first build is still to come
+        bus.subscribe(EventBus.RESYNC, EventBus.Resync.class, resync -> {
+            if (started) {
+                requestRebuild();
+            }
+        });
+    }
+
+    /** Re-indexes a post that was created, edited or deleted, on every instance. */
+    public void postChanged(long postId) {
+        bus.publish(TOPIC, new long[] {postId});
+    }
+
+    // Indexes what the rows hold now; a post that is gone, deleted or a reply is
+    // dropped. Serialized so a read of older rows is never applied after a newer one.
+    private synchronized void reload(long[] postIds) {
+        Long[] ids = Arrays.stream(postIds).boxed().toArray(Long[]::new);
+        Set<Long> found = new HashSet<>();
+        jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(COLUMNS + " AND id = ANY (?)");
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            return ps;
+        }, rs -> {
+            found.add(rs.getLong("id"));
+            add(rs.getLong("id"), rs.getString("title"), rs.getString("body"),
+                    rs.getObject("timestamp", LocalDateTime.class), rs.getLong("department_id"),
+                    rs.getLong("class_id"), rs.getLong("professor_id"));
+        });
+        for (long postId : postIds) {
+            if (!found.contains(postId)) {
+                drop(postId);
+            }
+        }
+    }
+
+    void drop(long postId) {
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                touchedDuringBuild.add(postId);
+            }
+            removeLocked(postId);
+            maybeCompactLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Adds a post, or replaces it if it is already indexed
+    void add(long postId, String title, String body, LocalDateTime timestamp,
+             long departmentId, long classId, long professorId) {
+        Map<String, Integer> terms = new HashMap<>();
+        int length = tokenize(title, TITLE_WEIGHT, terms) + tokenize(body, 1, terms);
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                touchedDuringBuild.add(postId);
+            }
+            removeLocked(postId);
+            addLocked(postId, title, timestamp, departmentId, classId, professorId, length, terms);
+            maybeCompactLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ranks posts matching any query term by BM25, best first, skipping
+     * {@code offset} hits. Null filters match everything.
+     */
+    public List<Hit> search(String query, Long departmentId, Long classId, Long professorId, int offset, int limit) {
+        List<String> terms = queryTerms(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        int k = offset + limit;
+        lock.readLock().lock();
+        try {
+            if (liveDocs == 0) {
+                return List.of();
+            }
+            float avgLength = (float) totalLength / liveDocs;
+            float[] scores = new float[docCount];
+            int[] touched = new int[16];
+            int touchedCount = 0;
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                // df counts tombstones until the next compaction, so keep idf positive
+                double idf = Math.max(Math.log(1 + (liveDocs - list.size + 0.5) / (list.size + 0.5)), 1e-6);
+                for (int i = 0; i < list.size; i++) {
+                    int doc = list.docs[i];
+                    int length = lengths[doc];
+                    if (length < 0 || !matches(doc, departmentId, classId, professorId)) {
+                        continue;
+                    }
+                    int tf = list.freqs[i];
+                    float score = (float) (idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / avgLength)));
+                    if (scores[doc] == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = doc;
+                    }
+                    scores[doc] += score;
+                }
+            }
+
+            // keep the k best in a min-heap; ties go to the newer post. Post ids
+            // follow creation order, document numbers do not (edits append, a
+            // rebuild reads the table in no particular order)
+            final float[] s = scores;
+            final long[] ids = postIds;
+            PriorityQueue<Integer> best = new PriorityQueue<>(
+                    (a, b) -> s[a] != s[b] ? Float.compare(s[a], s[b]) : Long.compare(ids[a], ids[b]));
+            for (int i = 0; i < touchedCount; i++) {
+                best.add(touched[i]);
+                if (best.size() > k) {
+                    best.poll();
+                }
+            }
+            List<Hit> hits = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                int doc = best.poll();
+                hits.add(new Hit(postIds[doc], titles[doc], timestamps[doc], orNull(departmentIds[doc]),
+                        orNull(classIds[doc]), orNull(professorIds[doc]), scores[doc]));
+            }
+            Collections.reverse(hits);
+            return offset >= hits.size() ? List.of() : hits.subList(offset, hits.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean matches(int doc, Long departmentId, Long classId, Long professorId) {
+        return (departmentId == null || departmentIds[doc] == departmentId)
+                && (classId == null || classIds[doc] == classId)
+                && (professorId == null || professorIds[doc] == professorId);
+    }
+
+    private static Long orNull(long id) {
+        return id == 0 ? null : id;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        started = true;
+        requestRebuild();
+    }
+
+    private void requestRebuild() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildQueued.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.error("Post search index rebuild failed", e);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    /** Clears the index and reloads every top-level post with one streaming scan. */
+    public void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        ready = false;
+        lock.writeLock().lock();
+        try {
+            building = true;
+            touchedDuringBuild.clear();
+            postings.clear();
+            docByPost.clear();
+            docCount = liveDocs = deadDocs = 0;
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Object[]> batch = new ArrayList<>(REBUILD_BATCH);
+        try {
+            // Postgres only streams with a cursor inside a transaction
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> jdbc.query(con -> {
+                PreparedStatement ps = con.prepareStatement(COLUMNS);
+                ps.setFetchSize(fetchSize);
+                return ps;
+            }, rs -> {
+                Map<String, Integer> terms = new HashMap<>();
+                String title = rs.getString("title");
+                int length = tokenize(title, TITLE_WEIGHT, terms) + tokenize(rs.getString("body"), 1, terms);
+                batch.add(new Object[] {rs.getLong("id"), title, rs.getObject("timestamp", LocalDateTime.class),
+                        rs.getLong("department_id"), rs.getLong("class_id"), rs.getLong("professor_id"),
+                        length, terms});
+                if (batch.size() == REBUILD_BATCH) {
+                    addBatch(batch);
+                }
+            }));
+            addBatch(batch);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                building = false;
+                touchedDuringBuild.clear();
+                log.info("Post search index built: {} posts, {} terms in {} ms",
+                        liveDocs, postings.size(), System.currentTimeMillis() - startedAt);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        ready = true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addBatch(List<Object[]> batch) {
+        lock.writeLock().lock();
+        try {
+            for (Object[] row : batch) {
+                long postId = (Long) row[0];
+                // a create/update/delete during the scan is newer than this row
+                if (touchedDuringBuild.contains(postId)) {
+                    continue;
+                }
+                addLocked(postId, (String) row[1], (LocalDateTime) row[2], (Long) row[3], (Long) row[4],
+                        (Long) row[5], (Integer) row[6], (Map<String, Integer>) row[7]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        batch.clear();
+    }
+
+    private void addLocked(long postId, String title, LocalDateTime timestamp, long departmentId,
+                           long classId, long professorId, int length, Map<String, Integer> terms) {
+        if (docCount == postIds.length) {
+            int size = docCount * 2;
+            postIds = Arrays.copyOf(postIds, size);
+            departmentIds = Arrays.copyOf(departmentIds, size);
+            classIds = Arrays.copyOf(classIds, size);
+            professorIds = Arrays.copyOf(professorIds, size);
+            lengths = Arrays.copyOf(lengths, size);
+            titles = Arrays.copyOf(titles, size);
+            timestamps = Arrays.copyOf(timestamps, size);
+        }
+        int doc = docCount++;
+        postIds[doc] = postId;
+        departmentIds[doc] = departmentId;
+        classIds[doc] = classId;
+        professorIds[doc] = professorId;
+        lengths[doc] = length;
+        titles[doc] = title;
+        timestamps[doc] = timestamp;
+        docByPost.put(postId, doc);
+        liveDocs++;
+        totalLength += length;
+        // doc ids only grow, so every postings list stays sorted
+        terms.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new Postings()).add(doc, tf));
+    }
+
+    private void removeLocked(long postId) {
+        Integer doc = docByPost.remove(postId);
+        if (doc == null) {
+            return;
+        }
+        totalLength -= lengths[doc];
+        lengths[doc] = -1;
+        titles[doc] = null;
+        timestamps[doc] = null;
+        liveDocs--;
+        deadDocs++;
+    }
+
+    private void maybeCompactLocked() {
+        if (deadDocs < 1024 || deadDocs * 4 < liveDocs) {
+            return;
+        }
+        int[] remap = new int[docCount];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (lengths[doc] < 0) {
+                remap[doc] = -1;
+                continue;
+            }
+            remap[doc] = next;
+            postIds[next] = postIds[doc];
+            departmentIds[next] = departmentIds[doc];
+            classIds[next] = classIds[doc];
+            professorIds[next] = professorIds[doc];
+            lengths[next] = lengths[doc];
+            titles[next] = titles[doc];
+            timestamps[next] = timestamps[doc];
+            docByPost.put(postIds[next], next);
+            next++;
+        }
+        Arrays.fill(titles, next, docCount, null);
+        Arrays.fill(timestamps, next, docCount, null);
+        docCount = next;
+        deadDocs = 0;
+        for (Iterator<Postings> it = postings.values().iterator(); it.hasNext(); ) {
+            if (it.next().remap(remap) == 0) {
+                it.remove();
+            }
+        }
+    }
+
+    private static List<String> queryTerms(String query) {
+        Map<String, Integer> terms = new LinkedHashMap<>();
+        tokenize(query, 1, terms);
+        return new ArrayList<>(terms.keySet());
+    }
+
+    // Lower-cased runs of letters and digits, minus stop words and single
+    // letters. Adds `weight` per occurrence to terms and returns the weighted
+    // token count (the document length BM25 normalizes by).
+    private static int tokenize(String text, int weight, Map<String, Integer> terms) {
+        if (text == null) {
+            return 0;
+        }
+        int count = 0;
+        StringBuilder token = new StringBuilder();
+        for (int i = 0, n = text.length(); i <= n; ) {
+            int cp = i < n ? text.codePointAt(i) : ' ';
+            if (Character.isLetterOrDigit(cp)) {
+                if (token.length() < MAX_TOKEN_LENGTH) {
+                    token.appendCodePoint(Character.toLowerCase(cp));
+                }
+            } else if (token.length() > 0) {
+                String term = token.toString();
+                token.setLength(0);
+                if ((term.length() > 1 || Character.isDigit(term.charAt(0))) && !STOP_WORDS.contains(term)) {
+                    terms.merge(term, weight, Integer::sum);
+                    count += weight;
+                }
+            }
+            i += i < n ? Character.charCount(cp) : 1;
+        }
+        return count;
+    }
+
+    // Parallel arrays of (doc id, weighted term frequency), sorted by doc id
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+
+        void add(int doc, int tf) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = tf;
+            size++;
+        }
+
+        // Drops tombstoned docs and renumbers the rest; returns the new size
+        int remap(int[] remap) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = remap[docs[i]];
+                if (doc >= 0) {
+                    docs[kept] = doc;
+                    freqs[kept] = freqs[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            return size;
+        }
+    }
+}
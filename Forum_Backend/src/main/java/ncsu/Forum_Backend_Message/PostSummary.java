@@ -0,0 +1,133 @@
+package ncsu.Forum_Backend_Message;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import ncsu.Forum_Backend_Attachment.ImageVariants;
+
+/**
+ * Flat row for post list views. Built straight from a JPQL constructor
+ * expression (see MessageRepository.SUMMARY_SELECT), so a whole feed page is one
+ * SQL statement and no entity, proxy or comment collection is ever loaded.
+ */
+public class PostSummary implements VoteCounted {
+
+    // Longest body preview sent with a list row; the full body is on /api/posts/{id}
+    public static final int SNIPPET_LENGTH = 200;
+
+    private final Long id;
+    private final String title;
+    private final String snippet;
+    private final LocalDateTime timestamp;
+    private final Message.MessageType type;
+    private final String senderUnityId;
+    private final String senderDisplayName;
+    private final String senderPictureUrl;
+    private final Long departmentId;
+    private final String departmentName;
+    private final Long classId;
+    private final String className;
+    private final Long professorId;
+    private final String professorName;
+    private int likeCount;
+    private int dislikeCount;
+    private final long commentCount;
+    private final double hotScore;
+
+    // Argument order must match MessageRepository.SUMMARY_SELECT
+    public PostSummary(Long id, String title, String body, LocalDateTime timestamp, Message.MessageType type,
+                       String senderUnityId, String senderDisplayName, String senderPictureUrl,
+                       Long departmentId, String departmentName,
+                       Long classId, String className,
+                       Long professorId, String professorName,
+                       int likeCount, int dislikeCount, long commentCount, double hotScore) {
+        this.id = id;
+        this.title = title;
+        this.snippet = snippet(body);
+        this.timestamp = timestamp;
+        this.type = type;
+        this.senderUnityId = senderUnityId;
+        this.senderDisplayName = senderDisplayName;
+        this.senderPictureUrl = senderPictureUrl;
+        this.departmentId = departmentId;
+        this.departmentName = departmentName;
+        this.classId = classId;
+        this.className = className;
+        this.professorId = professorId;
+        this.professorName = professorName;
+        this.likeCount = likeCount;
+        this.dislikeCount = dislikeCount;
+        this.commentCount = commentCount;
+        this.hotScore = hotScore;
+    }
+
+    // Detached copy, so FeedCache can hand out rows that callers may overlay
+    PostSummary(PostSummary other) {
+        this.id = other.id;
+        this.title = other.title;
+        this.snippet = other.snippet;
+        this.timestamp = other.timestamp;
+        this.type = other.type;
+        this.senderUnityId = other.senderUnityId;
+        this.senderDisplayName = other.senderDisplayName;
+        this.senderPictureUrl = other.senderPictureUrl;
+        this.departmentId = other.departmentId;
+        this.departmentName = other.departmentName;
+        this.classId = other.classId;
+        this.className = other.className;
+        this.professorId = other.professorId;
+        this.professorName = other.professorName;
+        this.likeCount = other.likeCount;
+        this.dislikeCount = other.dislikeCount;
+        this.commentCount = other.commentCount;
+        this.hotScore = other.hotScore;
+    }
+
+    // The query hands over one character more than a snippet, so a cut body
+    // can be told apart from one that is exactly SNIPPET_LENGTH long
+    private static String snippet(String body) {
+        if (body == null || body.length() <= SNIPPET_LENGTH) {
+            return body;
+        }
+        return body.substring(0, SNIPPET_LENGTH) + "…";
+    }
+
+    public Long getId() { return id; }
+    public String getTitle() { return title; }
+    public String getSnippet() { return snippet; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public Message.MessageType getType() { return type; }
+    public String getSenderUnityId() { return senderUnityId; }
+    public String getSenderDisplayName() { return senderDisplayName; }
+
+    // Sized for the avatar next to a list row
+    public String getSenderPictureUrl() {
+        return ImageVariants.sized(senderPictureUrl, ImageVariants.SMALL);
+    }
+
+    public Long getDepartmentId() { return departmentId; }
+    public String getDepartmentName() { return departmentName; }
+    public Long getClassId() { return classId; }
+    public String getClassName() { return className; }
+    public Long getProfessorId() { return professorId; }
+    public String getProfessorName() { return professorName; }
+    public int getLikeCount() { return likeCount; }
+    public int getDislikeCount() { return dislikeCount; }
+    public long getCommentCount() { return commentCount; }
+
+    // Only needed to build the next-page cursor of a hot feed
+    @JsonIgnore
+    public double getHotScore() { return hotScore; }
+
+    // Net vote score, same as Message.getLikes()
+    public int getLikes() {
+        return likeCount - dislikeCount;
+    }
+
+    @Override
+    public void overlayVotes(int likeCount, int dislikeCount) {
+        this.likeCount = likeCount;
+        this.dislikeCount = dislikeCount;
+    }
+}
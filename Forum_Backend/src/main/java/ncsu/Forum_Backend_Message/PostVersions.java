@@ -0,0 +1,150 @@
+package ncsu.Forum_Backend_Message;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import ncsu.Config.ResourceVersions;
+
+/**
+ * Per-post version counters for the ETags of /api/posts/{id} and its comment
+ * thread. A post's JSON embeds its whole reply tree, so a change to any
+ * comment bumps the comment and every ancestor up to the post. The posts'
+ * departments are bumped too, since a department's JSON embeds its posts
+ * with their counters; other departments keep their tags.
+ *
+ * Parents and departments are looked up once and remembered (neither ever
+ * changes), for the forum.etags.max-posts most recently used posts.
+ */
+@Component
+public class PostVersions {
+
+    // Marks a top-level post, or one without a department, in Node
+    private static final long NONE = 0L;
+
+    private record Node(long parentId, long departmentId) {}
+
+    @Autowired private ResourceVersions versions;
+    @Autowired private JdbcTemplate jdbc;
+
+    @Value("${forum.etags.max-posts:100000}")
+    private int maxPosts;
+
+    // Guarded by `this`, access-ordered for LRU; an evicted post is looked up again
+    private final LinkedHashMap<Long, Node> nodes = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Node> eldest) {
+            return size() > maxPosts;
+        }
+    };
+
+    /** ETag for a post (or comment) and everything nested under it. */
+    public String etag(long postId) {
+        // posts embed their senders and professor/class entities
+        return versions.etag(key(postId), ResourceVersions.USERS, ResourceVersions.CATALOG);
+    }
+
+    /** ETag for a department and the posts it embeds. */
+    public String departmentEtag(long departmentId) {
+        return versions.etag(departmentKey(departmentId), ResourceVersions.USERS, ResourceVersions.CATALOG);
+    }
+
+    /**
+     * The post, its ancestors (child first) and their departments. Call
+     * before deleting, while the rows still exist.
+     */
+    public List<String> chain(long postId) {
+        Set<String> keys = new LinkedHashSet<>();
+        Set<String> departments = new LinkedHashSet<>();
+        addChain(postId, keys, departments);
+        keys.addAll(departments);
+        return List.copyOf(keys);
+    }
+
+    private void addChain(long postId, Set<String> keys, Set<String> departments) {
+        long id = postId;
+        while (id != NONE) {
+            Node node = node(id);
+            if (node == null) {
+                return;
+            }
+            keys.add(key(id));
+            if (node.departmentId() != NONE) {
+                departments.add(departmentKey(node.departmentId()));
+            }
+            id = node.parentId();
+        }
+    }
+
+    /** Bumps the post, its ancestors and their departments, after the change has committed. */
+    public void touch(long postId) {
+        bump(chain(postId));
+    }
+
+    /** Same as {@link #touch} for several posts, in one bump. */
+    public void touchAll(Collection<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return;
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        Set<String> departments = new LinkedHashSet<>();
+        for (long id : postIds) {
+            addChain(id, keys, departments);
+        }
+        keys.addAll(departments);
+        bump(List.copyOf(keys));
+    }
+
+    /** Bumps {@code keys} and the all-departments counter, which embeds every post. */
+    public void bump(List<String> keys) {
+        List<String> all = new ArrayList<>(keys);
+        all.add(ResourceVersions.POSTS);
+        versions.bumpAll(all);
+    }
+
+    /** Records a newly created post and bumps the thread it was added to. */
+    public void posted(Message message) {
+        Long departmentId = message.getDepartment() == null ? null : message.getDepartment().getId();
+        remember(message.getId(), new Node(message.getParentId() == null ? NONE : message.getParentId(),
+                departmentId == null ? NONE : departmentId));
+        touch(message.getId());
+    }
+
+    private Node node(long id) {
+        synchronized (this) {
+            Node node = nodes.get(id);
+            if (node != null) {
+                return node;
+            }
+        }
+        List<Node> rows = jdbc.query(
+                "SELECT coalesce(parent_id, 0), coalesce(department_id, 0) FROM messages WHERE id = ?",
+                (rs, i) -> new Node(rs.getLong(1), rs.getLong(2)), id);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        remember(id, rows.get(0));
+        return rows.get(0);
+    }
+
+    private synchronized void remember(long id, Node node) {
+        nodes.put(id, node);
+    }
+
+    static String key(long postId) {
+        return "post:" + postId;
+    }
+
+    static String departmentKey(long departmentId) {
+        return "department:" + departmentId;
+    }
+}
@@ -0,0 +1,63 @@
+package ncsu.Forum_Backend_Message;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Online and typing status. Everything here is in memory (ChatPresence);
+// nothing reads or writes the database.
+@RestController
+@RequestMapping("/api/presence")
+@CrossOrigin(origins = "http://localhost:5173")
+public class PresenceController {
+
+    private static final int MAX_USERS = 500;
+
+    @Autowired
+    private ChatPresence presence;
+
+    // POST while the user has the app open, well inside forum.presence.online-ttl-ms
+    @PostMapping("/{userId}/heartbeat")
+    public ResponseEntity<Void> heartbeat(@PathVariable Long userId) {
+        presence.heartbeat(userId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/{userId}")
+    public ResponseEntity<Void> offline(@PathVariable Long userId) {
+        presence.offline(userId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // POST on keystrokes (throttled by the client); the group's streams get a "typing" event
+    @PostMapping("/{userId}/typing/{groupId}")
+    public ResponseEntity<Void> typing(@PathVariable Long userId, @PathVariable Long groupId) {
+        presence.typing(groupId, userId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // DELETE when the message is sent or the draft cleared
+    @DeleteMapping("/{userId}/typing/{groupId}")
+    public ResponseEntity<Void> stoppedTyping(@PathVariable Long userId, @PathVariable Long groupId) {
+        presence.stoppedTyping(groupId, userId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // GET which of the given users are online: ?userIds=1,2,3
+    @GetMapping
+    public ResponseEntity<?> online(@RequestParam List<Long> userIds) {
+        if (userIds.size() > MAX_USERS) {
+            return ResponseEntity.badRequest().body("At most " + MAX_USERS + " users per request");
+        }
+        return ResponseEntity.ok(Map.of("online", presence.online(userIds)));
+    }
+
+    // GET who is typing in the group right now
+    @GetMapping("/typing/{groupId}")
+    public ResponseEntity<List<Long>> typing(@PathVariable Long groupId) {
+        return ResponseEntity.ok(presence.typing(groupId));
+    }
+}
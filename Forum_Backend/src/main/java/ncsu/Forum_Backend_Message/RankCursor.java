@@ -0,0 +1,37 @@
+package ncsu.Forum_Backend_Message;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position in a hot or top feed: the (score, id) of the last post the
+ * client has seen. Scores move as votes arrive, so a post can shift across a
+ * page boundary between requests; that is the usual trade for not paging with
+ * OFFSET.
+ */
+public record RankCursor(double score, long id) {
+
+    public static final RankCursor FIRST = new RankCursor(Double.MAX_VALUE, Long.MAX_VALUE);
+
+    public String encode() {
+        String raw = score + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** A null or blank token means "start from the top". */
+    public static RankCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            if (sep < 0) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new RankCursor(Double.parseDouble(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+}
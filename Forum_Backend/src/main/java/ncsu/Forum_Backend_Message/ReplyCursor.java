@@ -0,0 +1,36 @@
+package ncsu.Forum_Backend_Message;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * "Load more replies" position in a comment thread: the comment (or post) whose
+ * direct replies to continue, and how many of them the client already has.
+ * Handed out as an opaque token on every node whose replies were cut off by
+ * the depth or breadth window, and on the last page of top-level comments.
+ */
+public record ReplyCursor(long parentId, int offset) {
+
+    public String encode() {
+        String raw = parentId + "|" + offset;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ReplyCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            if (sep < 0) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            ReplyCursor cursor = new ReplyCursor(Long.parseLong(raw.substring(0, sep)),
+                    Integer.parseInt(raw.substring(sep + 1)));
+            if (cursor.offset < 0) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return cursor;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+}
@@ -0,0 +1,469 @@
+package ncsu.Forum_Backend_Message;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import ncsu.Config.EventBus;
+
+/**
+ * Write-behind accumulator between MessageController and the vote tables.
+ *
+ * A vote only records the user's latest intent for a post in memory; repeated
+ * clicks by the same user collapse into one entry. Tallies are served from the
+ * last persisted counts plus the pending deltas, so callers always see their
+ * own vote. Every flush writes the net result as two JDBC batches (vote
+ * upserts and vote deletes, each also moving its post's counters) in one
+ * transaction.
+ *
+ * Posts are spread over lock stripes so a burst on one viral post does not
+ * block votes on others. A flush runs every forum.votes.flush-interval-ms, or
+ * sooner when forum.votes.flush-threshold dirty intents pile up. A crash can
+ * lose at most one interval of votes; a normal shutdown drains everything
+ * first. Run with forum.votes.write-behind=false to go straight to
+ * MessageVoteRepository.
+ *
+ * Like MessageVoteRepository, a flush moves the counters by what each upsert
+ * or delete actually replaced, not by what this buffer last saw, and then
+ * reloads them. Several instances (or a write-through vote while draining)
+ * may therefore touch the same post and the counters stay exact.
+ *
+ * Votes only ever land on live posts, as with the write-through path. A
+ * delete drops the post from every instance's buffer (EventBus topic
+ * {@value #DELETED_TOPIC}), so its next vote is refused; a vote that was
+ * still pending is skipped by the flush, which also drops any post it finds
+ * gone. Post ETags are bumped again once a flush has committed, since
+ * another instance may have served the old counts since the vote.
+ */
+@Component
+public class VoteBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(VoteBuffer.class);
+    private static final int STRIPES = 64;
+
+    public static final String DELETED_TOPIC = "vote_post_deleted";
+
+    // Same delta rules as MessageVoteRepository.applyVote: a row that was
+    // inserted had no vote before, an updated one had the opposite vote
+    private static final String UPSERT = """
+        WITH applied AS (
+            INSERT INTO message_votes (message_id, unity_id, vote)
+            SELECT ?, ?, ?
+            WHERE EXISTS (SELECT 1 FROM messages WHERE id = ? AND deleted_at IS NULL)
+            ON CONFLICT (message_id, unity_id) DO UPDATE SET vote = EXCLUDED.vote
+            WHERE message_votes.vote <> EXCLUDED.vote
+            RETURNING vote, (xmax = 0) AS inserted
+        )
+        UPDATE messages m SET
+            like_count = m.like_count + CASE WHEN a.vote = 1 THEN 1 WHEN a.inserted THEN 0 ELSE -1 END,
+            dislike_count = m.dislike_count + CASE WHEN a.vote = -1 THEN 1 WHEN a.inserted THEN 0 ELSE -1 END
+        FROM applied a
+        WHERE m.id = ?
+        """;
+    private static final String DELETE = """
+        WITH removed AS (
+            DELETE FROM message_votes WHERE message_id = ? AND unity_id = ?
+            RETURNING vote
+        )
+        UPDATE messages m SET
+            like_count = m.like_count - CASE WHEN r.vote = 1 THEN 1 ELSE 0 END,
+            dislike_count = m.dislike_count - CASE WHEN r.vote = -1 THEN 1 ELSE 0 END
+        FROM removed r
+        WHERE m.id = ?
+        """;
+    private static final String LOCK = "SELECT id FROM messages WHERE id = ANY(?) ORDER BY id FOR UPDATE";
+    private static final String COUNTS =
+            "SELECT id, like_count, dislike_count FROM messages WHERE id = ANY(?) AND deleted_at IS NULL";
+
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private MessageVoteRepository voteRepository;
+    @Autowired private PostRanking ranking;
+    @Autowired private FeedCache feedCache;
+    @Autowired private PostVersions postVersions;
+    @Autowired private EventBus bus;
+
+    @Value("${forum.votes.write-behind:true}")
+    private boolean writeBehind;
+
+    @Value("${forum.votes.flush-threshold:1000}")
+    private int flushThreshold;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicInteger dirty = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private TransactionTemplate tx;
+    private volatile boolean draining;
+
+    @PostConstruct
+    void init() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        tx = new TransactionTemplate(transactionManager);
+        bus.subscribe(DELETED_TOPIC, long[].class, ids -> {
+            for (long id : ids) {
+                evict(id);
+            }
+        });
+    }
+
+    /** Forgets a post that has just been deleted, on every instance; pending votes on it are dropped. */
+    public void postDeleted(long messageId) {
+        bus.publish(DELETED_TOPIC, new long[] {messageId});
+    }
+
+    private void evict(long messageId) {
+        Stripe stripe = stripeFor(messageId);
+        synchronized (stripe) {
+            PendingPost post = stripe.posts.remove(messageId);
+            if (post != null) {
+                for (Intent intent : post.intents.values()) {
+                    if (intent.desired != intent.persisted) {
+                        dirty.decrementAndGet();
+                    }
+                }
+            }
+        }
+    }
+
+    /** Sets the user's vote to {@code vote} (LIKE or DISLIKE). Empty if the post does not exist. */
+    public Optional<MessageVoteRepository.VoteTally> vote(long messageId, String unityId, short vote) {
+        if (!writeBehind || draining) {
+            Optional<MessageVoteRepository.VoteTally> tally = voteRepository.applyVote(messageId, unityId, vote);
+            tally.ifPresent(t -> ranking.markDirty(messageId));
+            return tally;
+        }
+        return record(messageId, unityId, vote, false);
+    }
+
+    /** Clears the user's vote, but only if it currently is {@code vote}. */
+    public Optional<MessageVoteRepository.VoteTally> retract(long messageId, String unityId, short vote) {
+        if (!writeBehind || draining) {
+            Optional<MessageVoteRepository.VoteTally> tally = voteRepository.retractVote(messageId, unityId, vote);
+            tally.ifPresent(t -> ranking.markDirty(messageId));
+            return tally;
+        }
+        return record(messageId, unityId, vote, true);
+    }
+
+    /** The user's vote as it will be once pending votes are flushed: 1, -1 or 0. */
+    public int currentVote(long messageId, String unityId) {
+        Stripe stripe = stripeFor(messageId);
+        synchronized (stripe) {
+            PendingPost post = stripe.posts.get(messageId);
+            Intent intent = post == null ? null : post.intents.get(unityId);
+            if (intent != null) {
+                return intent.desired;
+            }
+        }
+        return voteRepository.findVote(messageId, unityId).map(Short::intValue).orElse(0);
+    }
+
+    /** Replaces persisted tallies on loaded posts with the buffered, up-to-date ones. */
+    public void overlay(List<? extends VoteCounted> messages) {
+        for (VoteCounted m : messages) {
+            if (m.getId() == null) {
+                continue;
+            }
+            Stripe stripe = stripeFor(m.getId());
+            synchronized (stripe) {
+                PendingPost post = stripe.posts.get(m.getId());
+                if (post != null) {
+                    m.overlayVotes(post.likeCount + post.likeDelta, post.dislikeCount + post.dislikeDelta);
+                }
+            }
+        }
+    }
+
+    private Optional<MessageVoteRepository.VoteTally> record(long messageId, String unityId, short vote, boolean retract) {
+        Stripe stripe = stripeFor(messageId);
+        boolean needPost;
+        boolean needIntent;
+        synchronized (stripe) {
+            PendingPost post = stripe.posts.get(messageId);
+            needPost = post == null;
+            needIntent = needPost || !post.intents.containsKey(unityId);
+        }
+
+        // Cold entries are loaded outside the stripe lock; if another thread
+        // got there first its entry wins and these reads are discarded.
+        int[] counts = null;
+        if (needPost) {
+            List<int[]> rows = jdbc.query("SELECT like_count, dislike_count FROM messages WHERE id = ? AND deleted_at IS NULL",
+                    (rs, i) -> new int[] {rs.getInt(1), rs.getInt(2)}, messageId);
+            if (rows.isEmpty()) {
+                return Optional.empty();
+            }
+            counts = rows.get(0);
+        }
+        short persisted = 0;
+        if (needIntent) {
+            persisted = voteRepository.findVote(messageId, unityId).orElse((short) 0);
+        }
+
+        MessageVoteRepository.VoteTally tally;
+        synchronized (stripe) {
+            PendingPost post = stripe.posts.get(messageId);
+            Intent intent = post == null ? null : post.intents.get(unityId);
+            if ((post == null && !needPost) || (intent == null && !needIntent)) {
+                // evicted by a flush between the two critical sections
+                tally = null;
+            } else {
+                if (post == null) {
+                    post = new PendingPost(counts[0], counts[1]);
+                    stripe.posts.put(messageId, post);
+                }
+                if (intent == null) {
+                    intent = new Intent(persisted);
+                    post.intents.put(unityId, intent);
+                }
+                short next = retract ? (intent.desired == vote ? 0 : intent.desired) : vote;
+                post.change(intent, next, dirty);
+                post.touched = true;
+                intent.touched = true;
+                tally = post.tally(messageId);
+            }
+        }
+        if (tally == null) {
+            return record(messageId, unityId, vote, retract);
+        }
+
+        if (dirty.get() >= flushThreshold && flushLock.tryLock()) {
+            try {
+                flushLocked();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+        return Optional.of(tally);
+    }
+
+    @Scheduled(fixedDelayString = "${forum.votes.flush-interval-ms:250}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /** Drain hook: stop buffering and push everything pending before the datasource goes away. */
+    @PreDestroy
+    public void drain() {
+        draining = true;
+        flush();
+        if (dirty.get() > 0) {
+            log.warn("Vote buffer shut down with {} unflushed votes", dirty.get());
+        }
+    }
+
+    private void flushLocked() {
+        List<Pending> batch = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Iterator<Map.Entry<Long, PendingPost>> posts = stripe.posts.entrySet().iterator();
+                while (posts.hasNext()) {
+                    Map.Entry<Long, PendingPost> e = posts.next();
+                    PendingPost post = e.getValue();
+                    Iterator<Map.Entry<String, Intent>> intents = post.intents.entrySet().iterator();
+                    while (intents.hasNext()) {
+                        Map.Entry<String, Intent> ie = intents.next();
+                        Intent intent = ie.getValue();
+                        if (intent.desired != intent.persisted) {
+                            batch.add(new Pending(e.getKey(), ie.getKey(), post, intent, intent.persisted, intent.desired));
+                        } else if (!intent.touched) {
+                            intents.remove();
+                        }
+                        intent.touched = false;
+                    }
+                    // Entries only go once idle for a full interval, so a
+                    // concurrent cold load cannot resurrect stale counts.
+                    if (post.intents.isEmpty() && !post.touched) {
+                        posts.remove();
+                    }
+                    post.touched = false;
+                }
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<Long, int[]> counts;
+        try {
+            counts = write(batch);
+        } catch (RuntimeException ex) {
+            log.error("Vote flush of {} votes failed, will retry", batch.size(), ex);
+            return;
+        }
+
+        Map<Long, PendingPost> posts = new HashMap<>();
+        for (Pending p : batch) {
+            if (!counts.containsKey(p.messageId)) {
+                // deleted since the vote came in; the flush wrote nothing for it
+                evict(p.messageId);
+                continue;
+            }
+            Stripe stripe = stripeFor(p.messageId);
+            synchronized (stripe) {
+                p.post.persisted(p.intent, p.from, p.to, dirty);
+            }
+            posts.put(p.messageId, p.post);
+        }
+        Map<Long, int[]> flushed = new HashMap<>();
+        counts.forEach((id, c) -> {
+            PendingPost post = posts.get(id);
+            synchronized (stripeFor(id)) {
+                // what the database holds now, including other instances' votes
+                post.likeCount = c[0];
+                post.dislikeCount = c[1];
+                flushed.put(id, new int[] {post.likeCount + post.likeDelta, post.dislikeCount + post.dislikeDelta});
+            }
+        });
+        // TOP feeds cached before the flush were ranked on the old counts
+        flushed.forEach((id, c) -> feedCache.onVote(id, c[0], c[1]));
+        postVersions.touchAll(flushed.keySet());
+    }
+
+    // Writes the batch and returns the counters it left, by post
+    private Map<Long, int[]> write(List<Pending> batch) {
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        Set<Long> ids = new TreeSet<>();
+        for (Pending p : batch) {
+            if (p.to == 0) {
+                deletes.add(new Object[] {p.messageId, p.unityId, p.messageId});
+            } else {
+                upserts.add(new Object[] {p.messageId, p.unityId, p.to, p.messageId, p.messageId});
+            }
+            ids.add(p.messageId);
+        }
+
+        Long[] postIds = ids.toArray(Long[]::new);
+        Map<Long, int[]> counts = new HashMap<>();
+        tx.executeWithoutResult(status -> {
+            // posts first and in id order, so two instances flushing the same posts cannot deadlock
+            jdbc.queryForList(LOCK, Long.class, (Object) postIds);
+            if (!upserts.isEmpty()) {
+                // a post purged since the vote was buffered keeps no orphan vote rows
+                jdbc.batchUpdate(UPSERT, upserts);
+            }
+            if (!deletes.isEmpty()) {
+                jdbc.batchUpdate(DELETE, deletes);
+            }
+            jdbc.query(COUNTS, rs -> {
+                counts.put(rs.getLong(1), new int[] {rs.getInt(2), rs.getInt(3)});
+            }, (Object) postIds);
+        });
+        ranking.markDirty(ids);
+        return counts;
+    }
+
+    private Stripe stripeFor(long messageId) {
+        return stripes[(int) (messageId ^ (messageId >>> 32)) & (STRIPES - 1)];
+    }
+
+    private static int likes(short vote) {
+        return vote == MessageVote.LIKE ? 1 : 0;
+    }
+
+    private static int dislikes(short vote) {
+        return vote == MessageVote.DISLIKE ? 1 : 0;
+    }
+
+    private static final class Stripe {
+        final Map<Long, PendingPost> posts = new HashMap<>();
+    }
+
+    // Persisted tallies for one post plus the effect of its unflushed intents
+    private static final class PendingPost {
+        final Map<String, Intent> intents = new HashMap<>();
+        int likeCount;
+        int dislikeCount;
+        int likeDelta;
+        int dislikeDelta;
+        boolean touched = true;
+
+        PendingPost(int likeCount, int dislikeCount) {
+            this.likeCount = likeCount;
+            this.dislikeCount = dislikeCount;
+        }
+
+        void change(Intent intent, short next, AtomicInteger dirty) {
+            boolean wasDirty = intent.desired != intent.persisted;
+            likeDelta += likes(next) - likes(intent.desired);
+            dislikeDelta += dislikes(next) - dislikes(intent.desired);
+            intent.desired = next;
+            dirty.addAndGet((intent.desired != intent.persisted ? 1 : 0) - (wasDirty ? 1 : 0));
+        }
+
+        // The database now holds `to` for this intent instead of `from`
+        void persisted(Intent intent, short from, short to, AtomicInteger dirty) {
+            boolean wasDirty = intent.desired != intent.persisted;
+            int l = likes(to) - likes(from);
+            int d = dislikes(to) - dislikes(from);
+            likeCount += l;
+            dislikeCount += d;
+            likeDelta -= l;
+            dislikeDelta -= d;
+            intent.persisted = to;
+            dirty.addAndGet((intent.desired != intent.persisted ? 1 : 0) - (wasDirty ? 1 : 0));
+        }
+
+        MessageVoteRepository.VoteTally tally(long messageId) {
+            return new Tally(messageId, likeCount + likeDelta, dislikeCount + dislikeDelta);
+        }
+    }
+
+    private static final class Intent {
+        short persisted;
+        short desired;
+        boolean touched = true;
+
+        Intent(short persisted) {
+            this.persisted = persisted;
+            this.desired = persisted;
+        }
+    }
+
+    private record Pending(long messageId, String unityId, PendingPost post, Intent intent, short from, short to) {
+    }
+
+    private static final class Tally implements MessageVoteRepository.VoteTally {
+        private final Long id;
+        private final int likeCount;
+        private final int dislikeCount;
+
+        Tally(Long id, int likeCount, int dislikeCount) {
+            this.id = id;
+            this.likeCount = likeCount;
+            this.dislikeCount = dislikeCount;
+        }
+
+        public Long getId() { return id; }
+        public int getLikeCount() { return likeCount; }
+        public int getDislikeCount() { return dislikeCount; }
+    }
+}
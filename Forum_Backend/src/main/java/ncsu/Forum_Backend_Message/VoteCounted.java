@@ -0,0 +1,12 @@
+package ncsu.Forum_Backend_Message;
+
+/**
+ * Anything that carries a post's vote tallies and can have VoteBuffer's
+ * pending counts laid over them before it is serialized.
+ */
+interface VoteCounted {
+
+    Long getId();
+
+    void overlayVotes(int likeCount, int dislikeCount);
+}
@@ -0,0 +1,81 @@
+package ncsu.Forum_Backend_Message;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * One-time move from the old message_likes / message_dislikes element
+ * collections into message_votes. Copies the rows, rebuilds the denormalized
+ * counters and marks the old tables as copied (a table comment), so later
+ * startups do not copy again and bring back votes retracted since.
+ *
+ * The old tables are kept, since instances still running the old code map
+ * them during a rolling deploy. Once none are left, start one instance with
+ * forum.votes.drop-legacy-tables=true to drop them.
+ */
+@Component
+public class VoteMigration {
+
+    private static final String COPIED = "copied to message_votes";
+    // Any fixed key; keeps two instances starting together from copying twice
+    private static final long LOCK_KEY = 0x766f7465L;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Value("${forum.votes.drop-legacy-tables:false}")
+    private boolean dropLegacyTables;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void migrateLegacyVotes() {
+        boolean likes = tableExists("message_likes");
+        boolean dislikes = tableExists("message_dislikes");
+        if (!likes && !dislikes) {
+            return;
+        }
+        jdbc.queryForList("SELECT pg_advisory_xact_lock(?)", LOCK_KEY);
+        if ((likes && !copied("message_likes")) || (dislikes && !copied("message_dislikes"))) {
+            copy(likes, dislikes);
+        }
+        if (dropLegacyTables) {
+            jdbc.execute("DROP TABLE IF EXISTS message_likes");
+            jdbc.execute("DROP TABLE IF EXISTS message_dislikes");
+        }
+    }
+
+    private void copy(boolean likes, boolean dislikes) {
+        if (likes) {
+            jdbc.update("INSERT INTO message_votes (message_id, unity_id, vote) "
+                    + "SELECT message_id, unity_id, 1 FROM message_likes WHERE unity_id IS NOT NULL "
+                    + "ON CONFLICT DO NOTHING");
+            jdbc.execute("COMMENT ON TABLE message_likes IS '" + COPIED + "'");
+        }
+        if (dislikes) {
+            jdbc.update("INSERT INTO message_votes (message_id, unity_id, vote) "
+                    + "SELECT message_id, unity_id, -1 FROM message_dislikes WHERE unity_id IS NOT NULL "
+                    + "ON CONFLICT DO NOTHING");
+            jdbc.execute("COMMENT ON TABLE message_dislikes IS '" + COPIED + "'");
+        }
+        jdbc.update("UPDATE messages m SET like_count = v.likes, dislike_count = v.dislikes "
+                + "FROM (SELECT message_id, "
+                + "             count(*) FILTER (WHERE vote = 1) AS likes, "
+                + "             count(*) FILTER (WHERE vote = -1) AS dislikes "
+                + "      FROM message_votes GROUP BY message_id) v "
+                + "WHERE m.id = v.message_id");
+    }
+
+    private boolean tableExists(String table) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table));
+    }
+
+    private boolean copied(String table) {
+        return COPIED.equals(jdbc.queryForObject("SELECT obj_description(to_regclass(?), 'pg_class')",
+                String.class, table));
+    }
+}
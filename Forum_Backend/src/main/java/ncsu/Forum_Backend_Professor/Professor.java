@@ -9,13 +9,12 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import ncsu.Config.SnowflakeId;
 import ncsu.Forum_Backend_Classes.Classes;
 import ncsu.Forum_Backend_Department.Department;
 import ncsu.Forum_Backend_Message.Message;
@@ -23,7 +22,7 @@ import ncsu.Forum_Backend_Message.Message;
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Professor {
 	@Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
 	private long id;
 	
 	private String name;
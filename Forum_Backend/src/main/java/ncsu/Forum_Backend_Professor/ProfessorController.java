@@ -3,6 +3,10 @@ package ncsu.Forum_Backend_Professor;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import ncsu.Config.CatalogResolver;
+import ncsu.Config.ResourceVersions;
 
 import java.util.List;
 
@@ -14,22 +18,36 @@ public class ProfessorController {
     @Autowired
     private ProfessorRepository professorRepo;
 
-    // Get all professors
+    @Autowired
+    private ResourceVersions versions;
+
+    @Autowired
+    private CatalogResolver catalog;
+
+    // Get all professors (304 if If-None-Match is current)
     @GetMapping
-    public List<Professor> getAllProfessors() {
+    public List<Professor> getAllProfessors(WebRequest request) {
+        if (request.checkNotModified(versions.etag(ResourceVersions.CATALOG))) {
+            return null;
+        }
         return professorRepo.findAll();
     }
 
     // Get a specific professor by ID
     @GetMapping("/{id}")
-    public Professor getProfessor(@PathVariable Long id) {
+    public Professor getProfessor(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(versions.etag(ResourceVersions.CATALOG))) {
+            return null;
+        }
         return professorRepo.findById(id).orElseThrow();
     }
 
     // Add a new professor
     @PostMapping
     public Professor addProfessor(@RequestBody Professor professor) {
-        return professorRepo.save(professor);
+        Professor saved = professorRepo.save(professor);
+        versions.bump(ResourceVersions.CATALOG);
+        return saved;
     }
 
     // Update professor
@@ -39,13 +57,18 @@ public class ProfessorController {
         professor.setName(updated.getName());
         professor.setEmail(updated.getEmail());
         professor.setDepartment(updated.getDepartment());
-        return professorRepo.save(professor);
+        Professor saved = professorRepo.save(professor);
+        versions.bump(ResourceVersions.CATALOG);
+        catalog.forgetProfessor(id);
+        return saved;
     }
 
     // Delete professor
     @DeleteMapping("/{id}")
     public void deleteProfessor(@PathVariable Long id) {
         professorRepo.deleteById(id);
+        versions.bump(ResourceVersions.CATALOG);
+        catalog.forgetProfessor(id);
     }
 }
 
@@ -1,6 +1,8 @@
 // src/main/java/ncsu/Forum_Backend_User/ProfileDto.java
 package ncsu.Forum_Backend_User;
 
+import ncsu.Forum_Backend_Attachment.ImageVariants;
+
 public class ProfileDto {
 	private Long id;
     private String unityId;
@@ -8,16 +10,19 @@ public class ProfileDto {
     private String department;
     private String email;
     private boolean isStudent;
+    private String profilePictureUrl;
 
     public ProfileDto() { }
 
-    public ProfileDto(Long id, String unityId, String displayName, String department, String email, boolean isStudent) {
+    public ProfileDto(Long id, String unityId, String displayName, String department, String email, boolean isStudent,
+                      String profilePictureUrl) {
     	this.id = id;
         this.unityId      = unityId;
         this.displayName  = displayName;
         this.department   = department;
         this.email        = email;
         this.isStudent = isStudent;
+        this.profilePictureUrl = profilePictureUrl;
     }
 
     public Long getId() {
@@ -32,6 +37,11 @@ public class ProfileDto {
     public String getDisplayName()  { return displayName; }
     public String getDepartment()   { return department; }
     public String getEmail()        { return email; }
+
+    // Sized for the profile header
+    public String getProfilePictureUrl() {
+        return ImageVariants.sized(profilePictureUrl, ImageVariants.MEDIUM);
+    }
     
 
     public boolean getIsStudent() {
@@ -46,4 +56,5 @@ public class ProfileDto {
     public void setDisplayName(String displayName) { this.displayName = displayName; }
     public void setDepartment(String department)   { this.department = department; }
     public void setEmail(String email)             { this.email = email; }
+    public void setProfilePictureUrl(String url)   { this.profilePictureUrl = url; }
 }
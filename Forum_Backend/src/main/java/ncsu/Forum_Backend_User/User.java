@@ -11,6 +11,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
 import jakarta.persistence.*;
+import ncsu.Config.SnowflakeId;
 import ncsu.Forum_Backend_Classes.Classes;
 import ncsu.Forum_Backend_Department.Department;
 import ncsu.Forum_Backend_Message.Message;
@@ -20,7 +21,7 @@ import ncsu.Forum_Backend_Message.Message;
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     private boolean isStudent;
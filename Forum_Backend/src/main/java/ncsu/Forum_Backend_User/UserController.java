@@ -6,6 +6,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import ncsu.Config.CatalogResolver;
+import ncsu.Config.ResourceVersions;
+
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -16,6 +19,12 @@ public class UserController {
 
     @Autowired
     private UserRepository userRepository;
+
+    @Autowired
+    private ResourceVersions versions;
+
+    @Autowired
+    private CatalogResolver catalog;
     
     // Fetch or provision user from Shibboleth headers
     @GetMapping("/profile")
@@ -46,7 +55,8 @@ public class UserController {
         } 
         userRepository.save(user);
 
-        return new ProfileDto(user.getId(),user.getUnityId(), user.getDisplayName(), user.getDepartment(), user.getEmail(), user.isStudent());
+        return new ProfileDto(user.getId(),user.getUnityId(), user.getDisplayName(), user.getDepartment(), user.getEmail(), user.isStudent(),
+                user.getProfilePictureUrl());
     }
 
     @GetMapping("/users")
@@ -79,7 +89,11 @@ public class UserController {
             user.setEmail(updatedUser.getEmail());
             user.setBio(updatedUser.getBio());
             user.setProfilePictureUrl(updatedUser.getProfilePictureUrl());
-            return ResponseEntity.ok(userRepository.save(user));
+            User saved = userRepository.save(user);
+            // posts and departments embed user profiles
+            versions.bump(ResourceVersions.USERS);
+            catalog.forgetUser(id);
+            return ResponseEntity.ok(saved);
         }).orElse(ResponseEntity.notFound().build());
     }
 
@@ -87,6 +101,8 @@ public class UserController {
     public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
         if (userRepository.existsById(id)) {
             userRepository.deleteById(id);
+            versions.bump(ResourceVersions.USERS);
+            catalog.forgetUser(id);
             return ResponseEntity.noContent().build();
         } else {
             return ResponseEntity.notFound().build();
@@ -0,0 +1,135 @@
+package ncsu.Config;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two buses on one database stand in for two instances. Run against a local
+// Postgres with -Dpg.url=jdbc:postgresql://localhost:5432/postgres
+// (plus -Dpg.user / -Dpg.password when they are not "postgres").
+@EnabledIfSystemProperty(named = "pg.url", matches = ".+")
+class PostgresEventBusTest {
+
+    private static final String TOPIC = "bus_test";
+
+    record Event(long id, String text) {
+    }
+
+    private PostgresEventBus nodeA;
+    private PostgresEventBus nodeB;
+    private final List<Event> seenByA = new CopyOnWriteArrayList<>();
+    private final List<Event> seenByB = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        nodeA = bus();
+        nodeB = bus();
+        nodeA.subscribe(TOPIC, Event.class, seenByA::add);
+        nodeB.subscribe(TOPIC, Event.class, seenByB::add);
+        await(() -> nodeA.listening(TOPIC) && nodeB.listening(TOPIC));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    private static JdbcTemplate jdbc() {
+        return new JdbcTemplate(new DriverManagerDataSource(System.getProperty("pg.url"),
+                System.getProperty("pg.user", "postgres"), System.getProperty("pg.password", "postgres")));
+    }
+
+    private static PostgresEventBus bus() {
+        String url = System.getProperty("pg.url");
+        String user = System.getProperty("pg.user", "postgres");
+        String password = System.getProperty("pg.password", "postgres");
+        return new PostgresEventBus(jdbc(), new ObjectMapper(), url, user, password, 10_000, 7900, 1000, 200);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.onSpinWait();
+        }
+    }
+
+    @Test
+    void reachesTheOtherInstanceButNotBack() {
+        long start = System.nanoTime();
+        nodeA.publish(TOPIC, new Event(1, "hello"));
+        // the publisher's own subscribers run before publish returns
+        assertEquals(List.of(new Event(1, "hello")), seenByA);
+        await(() -> !seenByB.isEmpty());
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(List.of(new Event(1, "hello")), seenByB);
+        assertTrue(millis < 1000, "took " + millis + " ms");
+
+        nodeB.publish(TOPIC, new Event(2, "back"));
+        await(() -> seenByA.size() == 2);
+        assertEquals(new Event(2, "back"), seenByA.get(1));
+        assertEquals(2, seenByB.size());
+    }
+
+    @Test
+    void burstsArriveInOrderAcrossPayloads() {
+        // about 30 bytes each, so the burst needs several notifications
+        String text = "x".repeat(20);
+        LongStream.range(0, 5000).forEach(id -> nodeA.publish(TOPIC, new Event(id, text)));
+        await(() -> seenByB.size() == 5000);
+        assertEquals(LongStream.range(0, 5000).boxed().toList(), seenByB.stream().map(Event::id).toList());
+    }
+
+    @Test
+    void anEventThatCannotBeSentMakesTheOthersResync() {
+        AtomicInteger resyncsA = new AtomicInteger();
+        AtomicInteger resyncsB = new AtomicInteger();
+        nodeA.subscribe(EventBus.RESYNC, EventBus.Resync.class, resync -> resyncsA.incrementAndGet());
+        nodeB.subscribe(EventBus.RESYNC, EventBus.Resync.class, resync -> resyncsB.incrementAndGet());
+
+        nodeA.publish(TOPIC, new Event(1, "before"));
+        nodeA.publish(TOPIC, new Event(2, "x".repeat(8000)));
+        assertEquals(2, seenByA.size());
+        await(() -> resyncsB.get() == 1);
+        // what was sent before the drop arrives before the resync
+        assertEquals(List.of(new Event(1, "before")), seenByB);
+        assertEquals(0, resyncsA.get());
+
+        nodeA.publish(TOPIC, new Event(3, "after"));
+        await(() -> seenByB.size() == 2);
+        assertEquals(1, resyncsB.get());
+    }
+
+    @Test
+    void resyncsAfterTheListenerReconnects() {
+        AtomicInteger resyncs = new AtomicInteger();
+        nodeB.subscribe(EventBus.RESYNC, EventBus.Resync.class, resync -> resyncs.incrementAndGet());
+
+        // drops both listeners, as a database restart or network blip would
+        jdbc().queryForList("SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE application_name = ?",
+                PostgresEventBus.LISTENER_NAME);
+        await(() -> !nodeB.listening(TOPIC));
+        nodeA.publish(TOPIC, new Event(1, "missed"));
+
+        await(() -> nodeB.listening(TOPIC));
+        // delivered before the listener counts as listening again
+        assertEquals(1, resyncs.get());
+        nodeA.publish(TOPIC, new Event(2, "after"));
+        await(() -> !seenByB.isEmpty());
+        assertEquals(List.of(new Event(2, "after")), seenByB);
+    }
+}
@@ -0,0 +1,68 @@
+package ncsu.Config;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceVersionsTest {
+
+    private ResourceVersions versions;
+
+    @BeforeEach
+    void setUp() {
+        versions = new ResourceVersions();
+        ReflectionTestUtils.setField(versions, "bus", new LocalEventBus());
+        ReflectionTestUtils.setField(versions, "maxVersions", 3);
+        versions.subscribe();
+    }
+
+    @Test
+    void aBumpChangesOnlyTheTagsOfWhatItNames() {
+        String post = versions.etag("post:1", ResourceVersions.USERS);
+        String other = versions.etag("post:2", ResourceVersions.USERS);
+
+        versions.bump("post:1");
+
+        assertNotEquals(post, versions.etag("post:1", ResourceVersions.USERS));
+        assertEquals(other, versions.etag("post:2", ResourceVersions.USERS));
+    }
+
+    @Test
+    void onlyTheMostRecentlyUsedScopedKeysAreKept() {
+        versions.bump(ResourceVersions.POSTS);
+        versions.bumpAll(List.of("post:1", "post:2", "post:3", "post:4"));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Long> kept = (Map<String, Long>) ReflectionTestUtils.getField(versions, "versions");
+        assertEquals(3, kept.size());
+        // shared keys stay however old they are
+        assertTrue(kept.containsKey(ResourceVersions.POSTS));
+    }
+
+    @Test
+    void anEvictedKeyNeverMatchesATagFromBeforeItsLastChange() {
+        versions.bump("post:1");
+        String before = versions.etag("post:1");
+        versions.bump("post:1");
+        String after = versions.etag("post:1");
+
+        // pushes post:1 out, then more of its scope after it
+        versions.bumpAll(List.of("post:2", "post:3", "post:4"));
+        versions.bumpAll(List.of("post:5", "post:6", "post:7"));
+
+        String evicted = versions.etag("post:1");
+        assertNotEquals(before, evicted);
+        assertNotEquals(after, evicted);
+        assertEquals(evicted, versions.etag("post:1"));
+        // other scopes are unaffected
+        assertEquals("\"" + ReflectionTestUtils.getField(versions, "epoch") + "-0\"", versions.etag("user:9"));
+
+        versions.bump("post:1");
+        assertNotEquals(evicted, versions.etag("post:1"));
+    }
+}
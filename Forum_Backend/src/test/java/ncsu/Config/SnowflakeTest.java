@@ -0,0 +1,115 @@
+package ncsu.Config;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeTest {
+
+    private static final long T0 = Instant.parse("2025-06-01T00:00:00Z").toEpochMilli();
+
+    private final AtomicLong now = new AtomicLong(T0);
+
+    private static long millisOf(long id) {
+        return id >>> (Snowflake.NODE_BITS + Snowflake.SEQUENCE_BITS);
+    }
+
+    private static long nodeOf(long id) {
+        return (id >>> Snowflake.SEQUENCE_BITS) & Snowflake.MAX_NODE;
+    }
+
+    private static long sequenceOf(long id) {
+        return id & ((1L << Snowflake.SEQUENCE_BITS) - 1);
+    }
+
+    @Test
+    void bitLayout() {
+        Snowflake ids = new Snowflake(5, now::get);
+        long first = ids.nextId();
+        long second = ids.nextId();
+
+        assertEquals(T0 - Snowflake.EPOCH_MILLIS, millisOf(first));
+        assertEquals(5, nodeOf(first));
+        assertEquals(0, sequenceOf(first));
+        assertEquals(1, sequenceOf(second));
+        assertEquals(Instant.ofEpochMilli(T0), Snowflake.timestampOf(first));
+        assertEquals(Snowflake.firstIdAt(Instant.ofEpochMilli(T0)), first - (5L << Snowflake.SEQUENCE_BITS));
+
+        // a new millisecond starts the sequence over
+        now.incrementAndGet();
+        assertEquals(0, sequenceOf(ids.nextId()));
+    }
+
+    @Test
+    void fitsAJavaScriptNumberUntil2093() {
+        long end = Instant.parse("2093-01-01T00:00:00Z").toEpochMilli();
+        long id = new Snowflake(Snowflake.MAX_NODE, () -> end).nextId();
+        assertTrue(id < 1L << 53);
+        assertEquals(Instant.ofEpochMilli(end), Snowflake.timestampOf(id));
+    }
+
+    @Test
+    void nodesNeverCollide() {
+        Snowflake a = new Snowflake(0, now::get);
+        Snowflake b = new Snowflake(1, now::get);
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(seen.add(a.nextId()));
+            assertTrue(seen.add(b.nextId()));
+            if (i % 7 == 0) {
+                now.incrementAndGet();
+            }
+        }
+    }
+
+    @Test
+    void sequenceOverflowBorrowsTheNextMillisecond() {
+        Snowflake ids = new Snowflake(3, now::get);
+        long previous = 0;
+        for (int i = 0; i < 1 << Snowflake.SEQUENCE_BITS; i++) {
+            previous = ids.nextId();
+        }
+        assertEquals(255, sequenceOf(previous));
+
+        long next = ids.nextId();
+        assertTrue(next > previous);
+        assertEquals(millisOf(previous) + 1, millisOf(next));
+        assertEquals(0, sequenceOf(next));
+        assertEquals(3, nodeOf(next));
+
+        // once the wall clock passes the borrowed millisecond it takes over again
+        now.addAndGet(5);
+        assertEquals(T0 + 5 - Snowflake.EPOCH_MILLIS, millisOf(ids.nextId()));
+    }
+
+    @Test
+    void aClockStepBackwardsKeepsIdsIncreasing() {
+        Snowflake ids = new Snowflake(2, now::get);
+        long before = ids.nextId();
+        now.addAndGet(-10_000);
+        long previous = before;
+        for (int i = 0; i < 600; i++) {
+            long id = ids.nextId();
+            assertTrue(id > previous);
+            assertEquals(2, nodeOf(id));
+            previous = id;
+        }
+        // 600 ids ran the logical clock a couple of ms past the last wall clock reading
+        assertEquals(millisOf(before) + 2, millisOf(previous));
+
+        now.addAndGet(10_000 + 100);
+        assertEquals(T0 + 100 - Snowflake.EPOCH_MILLIS, millisOf(ids.nextId()));
+    }
+
+    @Test
+    void forNodeSharesOneAllocatorAndChecksTheRange() {
+        assertSame(Snowflake.forNode(4), Snowflake.forNode(4));
+        assertThrows(IllegalArgumentException.class, () -> Snowflake.forNode(Snowflake.MAX_NODE + 1));
+        assertThrows(IllegalArgumentException.class, () -> Snowflake.forNode(-1));
+    }
+}
@@ -0,0 +1,93 @@
+package ncsu.Forum_Backend_Attachment;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageVariantsTest {
+
+    private static final String SHA = "ab".repeat(32);
+    private static final String OTHER_SHA = "cd".repeat(32);
+
+    @TempDir
+    Path dir;
+
+    private Path image(int width, int height, boolean alpha, String format) throws Exception {
+        BufferedImage image = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.ORANGE);
+        g.fillRect(0, 0, width / 2, height);
+        g.dispose();
+        Path file = Files.createTempFile(dir, "original", "." + format);
+        ImageIO.write(image, format, file.toFile());
+        return file;
+    }
+
+    @Test
+    void makesEverySizeWithoutEnlarging() throws Exception {
+        ImageVariants variants = new ImageVariants(dir.resolve("variants"), 1, 4, Long.MAX_VALUE, 100_000_000);
+        assertTrue(variants.make(SHA, image(2000, 1000, false, "jpg")));
+
+        ImageVariants.Variant small = variants.find(SHA, ImageVariants.SMALL);
+        assertEquals("image/jpeg", small.contentType());
+        BufferedImage read = ImageIO.read(small.path().toFile());
+        assertEquals(48, read.getWidth());
+        assertEquals(24, read.getHeight());
+        assertEquals(512, ImageIO.read(variants.find(SHA, ImageVariants.LARGE).path().toFile()).getWidth());
+
+        assertTrue(variants.make(OTHER_SHA, image(100, 60, true, "png")));
+        ImageVariants.Variant large = variants.find(OTHER_SHA, ImageVariants.LARGE);
+        assertEquals("image/png", large.contentType());
+        assertEquals(100, ImageIO.read(large.path().toFile()).getWidth());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedAndReloadsFromDisk() throws Exception {
+        Path root = dir.resolve("variants");
+        ImageVariants probe = new ImageVariants(root.resolve("probe"), 1, 4, Long.MAX_VALUE, 100_000_000);
+        Path original = image(800, 800, false, "png");
+        probe.make(SHA, original);
+        long oneImage = 0;
+        for (int size : ImageVariants.SIZES) {
+            oneImage += probe.find(SHA, size).size();
+        }
+
+        // room for the variants of one image and a bit
+        ImageVariants variants = new ImageVariants(root, 1, 4, oneImage + oneImage / 2, 100_000_000);
+        variants.make(SHA, original);
+        variants.make(OTHER_SHA, original);
+        assertNotNull(variants.find(OTHER_SHA, ImageVariants.LARGE));
+        assertNull(variants.find(SHA, ImageVariants.LARGE));
+        assertFalse(Files.exists(root.resolve(ImageVariants.LARGE + "/" + SHA + ".jpg")));
+
+        ImageVariants restarted = new ImageVariants(root, 1, 4, Long.MAX_VALUE, 100_000_000);
+        assertNotNull(restarted.find(OTHER_SHA, ImageVariants.LARGE));
+    }
+
+    @Test
+    void onlyOurAttachmentUrlsAreSized() {
+        assertEquals("/api/attachments/42?size=48", ImageVariants.sized("/api/attachments/42", ImageVariants.SMALL));
+        assertEquals("https://example.com/me.png", ImageVariants.sized("https://example.com/me.png", 48));
+        assertNull(ImageVariants.sized(null, 48));
+        assertEquals(128, ImageVariants.fit(100));
+        assertEquals(0, ImageVariants.fit(2000));
+    }
+
+    @Test
+    void notAnImage() throws Exception {
+        Path file = Files.writeString(dir.resolve("notes.txt"), "hello");
+        ImageVariants variants = new ImageVariants(dir.resolve("variants"), 1, 4, Long.MAX_VALUE, 100_000_000);
+        assertFalse(variants.make(SHA, file));
+        assertNull(variants.find(SHA, ImageVariants.SMALL));
+    }
+}
@@ -0,0 +1,105 @@
+package ncsu.Forum_Backend_Attachment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultipartReaderTest {
+
+    private static final String BOUNDARY = "----formBoundary7MA4YWxk";
+
+    @TempDir
+    Path dir;
+
+    private static byte[] body(byte[] file) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("preamble\r\n--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"caption\"\r\n\r\n"
+                + "a caption\r\n--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"cat.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(file);
+        body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    // Hands out at most a few bytes per read, like a slow socket
+    private static InputStream trickle(byte[] bytes) {
+        return new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+    }
+
+    @Test
+    void streamsTheFilePartByteForByte() throws Exception {
+        byte[] file = new byte[300_000];
+        new Random(42).nextBytes(file);
+        // near-misses of the delimiter inside the file must come through untouched
+        byte[] nearMiss = ("\r\n--" + BOUNDARY.substring(0, 10)).getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nearMiss, 0, file, 1000, nearMiss.length);
+        System.arraycopy(nearMiss, 0, file, file.length - nearMiss.length, nearMiss.length);
+
+        MultipartReader reader = new MultipartReader(trickle(body(file)), BOUNDARY);
+        MultipartReader.Part caption = reader.next();
+        assertEquals("caption", caption.name());
+        assertNull(caption.filename());
+        MultipartReader.Part part = reader.next();
+        assertEquals("file", part.name());
+        assertEquals("cat.png", part.filename());
+        assertEquals("image/png", part.contentType());
+
+        AttachmentStore.Stored stored = new AttachmentStore(dir).store(part.body(), file.length);
+        assertNull(reader.next());
+        assertEquals(file.length, stored.size());
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(file)), stored.sha256());
+        assertArrayEquals(file, Files.readAllBytes(new AttachmentStore(dir).path(stored.sha256())));
+    }
+
+    @Test
+    void sameBytesAreStoredOnce() throws Exception {
+        AttachmentStore store = new AttachmentStore(dir);
+        byte[] file = "same bytes".getBytes(StandardCharsets.UTF_8);
+        AttachmentStore.Stored first = store.store(new ByteArrayInputStream(file), 100);
+        AttachmentStore.Stored second = store.store(new ByteArrayInputStream(file), 100);
+        assertEquals(first, second);
+        try (var files = Files.walk(dir)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void oversizedUploadsLeaveNothingBehind() throws IOException {
+        AttachmentStore store = new AttachmentStore(dir);
+        assertThrows(AttachmentStore.TooLargeException.class,
+                () -> store.store(new ByteArrayInputStream(new byte[1001]), 1000));
+        try (var files = Files.walk(dir)) {
+            assertEquals(0, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void aTruncatedBodyIsAnError() throws IOException {
+        byte[] body = body(new byte[5000]);
+        MultipartReader reader = new MultipartReader(new ByteArrayInputStream(body, 0, body.length - 30), BOUNDARY);
+        reader.next();
+        MultipartReader.Part part = reader.next();
+        assertThrows(EOFException.class, () -> part.body().transferTo(OutputStream.nullOutputStream()));
+    }
+}
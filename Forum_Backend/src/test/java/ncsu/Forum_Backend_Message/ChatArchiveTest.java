@@ -0,0 +1,94 @@
+package ncsu.Forum_Backend_Message;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatArchiveTest {
+
+    @TempDir
+    Path dir;
+
+    // Small segments and a dense index, so a few hundred messages span many of both
+    private ChatArchive archive() {
+        return new ChatArchive(dir, 4096, 256);
+    }
+
+    private static ChatMessage message(long id) {
+        return new ChatMessage(id, 5L, id % 3 == 0 ? null : 7L, "u7", "User Seven", "message " + id,
+                LocalDateTime.of(2024, 1, 1, 12, 0).plusMinutes(id));
+    }
+
+    private static List<ChatMessage> messages(long from, long to) {
+        return LongStream.rangeClosed(from, to).mapToObj(ChatArchiveTest::message).toList();
+    }
+
+    private static List<Long> ids(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::id).toList();
+    }
+
+    @Test
+    void pagesBackwardsAcrossSegments() throws IOException {
+        ChatArchive archive = archive();
+        archive.append(5, messages(1, 300));
+        archive.append(5, messages(301, 600));
+        try (Stream<Path> files = Files.list(dir.resolve("5"))) {
+            assertTrue(files.filter(path -> path.toString().endsWith(".seg")).count() > 2);
+        }
+
+        List<Long> seen = new ArrayList<>();
+        long before = Long.MAX_VALUE;
+        List<ChatMessage> page;
+        while (!(page = archive.before(5, before, 50)).isEmpty()) {
+            seen.addAll(ids(page));
+            before = page.get(page.size() - 1).id();
+        }
+        assertEquals(LongStream.iterate(600, id -> id - 1).limit(600).boxed().toList(), seen);
+        assertEquals(message(123), archive.before(5, 124, 1).get(0));
+    }
+
+    @Test
+    void reappendingSkipsWhatIsArchived() {
+        ChatArchive archive = archive();
+        archive.append(5, messages(1, 100));
+        archive.append(5, messages(50, 150));
+        assertEquals(150, archive.lastArchivedId(5));
+        assertEquals(LongStream.iterate(150, id -> id - 1).limit(150).boxed().toList(),
+                ids(archive.before(5, Long.MAX_VALUE, 1000)));
+    }
+
+    @Test
+    void aTornTailIsCutOffOnOpen() throws IOException {
+        archive().append(5, messages(1, 40));
+        Path last;
+        try (Stream<Path> files = Files.list(dir.resolve("5"))) {
+            last = files.filter(path -> path.toString().endsWith(".seg")).sorted().reduce((a, b) -> b).orElseThrow();
+        }
+        // half a record, as if the process died mid-write
+        byte[] record = ChatArchive.encode(message(41)).array();
+        Files.write(last, Arrays.copyOf(record, record.length / 2), StandardOpenOption.APPEND);
+
+        ChatArchive reopened = archive();
+        assertEquals(40, reopened.lastArchivedId(5));
+        reopened.append(5, messages(41, 45));
+        assertEquals(List.of(45L, 44L, 43L, 42L, 41L, 40L), ids(reopened.before(5, Long.MAX_VALUE, 6)));
+    }
+
+    @Test
+    void unknownGroupsHaveNoArchive() {
+        assertEquals(List.of(), archive().before(9, Long.MAX_VALUE, 10));
+        assertEquals(0, archive().lastArchivedId(9));
+    }
+}
@@ -0,0 +1,112 @@
+package ncsu.Forum_Backend_Message;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatHistoryCacheTest {
+
+    private static final int RING = 8;
+
+    // Stands in for group_message: answers the cache's "latest N of a group" query
+    private final List<ChatMessage> table = new ArrayList<>();
+    private final AtomicInteger queries = new AtomicInteger();
+    private ChatHistoryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbc = new JdbcTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+                queries.incrementAndGet();
+                long groupId = (Long) args[0];
+                int limit = (Integer) args[1];
+                return (List<T>) table.stream()
+                        .filter(message -> message.groupId() == groupId)
+                        .sorted(Comparator.comparing(ChatMessage::id).reversed())
+                        .limit(limit)
+                        .toList();
+            }
+        };
+        cache = new ChatHistoryCache();
+        ReflectionTestUtils.setField(cache, "jdbc", jdbc);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "ringSize", RING);
+        ReflectionTestUtils.setField(cache, "maxBytes", 1L << 20);
+    }
+
+    private ChatMessage message(long groupId, long id) {
+        return new ChatMessage(id, groupId, 7L, "u7", "User Seven", "m" + id, LocalDateTime.now());
+    }
+
+    private void committed(long groupId, long id) {
+        ChatMessage message = message(groupId, id);
+        table.add(message);
+        cache.appended(message);
+    }
+
+    private static List<Long> ids(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::id).toList();
+    }
+
+    @Test
+    void firstReadLoadsThenSendsFollow() {
+        for (long id = 1; id <= 3; id++) {
+            committed(1, id);
+        }
+        assertEquals(List.of(3L, 2L, 1L), ids(cache.before(1, Long.MAX_VALUE, 5)));
+        committed(1, 4);
+        assertEquals(List.of(4L, 3L), ids(cache.before(1, Long.MAX_VALUE, 2)));
+        assertEquals(List.of(3L, 4L), ids(cache.after(1, 2, 10)));
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void aWrappedRingOnlyAnswersWhatItHolds() {
+        for (long id = 1; id <= 20; id++) {
+            committed(1, id);
+        }
+        assertEquals(List.of(20L, 19L, 18L), ids(cache.before(1, Long.MAX_VALUE, 3)));
+        // 13..20 are held; anything reaching further back goes to the database
+        assertEquals(List.of(14L, 13L), ids(cache.before(1, 15, 2)));
+        assertNull(cache.before(1, 15, 3));
+        assertEquals(List.of(19L, 20L), ids(cache.after(1, 18, 10)));
+        assertNull(cache.after(1, 5, 10));
+    }
+
+    @Test
+    void pagesLargerThanTheRingAreNotServed() {
+        assertNull(cache.before(1, Long.MAX_VALUE, RING));
+        assertEquals(0, queries.get());
+    }
+
+    @Test
+    void leastRecentlyUsedGroupsGoFirst() {
+        committed(1, 1);
+        committed(2, 2);
+        cache.before(1, Long.MAX_VALUE, 1);
+        cache.before(2, Long.MAX_VALUE, 1);
+        cache.before(1, Long.MAX_VALUE, 1);
+        // room for both rings, but not for one more message
+        ReflectionTestUtils.setField(cache, "maxBytes", (Long) cache.stats().get("bytes") + 50);
+        committed(1, 3);
+
+        assertEquals(1, cache.stats().get("groups"));
+        int before = queries.get();
+        cache.before(1, Long.MAX_VALUE, 1);
+        assertEquals(before, queries.get());
+        cache.before(2, Long.MAX_VALUE, 1);
+        assertEquals(before + 1, queries.get());
+    }
+}
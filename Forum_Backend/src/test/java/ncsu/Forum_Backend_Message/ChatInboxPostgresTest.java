@@ -0,0 +1,107 @@
+package ncsu.Forum_Backend_Message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs ChatInbox's send and read statements for real, in a throwaway schema.
+// Run against a local Postgres with -Dpg.url=jdbc:postgresql://localhost:5432/postgres
+// (plus -Dpg.user / -Dpg.password when they are not "postgres").
+@EnabledIfSystemProperty(named = "pg.url", matches = ".+")
+class ChatInboxPostgresTest {
+
+    private static final String SCHEMA = "chat_inbox_test";
+    private static final long GROUP = 7;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private ChatInbox inbox;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SingleConnectionDataSource(System.getProperty("pg.url"),
+                System.getProperty("pg.user", "postgres"), System.getProperty("pg.password", "postgres"), true);
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbc.execute("CREATE SCHEMA " + SCHEMA);
+        jdbc.execute("SET search_path TO " + SCHEMA);
+        jdbc.execute("""
+            CREATE TABLE group_message (
+                id bigint PRIMARY KEY,
+                group_id bigint NOT NULL,
+                sender_id bigint
+            )""");
+        jdbc.execute("""
+            CREATE TABLE group_chat_member (
+                group_id bigint NOT NULL,
+                user_id bigint NOT NULL,
+                last_message_id bigint NOT NULL DEFAULT 0,
+                last_read_message_id bigint NOT NULL DEFAULT 0,
+                unread_count int NOT NULL DEFAULT 0,
+                PRIMARY KEY (group_id, user_id)
+            )""");
+        jdbc.update("INSERT INTO group_chat_member (group_id, user_id) VALUES (?, 1), (?, 2), (?, 3)",
+                GROUP, GROUP, GROUP);
+
+        inbox = new ChatInbox();
+        ReflectionTestUtils.setField(inbox, "jdbc", jdbc);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("DROP SCHEMA " + SCHEMA + " CASCADE");
+        dataSource.destroy();
+    }
+
+    // saved as the send pipeline does, before the inbox update
+    private List<ChatMessage> send(long... idAndSender) {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (int i = 0; i < idAndSender.length; i += 2) {
+            jdbc.update("INSERT INTO group_message VALUES (?, ?, ?)", idAndSender[i], GROUP, idAndSender[i + 1]);
+            messages.add(new ChatMessage(idAndSender[i], GROUP, idAndSender[i + 1], null, null, "hi", null));
+        }
+        inbox.sent(GROUP, messages);
+        return messages;
+    }
+
+    private int unread(long userId) {
+        return jdbc.queryForObject("SELECT unread_count FROM group_chat_member WHERE group_id = ? AND user_id = ?",
+                Integer.class, GROUP, userId);
+    }
+
+    @Test
+    void aSenderKeepsCountingWhatOthersSentAfterTheirLastMessage() {
+        // one flush: 1 sends, then 2 answers, then 1 again, then 2 again
+        send(10, 1, 11, 2, 12, 1, 13, 2);
+
+        assertEquals(1, unread(1));
+        assertEquals(0, unread(2));
+        assertEquals(4, unread(3));
+    }
+
+    @Test
+    void readingOnlyCountsOthersMessagesAfterTheReadPosition() {
+        send(10, 2);
+        send(11, 1);
+        send(12, 2);
+        send(13, 1);
+        assertEquals(0, unread(1));
+
+        inbox.read(GROUP, 3, 11L);
+        assertEquals(2, unread(3));
+
+        // 1 goes back to message 10: 12 is unread, their own 11 and 13 are not
+        jdbc.update("UPDATE group_chat_member SET last_read_message_id = 0 WHERE user_id = 1");
+        assertTrue(inbox.read(GROUP, 1, 10L));
+        assertEquals(1, unread(1));
+    }
+}
@@ -0,0 +1,152 @@
+package ncsu.Forum_Backend_Message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ncsu.Config.EventBus;
+import ncsu.Config.LocalEventBus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatPresenceTest {
+
+    private static final long TICK = 250;
+    private static final long ONLINE_TTL = 60_000;
+    private static final long TYPING_TTL = 6_000;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final List<ChatPresence.Typing> pushed = new ArrayList<>();
+    private final LocalEventBus bus = new LocalEventBus();
+    private ChatPresence presence;
+
+    @BeforeEach
+    void setUp() {
+        GroupChatHub hub = new GroupChatHub() {
+            @Override
+            public void publishTyping(ChatPresence.Typing typing) {
+                pushed.add(typing);
+            }
+        };
+        presence = new ChatPresence(hub, bus, 1, 8, TICK, ONLINE_TTL, TYPING_TTL, now::get);
+    }
+
+    private void advance(long millis) {
+        // the scheduler ticks every TICK ms
+        for (long step = 0; step < millis; step += TICK) {
+            now.addAndGet(Math.min(TICK, millis - step));
+            presence.tick();
+        }
+    }
+
+    @Test
+    void onlineUntilTheTtlRunsOut() {
+        presence.heartbeat(1);
+        advance(ONLINE_TTL - TICK);
+        assertTrue(presence.isOnline(1));
+        advance(TICK);
+        assertFalse(presence.isOnline(1));
+        assertEquals(0, presence.onlineCount());
+    }
+
+    @Test
+    void heartbeatsKeepAUserOnline() {
+        presence.heartbeat(1);
+        presence.heartbeat(2);
+        for (int i = 0; i < 5; i++) {
+            advance(ONLINE_TTL / 2);
+            presence.heartbeat(1);
+        }
+        assertEquals(List.of(1L), presence.online(List.of(1L, 2L, 3L)));
+        assertEquals(1, presence.onlineCount());
+    }
+
+    @Test
+    void typingChangesGoOutOncePerTick() {
+        presence.typing(10, 1);
+        presence.typing(10, 2);
+        presence.typing(10, 1);
+        presence.typing(20, 3);
+        assertTrue(pushed.isEmpty());
+        advance(TICK);
+        assertEquals(2, pushed.size());
+        assertTrue(pushed.contains(new ChatPresence.Typing(10, List.of(1L, 2L))));
+        assertTrue(pushed.contains(new ChatPresence.Typing(20, List.of(3L))));
+
+        // refreshing is not a change
+        pushed.clear();
+        presence.typing(10, 1);
+        advance(TICK);
+        assertTrue(pushed.isEmpty());
+
+        presence.stoppedTyping(10, 2);
+        advance(TICK);
+        assertEquals(List.of(new ChatPresence.Typing(10, List.of(1L))), pushed);
+    }
+
+    @Test
+    void typingExpiresOnItsOwn() {
+        presence.typing(10, 1);
+        advance(TICK);
+        pushed.clear();
+        advance(TYPING_TTL);
+        assertEquals(List.of(), presence.typing(10));
+        assertEquals(List.of(new ChatPresence.Typing(10, List.of())), pushed);
+        // typing counted as a heartbeat
+        assertTrue(presence.isOnline(1));
+    }
+
+    @Test
+    void typersOnOtherInstancesReachThisOnesStreams() {
+        presence.typing(10, 1);
+        advance(TICK);
+        pushed.clear();
+
+        // node 2 has user 5 typing in group 10
+        bus.publish(ChatPresence.TOPIC, new ChatPresence.TypingUpdate(2,
+                List.of(new ChatPresence.Typing(10, List.of(5L)))));
+        assertEquals(List.of(new ChatPresence.Typing(10, List.of(1L, 5L))), pushed);
+        assertEquals(List.of(1L, 5L), presence.typing(10));
+
+        // node 2 keeps announcing while 5 types; node 1's own typer expires
+        for (int i = 0; i < 2; i++) {
+            advance(TYPING_TTL / 2);
+            bus.publish(ChatPresence.TOPIC, new ChatPresence.TypingUpdate(2,
+                    List.of(new ChatPresence.Typing(10, List.of(5L)))));
+        }
+        assertEquals(List.of(5L), presence.typing(10));
+        assertEquals(new ChatPresence.Typing(10, List.of(5L)), pushed.get(pushed.size() - 1));
+
+        // then node 2 goes quiet, and its typer is dropped after a TTL
+        pushed.clear();
+        advance(TYPING_TTL);
+        assertEquals(List.of(new ChatPresence.Typing(10, List.of())), pushed);
+        assertEquals(List.of(), presence.typing(10));
+    }
+
+    @Test
+    void aResyncDropsWhatOtherInstancesAnnounced() {
+        bus.publish(ChatPresence.TOPIC, new ChatPresence.TypingUpdate(2,
+                List.of(new ChatPresence.Typing(10, List.of(5L)))));
+        presence.typing(10, 1);
+        advance(TICK);
+        pushed.clear();
+
+        bus.publish(EventBus.RESYNC, new EventBus.Resync());
+        assertEquals(List.of(new ChatPresence.Typing(10, List.of(1L))), pushed);
+    }
+
+    @Test
+    void aLongPauseExpiresEverythingDue() {
+        for (long user = 0; user < 50_000; user++) {
+            presence.heartbeat(user);
+        }
+        assertEquals(50_000, presence.onlineCount());
+        now.addAndGet(10 * ONLINE_TTL);
+        presence.tick();
+        assertEquals(0, presence.onlineCount());
+    }
+}
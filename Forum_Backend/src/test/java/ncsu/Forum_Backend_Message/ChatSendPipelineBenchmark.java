@@ -0,0 +1,70 @@
+package ncsu.Forum_Backend_Message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import ncsu.Config.LocalEventBus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Throughput of the send pipeline against the old one-message-per-request path,
+// with each database round trip simulated as a fixed delay. The old path took
+// four round trips per message (load sender, load group, insert, update group)
+// and serialized on the group row; the pipeline takes one per statement per batch.
+// Run with: mvn test -Dtest=ChatSendPipelineBenchmark -Dbenchmarks=true
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class ChatSendPipelineBenchmark {
+
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+    private static final int SENDERS = 64;
+    private static final int MESSAGES = 5_000;
+
+    private static void roundTrips(int count) {
+        LockSupport.parkNanos(ROUND_TRIP_NANOS * count);
+    }
+
+    @Test
+    void oneClassChatUnderLoad() throws Exception {
+        double baseline = run(message -> {
+            synchronized (ChatSendPipelineBenchmark.class) {
+                roundTrips(4);
+            }
+        });
+
+        // insert + lastMessage + inbox, each once per batch for a single group
+        ChatSendPipeline pipeline = new ChatSendPipeline(batch -> roundTrips(3), new GroupChatHub(),
+                new ChatHistoryCache(), new LocalEventBus(), 0, "commit", 500, 10_000);
+        double batched = run(message -> pipeline.send(1, message % 300, "u", "User", "m").join());
+        pipeline.drain();
+
+        System.out.printf("per-message writes: %,.0f msg/s%ngroup commit:       %,.0f msg/s (%.1fx)%n",
+                baseline, batched, batched / baseline);
+        assertTrue(batched > baseline);
+    }
+
+    private interface Send {
+        void send(int message);
+    }
+
+    private static double run(Send send) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(SENDERS);
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> done = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            int message = i;
+            done.add(CompletableFuture.runAsync(() -> send.send(message), clients));
+        }
+        CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).get(5, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        clients.shutdown();
+        return MESSAGES / seconds;
+    }
+}
@@ -0,0 +1,143 @@
+package ncsu.Forum_Backend_Message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import ncsu.Config.LocalEventBus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatSendPipelineTest {
+
+    // Records every batch it is given; fails any batch holding a "poison" message
+    private static class RecordingStore implements ChatSendPipeline.Store {
+        final List<List<ChatMessage>> batches = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void write(List<ChatMessage> batch) {
+            if (batch.stream().anyMatch(message -> message.content().equals("poison"))) {
+                throw new IllegalStateException("bad message");
+            }
+            batches.add(batch);
+        }
+
+        List<ChatMessage> written() {
+            return batches.stream().flatMap(List::stream).toList();
+        }
+    }
+
+    private static ChatSendPipeline pipeline(ChatSendPipeline.Store store, String ack, int capacity) {
+        return new ChatSendPipeline(store, new GroupChatHub(), new ChatHistoryCache(), new LocalEventBus(), 0, ack,
+                500, capacity);
+    }
+
+    @Test
+    void writesInSendOrderWithIncreasingIds() throws Exception {
+        RecordingStore store = new RecordingStore();
+        ChatSendPipeline pipeline = pipeline(store, "commit", 10_000);
+        List<CompletableFuture<ChatMessage>> sent = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            sent.add(pipeline.send(i % 3, 7, "u7", "User Seven", "m" + i));
+        }
+        CompletableFuture.allOf(sent.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+        pipeline.drain();
+
+        List<ChatMessage> written = store.written();
+        assertEquals(1000, written.size());
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals("m" + i, written.get(i).content());
+            if (i > 0) {
+                assertTrue(written.get(i).id() > written.get(i - 1).id());
+            }
+        }
+        assertTrue(store.batches.size() < 1000, "sends should be grouped into batches");
+    }
+
+    @Test
+    void commitAckWaitsForTheStore() throws Exception {
+        RecordingStore store = new RecordingStore();
+        ChatSendPipeline pipeline = pipeline(store, "commit", 100);
+        ChatMessage message = pipeline.send(1, 7, "u7", "User Seven", "hello").get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(message), store.written());
+        pipeline.drain();
+    }
+
+    @Test
+    void enqueueAckReturnsBeforeTheWrite() throws Exception {
+        RecordingStore store = new RecordingStore();
+        ChatSendPipeline pipeline = pipeline(store, "enqueue", 100);
+        CompletableFuture<ChatMessage> sent = pipeline.send(1, 7, "u7", "User Seven", "hello");
+        assertTrue(sent.isDone());
+        assertNotNull(sent.get().id());
+        pipeline.drain();
+        assertEquals(List.of(sent.get()), store.written());
+    }
+
+    @Test
+    void aBadMessageFailsAlone() throws Exception {
+        RecordingStore store = new RecordingStore();
+        // hold the writer so all three land in one batch
+        ChatSendPipeline.Store slow = batch -> {
+            sleep(50);
+            store.write(batch);
+        };
+        ChatSendPipeline pipeline = pipeline(slow, "commit", 100);
+        pipeline.send(1, 7, "u7", "User Seven", "warmup");
+        CompletableFuture<ChatMessage> before = pipeline.send(1, 7, "u7", "User Seven", "before");
+        CompletableFuture<ChatMessage> poison = pipeline.send(1, 7, "u7", "User Seven", "poison");
+        CompletableFuture<ChatMessage> after = pipeline.send(1, 7, "u7", "User Seven", "after");
+
+        assertEquals("before", before.get(5, TimeUnit.SECONDS).content());
+        assertEquals("after", after.get(5, TimeUnit.SECONDS).content());
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> poison.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        pipeline.drain();
+    }
+
+    @Test
+    void rejectsWhenTheQueueIsFull() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ChatSendPipeline.Store stuck = batch -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        ChatSendPipeline pipeline = pipeline(stuck, "commit", 2);
+        try {
+            // the writer takes the first message and blocks in the store
+            pipeline.send(1, 7, "u7", "User Seven", "taken");
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+            pipeline.send(1, 7, "u7", "User Seven", "queued 1");
+            pipeline.send(1, 7, "u7", "User Seven", "queued 2");
+            assertEquals(2, pipeline.backlog());
+
+            CompletableFuture<ChatMessage> rejected = pipeline.send(1, 7, "u7", "User Seven", "one too many");
+            assertTrue(rejected.isDone());
+            ExecutionException failure = assertThrows(ExecutionException.class, rejected::get);
+            assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+        } finally {
+            release.countDown();
+            pipeline.drain();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
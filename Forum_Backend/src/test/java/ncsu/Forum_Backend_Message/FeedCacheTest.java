@@ -0,0 +1,192 @@
+package ncsu.Forum_Backend_Message;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import ncsu.Config.EventBus;
+import ncsu.Config.LocalEventBus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedCacheTest {
+
+    private static final FeedCache.FeedKey GLOBAL = key(null, null, FeedSort.NEW);
+    private static final FeedCache.FeedKey DEPT_1 = key(1L, null, FeedSort.NEW);
+    private static final FeedCache.FeedKey DEPT_2 = key(2L, null, FeedSort.NEW);
+    private static final FeedCache.FeedKey CLASS_10 = key(1L, 10L, FeedSort.NEW);
+    private static final FeedCache.FeedKey GENERAL_1 =
+            new FeedCache.FeedKey(1L, null, null, null, true, FeedSort.NEW, 20);
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private LocalEventBus bus;
+    private FeedCache cache;
+
+    @BeforeEach
+    void setUp() {
+        bus = new LocalEventBus();
+        cache = new FeedCache();
+        ReflectionTestUtils.setField(cache, "bus", bus);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxBytes", 1L << 20);
+        cache.subscribe();
+    }
+
+    private static FeedCache.FeedKey key(Long departmentId, Long classId, FeedSort sort) {
+        return new FeedCache.FeedKey(departmentId, classId, null, null, false, sort, 20);
+    }
+
+    private static PostSummary row(long id, int likes, int dislikes) {
+        return new PostSummary(id, "post " + id, "body", LocalDateTime.of(2025, 1, 1, 12, 0),
+                Message.MessageType.GENERAL, "u1", "User One", null, 1L, "CSC", null, null, null, null,
+                likes, dislikes, 0, 0);
+    }
+
+    private Supplier<List<PostSummary>> loader(PostSummary... rows) {
+        return () -> {
+            loads.incrementAndGet();
+            return List.of(rows);
+        };
+    }
+
+    private boolean cached(FeedCache.FeedKey key) {
+        return cache.version(key) != 0;
+    }
+
+    @Test
+    void servesCopiesOfTheFirstLoad() {
+        FeedCache.Page first = cache.get(DEPT_1, loader(row(1, 0, 0), row(2, 0, 0)));
+        first.rows().get(0).overlayVotes(9, 9);
+        FeedCache.Page second = cache.get(DEPT_1, loader());
+
+        assertEquals(1, loads.get());
+        assertEquals(first.version(), second.version());
+        assertTrue(second.version() > 0);
+        assertEquals(List.of(1L, 2L), second.rows().stream().map(PostSummary::getId).toList());
+        assertEquals(0, second.rows().get(0).getLikeCount());
+        assertEquals(1L, cache.stats().get("hits"));
+        assertEquals(1L, cache.stats().get("misses"));
+    }
+
+    @Test
+    void leastRecentlyUsedFeedsAreEvictedFirst() {
+        cache.get(DEPT_1, loader(row(1, 0, 0)));
+        long oneFeed = (Long) cache.stats().get("bytes");
+        ReflectionTestUtils.setField(cache, "maxBytes", oneFeed * 5 / 2);
+
+        cache.get(DEPT_2, loader(row(2, 0, 0)));
+        cache.get(DEPT_1, loader());
+        cache.get(CLASS_10, loader(row(3, 0, 0)));
+
+        assertTrue(cached(DEPT_1));
+        assertFalse(cached(DEPT_2));
+        assertTrue(cached(CLASS_10));
+        assertEquals(1L, cache.stats().get("evictions"));
+        assertEquals(2 * oneFeed, cache.stats().get("bytes"));
+    }
+
+    @Test
+    void aLoadThatOverlapsAnInvalidationIsServedButNotCached() {
+        FeedCache.Page page = cache.get(DEPT_1, () -> {
+            // a write lands while the page is being read
+            cache.invalidatePost(99);
+            return List.of(row(1, 0, 0));
+        });
+        assertEquals(1, page.rows().size());
+        assertEquals(0, page.version());
+        assertFalse(cached(DEPT_1));
+
+        cache.get(DEPT_1, loader(row(1, 0, 0)));
+        assertTrue(cached(DEPT_1));
+    }
+
+    @Test
+    void newPostsDropTheFeedsTheyBelongTo() {
+        for (FeedCache.FeedKey key : List.of(GLOBAL, DEPT_1, DEPT_2, CLASS_10, GENERAL_1)) {
+            cache.get(key, loader(row(1, 0, 0)));
+        }
+        // a class post in department 1
+        cache.invalidateScope(1L, 10L, null, Message.MessageType.CLASS);
+        assertFalse(cached(GLOBAL));
+        assertFalse(cached(DEPT_1));
+        assertFalse(cached(CLASS_10));
+        assertTrue(cached(DEPT_2));
+        assertTrue(cached(GENERAL_1));
+
+        cache.invalidateScope(1L, null, null, Message.MessageType.GENERAL);
+        assertFalse(cached(GENERAL_1));
+        assertTrue(cached(DEPT_2));
+    }
+
+    @Test
+    void editsDropEveryFeedHoldingThePost() {
+        cache.get(DEPT_1, loader(row(1, 0, 0), row(2, 0, 0)));
+        cache.get(DEPT_2, loader(row(3, 0, 0)));
+        cache.get(CLASS_10, loader(row(2, 0, 0)));
+
+        cache.invalidatePost(2);
+        assertFalse(cached(DEPT_1));
+        assertFalse(cached(CLASS_10));
+        assertTrue(cached(DEPT_2));
+
+        cache.invalidatePosts(List.of(3L, 4L));
+        assertFalse(cached(DEPT_2));
+        assertEquals(3L, cache.stats().get("invalidations"));
+    }
+
+    @Test
+    void votesPatchNewFeedsAndDropTopFeedsTheyCanReorder() {
+        FeedCache.FeedKey top1 = key(1L, null, FeedSort.TOP);
+        FeedCache.FeedKey top2 = key(2L, null, FeedSort.TOP);
+        cache.get(DEPT_1, loader(row(1, 0, 0), row(2, 0, 0)));
+        cache.get(top1, loader(row(1, 0, 0)));
+        cache.get(top2, loader(row(5, 10, 0)));
+        long before = cache.version(DEPT_1);
+
+        cache.onVote(1, 3, 1);
+        FeedCache.Page patched = cache.get(DEPT_1, loader());
+        assertEquals(3, loads.get());
+        assertTrue(patched.version() > before);
+        assertEquals(3, patched.rows().get(0).getLikeCount());
+        assertEquals(1, patched.rows().get(0).getDislikeCount());
+        assertFalse(cached(top1));
+        // a score of 2 cannot reach a feed whose lowest row scores 10
+        assertTrue(cached(top2));
+
+        cache.onVote(6, 12, 0);
+        assertFalse(cached(top2));
+    }
+
+    @Test
+    void rescoringDropsOnlyThatSort() {
+        FeedCache.FeedKey hot = key(1L, null, FeedSort.HOT);
+        cache.get(hot, loader(row(1, 0, 0)));
+        cache.get(DEPT_1, loader(row(1, 0, 0)));
+        cache.invalidateSort(FeedSort.HOT);
+        assertFalse(cached(hot));
+        assertTrue(cached(DEPT_1));
+    }
+
+    @Test
+    void resyncDropsEverything() {
+        cache.get(DEPT_1, loader(row(1, 0, 0)));
+        cache.get(DEPT_2, loader(row(2, 0, 0)));
+        bus.publish(EventBus.RESYNC, new EventBus.Resync());
+        assertEquals(0, cache.stats().get("entries"));
+        assertEquals(0L, cache.stats().get("bytes"));
+    }
+
+    @Test
+    void disabledCachesNothing() {
+        ReflectionTestUtils.setField(cache, "enabled", false);
+        cache.get(DEPT_1, loader(row(1, 0, 0)));
+        cache.get(DEPT_1, loader(row(1, 0, 0)));
+        assertEquals(2, loads.get());
+        assertFalse(cached(DEPT_1));
+    }
+}
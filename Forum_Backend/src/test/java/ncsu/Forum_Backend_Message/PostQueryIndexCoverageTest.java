@@ -0,0 +1,39 @@
+package ncsu.Forum_Backend_Message;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Table;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Every filter PostQuery can apply on its own must be backed by an index that
+// starts with its column and then gives the newest-first order for free.
+class PostQueryIndexCoverageTest {
+
+    private static List<String> indexColumns() {
+        return Arrays.stream(Message.class.getAnnotation(Table.class).indexes())
+                .map(Index::columnList)
+                .map(columns -> columns.replace(" ", ""))
+                .toList();
+    }
+
+    @Test
+    void everyFilterLeadsAFeedIndex() throws NoSuchFieldException {
+        List<String> indexes = indexColumns();
+        for (String association : PostQuery.FILTERED_ASSOCIATIONS) {
+            String column = Message.class.getDeclaredField(association).getAnnotation(JoinColumn.class).name();
+            assertTrue(indexes.contains(column + ",timestamp,id"),
+                    () -> "no (" + column + ", timestamp, id) index for the " + association + " filter");
+        }
+    }
+
+    @Test
+    void unfilteredListingHasAFeedIndex() {
+        assertTrue(indexColumns().contains("timestamp,id"));
+    }
+}
@@ -0,0 +1,105 @@
+package ncsu.Forum_Backend_Message;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostSearchIndexTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private PostSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PostSearchIndex();
+    }
+
+    private void post(PostSearchIndex into, long id, String title, String body) {
+        into.add(id, title, body, NOW, 1, 0, 0);
+    }
+
+    private List<Long> ids(String query) {
+        return index.search(query, null, null, null, 0, 10).stream().map(PostSearchIndex.Hit::id).toList();
+    }
+
+    @Test
+    void titleTermsAndShortPostsRankFirst() {
+        post(index, 1, "Exam schedule", "when is the midterm");
+        post(index, 2, "Office hours", "the midterm exam covers chapters one to five and some more reading");
+        post(index, 3, "Office hours", "exam review");
+        post(index, 4, "Parking", "nothing relevant here");
+
+        // 1 has exam in its title; 3 beats 2 on length
+        assertEquals(List.of(1L, 3L, 2L), ids("exam"));
+        assertEquals(List.of(1L, 2L), ids("Midterm"));
+        assertEquals(List.of(), ids("the of and"));
+        assertEquals(List.of(), ids("calculus"));
+    }
+
+    @Test
+    void filtersAndPaging() {
+        index.add(1, "exam one", null, NOW, 1, 10, 0);
+        index.add(2, "exam two", null, NOW, 1, 20, 7);
+        index.add(3, "exam three", null, NOW, 2, 0, 7);
+
+        assertEquals(List.of(1L), index.search("exam", null, 10L, null, 0, 10).stream()
+                .map(PostSearchIndex.Hit::id).toList());
+        assertEquals(2, index.search("exam", null, null, 7L, 0, 10).size());
+        assertEquals(2, index.search("exam", 1L, null, null, 0, 10).size());
+
+        // equal scores: newest post first, also after an edit re-adds the oldest
+        assertEquals(List.of(3L, 2L, 1L), ids("exam"));
+        index.add(1, "exam one", null, NOW, 1, 10, 0);
+        assertEquals(List.of(3L, 2L, 1L), ids("exam"));
+        assertEquals(List.of(2L), index.search("exam", null, null, null, 1, 1).stream()
+                .map(PostSearchIndex.Hit::id).toList());
+        PostSearchIndex.Hit hit = index.search("three", null, null, null, 0, 1).get(0);
+        assertEquals(new PostSearchIndex.Hit(3, "exam three", NOW, 2L, null, 7L, hit.score()), hit);
+    }
+
+    @Test
+    void editsAndDeletesLeaveTombstonesThatNeverMatch() {
+        post(index, 1, "old title", "lecture notes");
+        post(index, 2, "other", "lecture recording");
+        post(index, 1, "new title", "homework");
+        index.drop(2);
+        index.drop(99);
+
+        assertEquals(List.of(), ids("lecture"));
+        assertEquals(List.of(1L), ids("homework"));
+        assertEquals(List.of(1L), ids("title"));
+        assertEquals(2, ReflectionTestUtils.getField(index, "deadDocs"));
+    }
+
+    @Test
+    void compactionDropsTombstonesAndScoresLikeAFreshIndex() {
+        for (long id = 1; id <= 1536; id++) {
+            post(index, id, "post " + id, id % 5 == 0 ? "algebra algebra proofs" : "algebra notes");
+        }
+        for (long id = 1; id <= 1536; id++) {
+            if (id % 3 != 0) {
+                index.drop(id);
+            }
+        }
+        // the last drop makes 1024 dead against 512 live, which passes the threshold
+        assertEquals(0, ReflectionTestUtils.getField(index, "deadDocs"));
+        assertEquals(512, ReflectionTestUtils.getField(index, "docCount"));
+
+        PostSearchIndex fresh = new PostSearchIndex();
+        for (long id = 3; id <= 1536; id += 3) {
+            post(fresh, id, "post " + id, id % 5 == 0 ? "algebra algebra proofs" : "algebra notes");
+        }
+        for (String query : new String[] {"algebra", "proofs", "notes algebra", "post 999"}) {
+            assertEquals(fresh.search(query, null, null, null, 0, 50), index.search(query, null, null, null, 0, 50),
+                    query);
+        }
+        assertEquals(List.of(999L), ids("999"));
+        assertEquals(List.of(), ids("1000"));
+    }
+}
@@ -0,0 +1,150 @@
+package ncsu.Forum_Backend_Message;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import ncsu.Config.LocalEventBus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs VoteBuffer's flush statements for real, in a throwaway schema. Run
+// against a local Postgres with -Dpg.url=jdbc:postgresql://localhost:5432/postgres
+// (plus -Dpg.user / -Dpg.password when they are not "postgres").
+@EnabledIfSystemProperty(named = "pg.url", matches = ".+")
+class VoteBufferPostgresTest {
+
+    private static final String SCHEMA = "vote_buffer_test";
+    private static final short LIKE = MessageVote.LIKE;
+    private static final short DISLIKE = MessageVote.DISLIKE;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private final List<Long> touched = new ArrayList<>();
+    private VoteBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SingleConnectionDataSource(System.getProperty("pg.url"),
+                System.getProperty("pg.user", "postgres"), System.getProperty("pg.password", "postgres"), true);
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbc.execute("CREATE SCHEMA " + SCHEMA);
+        jdbc.execute("SET search_path TO " + SCHEMA);
+        jdbc.execute("""
+            CREATE TABLE messages (
+                id bigint PRIMARY KEY,
+                like_count int NOT NULL DEFAULT 0,
+                dislike_count int NOT NULL DEFAULT 0,
+                deleted_at timestamp
+            )""");
+        jdbc.execute("""
+            CREATE TABLE message_votes (
+                message_id bigint NOT NULL,
+                unity_id varchar(255) NOT NULL,
+                vote smallint NOT NULL,
+                PRIMARY KEY (message_id, unity_id)
+            )""");
+
+        MessageVoteRepository voteRepository = (MessageVoteRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {MessageVoteRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findVote")) {
+                        return jdbc.query("SELECT vote FROM message_votes WHERE message_id = ? AND unity_id = ?",
+                                (rs, i) -> rs.getShort(1), args[0], args[1]).stream().findFirst();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        LocalEventBus bus = new LocalEventBus();
+        FeedCache feedCache = new FeedCache();
+        ReflectionTestUtils.setField(feedCache, "bus", bus);
+        PostVersions postVersions = new PostVersions() {
+            @Override
+            public void touchAll(Collection<Long> postIds) {
+                touched.addAll(postIds);
+            }
+        };
+
+        buffer = new VoteBuffer();
+        ReflectionTestUtils.setField(buffer, "jdbc", jdbc);
+        ReflectionTestUtils.setField(buffer, "transactionManager", new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(buffer, "voteRepository", voteRepository);
+        ReflectionTestUtils.setField(buffer, "ranking", new PostRanking());
+        ReflectionTestUtils.setField(buffer, "feedCache", feedCache);
+        ReflectionTestUtils.setField(buffer, "postVersions", postVersions);
+        ReflectionTestUtils.setField(buffer, "bus", bus);
+        ReflectionTestUtils.setField(buffer, "writeBehind", true);
+        ReflectionTestUtils.setField(buffer, "flushThreshold", 1000);
+        buffer.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("DROP SCHEMA " + SCHEMA + " CASCADE");
+        dataSource.destroy();
+    }
+
+    private void post(long id, int likes, int dislikes) {
+        jdbc.update("INSERT INTO messages (id, like_count, dislike_count) VALUES (?, ?, ?)", id, likes, dislikes);
+    }
+
+    private String counts(long id) {
+        return jdbc.queryForObject("SELECT like_count || '/' || dislike_count FROM messages WHERE id = ?",
+                String.class, id);
+    }
+
+    private Optional<Short> storedVote(long id, String unityId) {
+        return jdbc.query("SELECT vote FROM message_votes WHERE message_id = ? AND unity_id = ?",
+                (rs, i) -> rs.getShort(1), id, unityId).stream().findFirst();
+    }
+
+    @Test
+    void aFlushAppliesVotesAndCountersInOneGo() {
+        post(1, 1, 0);
+        post(2, 0, 0);
+        jdbc.update("INSERT INTO message_votes VALUES (1, 'u1', 1)");
+
+        buffer.vote(1, "u1", DISLIKE);
+        buffer.vote(1, "u2", LIKE);
+        buffer.vote(2, "u1", LIKE);
+        buffer.retract(2, "u1", LIKE);
+        buffer.vote(2, "u3", DISLIKE);
+        buffer.flush();
+
+        assertEquals("1/1", counts(1));
+        assertEquals("0/1", counts(2));
+        assertEquals(Optional.of(DISLIKE), storedVote(1, "u1"));
+        assertEquals(Optional.of(LIKE), storedVote(1, "u2"));
+        assertEquals(Optional.empty(), storedVote(2, "u1"));
+        assertEquals(List.of(1L, 2L), touched.stream().sorted().toList());
+
+        buffer.retract(1, "u2", LIKE);
+        buffer.flush();
+        assertEquals("0/1", counts(1));
+        assertEquals(Optional.empty(), storedVote(1, "u2"));
+    }
+
+    @Test
+    void votesPendingOnASoftDeletedPostAreNotWritten() {
+        post(1, 0, 0);
+        buffer.vote(1, "u1", LIKE);
+        // deleted by another instance before this one flushed
+        jdbc.update("UPDATE messages SET deleted_at = localtimestamp WHERE id = 1");
+        buffer.flush();
+
+        assertEquals("0/0", counts(1));
+        assertEquals(Optional.empty(), storedVote(1, "u1"));
+        assertTrue(touched.isEmpty());
+        assertTrue(buffer.vote(1, "u2", LIKE).isEmpty());
+    }
+}
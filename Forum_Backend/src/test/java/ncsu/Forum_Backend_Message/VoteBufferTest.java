@@ -0,0 +1,291 @@
+package ncsu.Forum_Backend_Message;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ncsu.Config.LocalEventBus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VoteBufferTest {
+
+    private static final short LIKE = MessageVote.LIKE;
+    private static final short DISLIKE = MessageVote.DISLIKE;
+
+    // Stand in for messages (id -> like, dislike), the ones with deleted_at set,
+    // and message_votes ("id/unity id" -> vote)
+    private final Map<Long, int[]> messages = new HashMap<>();
+    private final Set<Long> deleted = new HashSet<>();
+    private final Map<String, Short> votes = new HashMap<>();
+    private final List<String> written = new ArrayList<>();
+    private final List<FeedCache.Vote> feedVotes = new ArrayList<>();
+    private final List<Long> touched = new ArrayList<>();
+    private PostRanking ranking;
+    private VoteBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbc = new JdbcTemplate() {
+            @Override
+            public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+                // the cold load of a live post's counters
+                int[] counts = deleted.contains((Long) args[0]) ? null : messages.get((Long) args[0]);
+                try {
+                    return counts == null ? List.of() : List.of(rowMapper.mapRow(row(counts[0], counts[1]), 0));
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+                return List.of(); // row locks
+            }
+
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                for (Object[] args : batchArgs) {
+                    if (sql.contains("INSERT")) {
+                        upsert((Long) args[0], (String) args[1], (Short) args[2]);
+                    } else {
+                        delete((Long) args[0], (String) args[1]);
+                    }
+                }
+                return new int[batchArgs.size()];
+            }
+
+            @Override
+            public void query(String sql, RowCallbackHandler handler, Object... args) {
+                for (Long id : (Long[]) args[0]) {
+                    int[] counts = messages.get(id);
+                    if (counts != null && !deleted.contains(id)) {
+                        try {
+                            handler.processRow(row(id, counts[0], counts[1]));
+                        } catch (SQLException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                }
+            }
+        };
+        MessageVoteRepository voteRepository = (MessageVoteRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {MessageVoteRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findVote")) {
+                        return Optional.ofNullable(votes.get(args[0] + "/" + args[1]));
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        LocalEventBus bus = new LocalEventBus();
+        bus.subscribe(FeedCache.VOTE_TOPIC, FeedCache.Vote.class, feedVotes::add);
+        FeedCache feedCache = new FeedCache();
+        ReflectionTestUtils.setField(feedCache, "bus", bus);
+        ranking = new PostRanking();
+        PostVersions postVersions = new PostVersions() {
+            @Override
+            public void touchAll(Collection<Long> postIds) {
+                touched.addAll(postIds);
+            }
+        };
+
+        buffer = new VoteBuffer();
+        ReflectionTestUtils.setField(buffer, "jdbc", jdbc);
+        ReflectionTestUtils.setField(buffer, "voteRepository", voteRepository);
+        ReflectionTestUtils.setField(buffer, "ranking", ranking);
+        ReflectionTestUtils.setField(buffer, "feedCache", feedCache);
+        ReflectionTestUtils.setField(buffer, "postVersions", postVersions);
+        ReflectionTestUtils.setField(buffer, "bus", bus);
+        ReflectionTestUtils.setField(buffer, "writeBehind", true);
+        ReflectionTestUtils.setField(buffer, "flushThreshold", 1000);
+        buffer.init();
+        ReflectionTestUtils.setField(buffer, "tx", new TransactionTemplate() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                return action.doInTransaction(null);
+            }
+        });
+    }
+
+    // Same rules as VoteBuffer.UPSERT: an unchanged vote writes nothing, an
+    // insert adds one, an update also takes one off the opposite counter
+    private void upsert(long id, String unityId, short vote) {
+        int[] counts = messages.get(id);
+        if (counts == null || deleted.contains(id)) {
+            return;
+        }
+        Short previous = votes.put(id + "/" + unityId, vote);
+        if (previous != null && previous == vote) {
+            return;
+        }
+        written.add("upsert " + id + "/" + unityId + "=" + vote);
+        counts[vote == LIKE ? 0 : 1]++;
+        if (previous != null) {
+            counts[vote == LIKE ? 1 : 0]--;
+        }
+    }
+
+    private void delete(long id, String unityId) {
+        Short previous = votes.remove(id + "/" + unityId);
+        if (previous != null) {
+            written.add("delete " + id + "/" + unityId);
+            messages.get(id)[previous == LIKE ? 0 : 1]--;
+        }
+    }
+
+    // A result row that answers getLong/getInt by column number
+    private static ResultSet row(Object... columns) {
+        return (ResultSet) Proxy.newProxyInstance(VoteBufferTest.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getLong" -> ((Number) columns[(Integer) args[0] - 1]).longValue();
+                    case "getInt" -> ((Number) columns[(Integer) args[0] - 1]).intValue();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static String tally(Optional<MessageVoteRepository.VoteTally> tally) {
+        return tally.map(t -> t.getLikeCount() + "/" + t.getDislikeCount()).orElse("none");
+    }
+
+    @Test
+    void repeatedClicksCollapseIntoOneWrite() {
+        messages.put(1L, new int[] {0, 0});
+        assertEquals("1/0", tally(buffer.vote(1, "u1", LIKE)));
+        assertEquals("0/1", tally(buffer.vote(1, "u1", DISLIKE)));
+        assertEquals("1/0", tally(buffer.vote(1, "u1", LIKE)));
+        assertEquals("2/0", tally(buffer.vote(1, "u2", LIKE)));
+        // u2 ends where it started
+        assertEquals("1/0", tally(buffer.retract(1, "u2", LIKE)));
+        assertEquals(LIKE, buffer.currentVote(1, "u1"));
+        assertTrue(written.isEmpty());
+
+        buffer.flush();
+        assertEquals(List.of("upsert 1/u1=1"), written);
+        assertArrayEquals(new int[] {1, 0}, messages.get(1L));
+        assertEquals(List.of(new FeedCache.Vote(1, 1, 0)), feedVotes);
+        assertEquals(Set.of(1L), ReflectionTestUtils.getField(ranking, "dirty"));
+        assertEquals(List.of(1L), touched);
+
+        // nothing left to write
+        buffer.flush();
+        assertEquals(1, written.size());
+    }
+
+    @Test
+    void retractOnlyClearsTheMatchingVote() {
+        messages.put(1L, new int[] {1, 0});
+        votes.put("1/u1", LIKE);
+        assertEquals("1/0", tally(buffer.retract(1, "u1", DISLIKE)));
+        assertEquals("0/0", tally(buffer.retract(1, "u1", LIKE)));
+        assertEquals(0, buffer.currentVote(1, "u1"));
+
+        buffer.flush();
+        assertEquals(List.of("delete 1/u1"), written);
+        assertArrayEquals(new int[] {0, 0}, messages.get(1L));
+    }
+
+    @Test
+    void flushDeltasComeFromTheRowsReplaced() {
+        messages.put(1L, new int[] {1, 0});
+        votes.put("1/u1", LIKE);
+        assertEquals("0/1", tally(buffer.vote(1, "u1", DISLIKE)));
+
+        // meanwhile another instance flushed the same dislike and a like by u9
+        upsert(1, "u1", DISLIKE);
+        upsert(1, "u9", LIKE);
+        written.clear();
+
+        buffer.flush();
+        // the buffer's own upsert replaced a dislike with a dislike and moved nothing
+        assertTrue(written.isEmpty());
+        assertArrayEquals(new int[] {1, 1}, messages.get(1L));
+        assertEquals(List.of(new FeedCache.Vote(1, 1, 1)), feedVotes);
+
+        // later tallies start from what the database holds
+        assertEquals("1/2", tally(buffer.vote(1, "u2", DISLIKE)));
+        List<VoteCounted> rows = List.of(new Counted(1L));
+        buffer.overlay(rows);
+        assertEquals("1/2", rows.get(0).toString());
+    }
+
+    @Test
+    void aFullBufferFlushesInline() {
+        messages.put(1L, new int[] {0, 0});
+        messages.put(2L, new int[] {0, 0});
+        ReflectionTestUtils.setField(buffer, "flushThreshold", 2);
+        buffer.vote(1, "u1", LIKE);
+        assertTrue(written.isEmpty());
+        buffer.vote(2, "u1", DISLIKE);
+        assertEquals(2, written.size());
+        assertArrayEquals(new int[] {0, 1}, messages.get(2L));
+    }
+
+    @Test
+    void votesOnMissingPostsAreRefused() {
+        assertEquals("none", tally(buffer.vote(42, "u1", LIKE)));
+        buffer.flush();
+        assertTrue(written.isEmpty());
+    }
+
+    @Test
+    void deletedPostsStopTakingVotes() {
+        messages.put(1L, new int[] {0, 0});
+        messages.put(2L, new int[] {0, 0});
+        buffer.vote(1, "u1", LIKE);
+        buffer.vote(2, "u1", LIKE);
+
+        // 1 is deleted through this instance, 2 through another one that never told us
+        deleted.add(1L);
+        buffer.postDeleted(1);
+        assertEquals("none", tally(buffer.vote(1, "u2", LIKE)));
+        deleted.add(2L);
+        buffer.flush();
+        assertTrue(written.isEmpty());
+        assertArrayEquals(new int[] {0, 0}, messages.get(2L));
+        assertTrue(feedVotes.isEmpty());
+        assertTrue(touched.isEmpty());
+
+        // the flush dropped 2, so its next vote sees the tombstone
+        assertEquals("none", tally(buffer.vote(2, "u2", LIKE)));
+        assertEquals(0, ((AtomicInteger) ReflectionTestUtils.getField(buffer, "dirty")).get());
+    }
+
+    private static final class Counted implements VoteCounted {
+        private final Long id;
+        private String counts = "unset";
+
+        Counted(Long id) {
+            this.id = id;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public void overlayVotes(int likeCount, int dislikeCount) {
+            counts = likeCount + "/" + dislikeCount;
+        }
+
+        @Override
+        public String toString() {
+            return counts;
+        }
+    }
+}
@@ -16,7 +16,7 @@ const Button = ({ children, className = '', ...props }) => (
 
 const DirectMessageDetails = () => {
   const { groupId } = useParams();
-  const { groupChatData, fetchConversationByGroupId, loading } = useDirectMessage();
+  const { groupChatData, groupInfo, fetchConversationByGroupId, loading } = useDirectMessage();
   const { currentUser } = useUser();
   const [messageInput, setMessageInput] = useState('');
   const [showParticipants, setShowParticipants] = useState(false);
@@ -36,8 +36,13 @@ const DirectMessageDetails = () => {
   };
 
   const participants = useMemo(
-    () => groupChatData[0]?.group?.participants || [],
-    [groupChatData]
+    () => groupInfo?.participants || [],
+    [groupInfo]
+  );
+
+  const pictureByUnityId = useMemo(
+    () => Object.fromEntries(participants.map((p) => [p.unityId, p.profilePictureUrl])),
+    [participants]
   );
 
   const generateFallbackTitle = (list) => {
@@ -48,15 +53,16 @@ const DirectMessageDetails = () => {
   };
 
   const groupTitle = useMemo(() => {
-    const title = groupChatData[0]?.group?.groupTitle;
+    const title = groupInfo?.groupTitle;
     return title && title.trim() !== ''
       ? title
       : generateFallbackTitle(participants);
-  }, [groupChatData, participants]);
+  }, [groupInfo, participants]);
 
+  // Chats have no picture of their own; show the first other participant's
   const groupPictureUrl = useMemo(
-    () => groupChatData[0]?.group?.groupPictureUrl || '',
-    [groupChatData]
+    () => participants.find((p) => p.unityId !== currentUser?.unityId)?.profilePictureUrl || '',
+    [participants, currentUser]
   );
 
   const handleSendMessage = async () => {
@@ -108,17 +114,17 @@ const DirectMessageDetails = () => {
       <div className="flex-1 overflow-y-auto p-4 space-y-3 pb-32">
         {groupChatData.map((msg) => {
           if (!currentUser) return null;
-          const isCurrentUser = msg.sender.unityId === currentUser.unityId;
+          const isCurrentUser = msg.senderUnityId === currentUser.unityId;
           return (
             <div key={msg.id} className="flex items-start space-x-3">
-              <Avatar src={msg.sender.profilePicture || ''} className="w-8 h-8" />
+              <Avatar src={pictureByUnityId[msg.senderUnityId] || ''} className="w-8 h-8" />
               <div
                 className={`max-w-[70%] p-3 rounded shadow ${
                   isCurrentUser ? 'bg-indigo-100' : 'bg-slate-200'
                 }`}
               >
                 <div className="text-sm font-medium text-gray-800">
-                  {msg.sender.displayName}
+                  {msg.senderDisplayName}
                 </div>
                 <div className="text-sm text-gray-600 whitespace-pre-wrap">{msg.content}</div>
                 <div className="text-xs text-gray-400 mt-1">
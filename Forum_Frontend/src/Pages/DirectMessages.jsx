@@ -91,34 +91,35 @@ const DirectMessages = () => {
             {conversations
               .sort(
                 (a, b) =>
-                  new Date(b.lastMessage?.timestamp) -
-                  new Date(a.lastMessage?.timestamp)
+                  new Date(b.lastMessageAt) - new Date(a.lastMessageAt)
               )
-              .map((conv, idx) => {
-                const lastMessage = conv.lastMessage || {};
-                const lastMessageContent = lastMessage.content;
-                const lastMessageTime = lastMessage.timestamp;
-                const otherUser = conv.participants?.find(
-                  (p) => p.id !== currentUser.id
-                );
-                const isGroup = !!conv.groupTitle;
-                const title = isGroup
+              .map((conv) => {
+                // Inbox rows are flat: the last message and a few other
+                // participants' names, not whole entities
+                const lastMessageContent = conv.lastMessageSnippet;
+                const lastMessageTime = conv.lastMessageAt;
+                const names = conv.participantPreview || [];
+                const others = Math.max(conv.participantCount - 1, names.length);
+                const isGroup = !!conv.groupTitle || others > 1;
+                const title = conv.groupTitle
                   ? conv.groupTitle
-                  : otherUser
-                  ? otherUser.displayName || otherUser.unityId || "Unknown User"
-                  : "Unknown User";
+                  : names.length === 0
+                  ? "Unknown User"
+                  : others > names.length
+                  ? `${names.join(", ")} + ${others - names.length} more`
+                  : names.join(", ");
                 const avatarSrc = isGroup
                   ? "/group-avatar.png"
-                  : otherUser?.profilePictureUrl || "/default-avatar.png";
+                  : "/default-avatar.png";
 
                 return (
                   console.log(conv),
                   <div
-                    key={idx}
+                    key={conv.groupId}
                     className="flex justify-between items-center p-3 border-b last:border-b-0 hover:bg-gray-50 rounded cursor-pointer"
                     onClick={() =>
                       navigate(
-                        `/groupChat/${conv.id}`
+                        `/groupChat/${conv.groupId}`
                       )
                     }
                   >
@@ -129,7 +130,14 @@ const DirectMessages = () => {
                         className="w-10 h-10 rounded-full object-cover"
                       />
                       <div>
-                        <p className="font-semibold">{title}</p>
+                        <p className="font-semibold">
+                          {title}
+                          {conv.unreadCount > 0 && (
+                            <span className="ml-2 bg-blue-600 text-white text-xs rounded-full px-2">
+                              {conv.unreadCount}
+                            </span>
+                          )}
+                        </p>
                         <p className="text-gray-600 text-sm truncate w-64">
                           {lastMessageContent || "No messages yet..."}
                         </p>
@@ -21,11 +21,23 @@ export default function PostList({
   const [localPosts, setLocalPosts] = useState(posts || []);
   const [showDeleteModal, setShowDeleteModal] = useState(null);
   const [editPostData, setEditPostData] = useState(null);
+  // The current user's vote per post id: 1, -1 or 0
+  const [myVotes, setMyVotes] = useState({});
 
   useEffect(() => {
     setLocalPosts(posts || []);
   }, [posts]);
 
+  // List rows carry tallies only, so ask which way the current user voted
+  useEffect(() => {
+    const unityId = currentUser?.unityId;
+    if (!unityId || !posts?.length) return;
+    let cancelled = false;
+    Promise.all(posts.map(p => postService.getVote(p.id, unityId).then(vote => [p.id, vote]).catch(() => [p.id, 0])))
+      .then(entries => { if (!cancelled) setMyVotes(Object.fromEntries(entries)); });
+    return () => { cancelled = true; };
+  }, [posts, currentUser?.unityId]);
+
   const handlePostClick = (postId) => navigate(`/posts/${postId}`);
 
   const handleVote = async (e, postId, voteType, alreadyVoted) => {
@@ -46,17 +58,15 @@ export default function PostList({
         : await postService.addDisliked(postId, unityId);
     }
 
+    // the response is the post's new tally
     setLocalPosts(posts =>
       posts.map(p =>
         p.id === postId
-          ? {
-              ...p,
-              likedBy: updated.likedBy || [],
-              dislikedBy: updated.dislikedBy || []
-            }
+          ? { ...p, likeCount: updated.likeCount, dislikeCount: updated.dislikeCount }
           : p
       )
     );
+    setMyVotes(votes => ({ ...votes, [postId]: alreadyVoted ? 0 : (voteType === 'like' ? 1 : -1) }));
   } catch (err) {
     console.error('Vote error', err);
   }
@@ -133,16 +143,20 @@ export default function PostList({
     <div className="space-y-4 relative">
       {filtered.map(post => {
         if (post.parentId != null) return null;
+        // /api/posts rows are flat (sender, class and professor as id/name fields);
+        // department boards still pass whole messages with nested objects
         const department = getDepartmentById(post.departmentId);
-        const professor = post.professor;
-        const course = post.class;
-        const isAuthor = currentUser?.unityId === post.sender.unityId;
+        const professor = post.professor ?? (post.professorId != null ? { id: post.professorId, name: post.professorName } : null);
+        const course = post.class ?? (post.classId != null ? { id: post.classId, courseTitle: post.className } : null);
+        const senderUnityId = post.senderUnityId ?? post.sender?.unityId;
+        const senderDisplayName = post.senderDisplayName ?? post.sender?.displayName;
+        const isAuthor = currentUser?.unityId === senderUnityId;
 
-        const likedBy = post.likedBy || [];
-        const dislikedBy = post.dislikedBy || [];
-        const hasLiked = likedBy.includes(currentUser?.unityId);
-        const hasDisliked = dislikedBy.includes(currentUser?.unityId);
-        const netLikes = likedBy.length - dislikedBy.length;
+        const myVote = myVotes[post.id] ?? 0;
+        const hasLiked = myVote === 1;
+        const hasDisliked = myVote === -1;
+        const netLikes = (post.likeCount ?? 0) - (post.dislikeCount ?? 0);
+        const content = post.content ?? post.snippet;
 
         return (
           <article
@@ -176,7 +190,7 @@ export default function PostList({
                       <span>•</span>
                     </>
                   )}
-                  <Link to={`/profile/${post.sender.unityId}`} onClick={e => e.stopPropagation()} className="hover:text-red-600">{post.sender.displayName || 'Anonymous'}</Link>
+                  <Link to={`/profile/${senderUnityId}`} onClick={e => e.stopPropagation()} className="hover:text-red-600">{senderDisplayName || 'Anonymous'}</Link>
                   <span>•</span>
                   <time className="text-gray-500">{formatDistanceToNow(new Date(post.timestamp), { addSuffix: true })}</time>
                 </div>
@@ -189,7 +203,7 @@ export default function PostList({
               )}
             </div>
 
-            {!compact && post.content && <p className="text-gray-700 mb-3 line-clamp-3">{post.content}</p>}
+            {!compact && content && <p className="text-gray-700 mb-3 line-clamp-3">{content}</p>}
             {post.tags?.length > 0 && <div className="flex flex-wrap gap-2 mb-3">{formatTags(post.tags, highlightTag)}</div>}
 
             <div className="flex items-center justify-between mt-4 pt-4 border-t border-gray-100">
@@ -214,7 +228,7 @@ export default function PostList({
                   </button>
                 </div>
                 <div className="flex items-center gap-1 text-gray-600">
-                  💬 <span className="text-sm">{post.comments?.length || 0} comments</span>
+                  💬 <span className="text-sm">{post.commentCount ?? post.comments?.length ?? 0} comments</span>
                 </div>
                 {post.viewCount !== undefined && (
                   <div className="flex items-center gap-1 text-gray-600">
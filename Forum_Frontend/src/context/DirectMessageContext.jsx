@@ -8,6 +8,8 @@ export const DirectMessageProvider = ({ children }) => {
   const [messages, setMessages] = useState([]);
   const [selectedUserId, setSelectedUserId] = useState(null);
   const [groupChatData, setGroupChatData] = useState([]);
+  const [groupInfo, setGroupInfo] = useState(null);
+  const [directGroupId, setDirectGroupId] = useState(null);
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState(null);
 
@@ -16,8 +18,12 @@ export const DirectMessageProvider = ({ children }) => {
   const fetchConversationByGroupId = useCallback(async (groupId) => {
     setLoading(true);
     try {
-      const data = await directMessageService.getGroupChatMessages(groupId);
+      const [data, info] = await Promise.all([
+        directMessageService.getGroupChatMessages(groupId),
+        directMessageService.getGroupChatInfo(groupId),
+      ]);
       setGroupChatData(data);
+      setGroupInfo(info);
       setError(null);
       return data;
     } catch (err) {
@@ -48,8 +54,9 @@ export const DirectMessageProvider = ({ children }) => {
   const fetchConversationWithUser = useCallback(async (currentUserId, otherUserId) => {
     setLoading(true);
     try {
-      const msgs = await directMessageService.getConversationWithUser(currentUserId, otherUserId);
+      const { groupId, messages: msgs } = await directMessageService.getConversationWithUser(currentUserId, otherUserId);
       setMessages(msgs);
+      setDirectGroupId(groupId);
       setSelectedUserId(otherUserId);
       setError(null);
     } catch (err) {
@@ -60,9 +67,9 @@ export const DirectMessageProvider = ({ children }) => {
     }
   }, []);
 
-  const sendMessage = useCallback(async (senderId, receiverId, content) => {
+  const sendMessage = useCallback(async (senderId, groupId, content) => {
     try {
-      const newMessage = await directMessageService.sendMessage(senderId, receiverId, content);
+      const newMessage = await directMessageService.sendMessage(senderId, groupId, content);
       setMessages(prev => [...prev, newMessage]);
       setError(null);
     } catch (err) {
@@ -78,6 +85,8 @@ export const DirectMessageProvider = ({ children }) => {
     loading,
     error,
     groupChatData,
+    groupInfo,
+    directGroupId,
     fetchRecentConversations,
     fetchConversationWithUser,
     sendMessage,
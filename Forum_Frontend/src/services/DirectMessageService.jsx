@@ -29,10 +29,11 @@ export const directMessageService = {
     const res = await fetch(`${API_BASE_URL}/direct/direct-message/${user1Id}/${user2Id}`);
 
     if (!res.ok) {
-      if (res.status === 404) return [];
+      if (res.status === 404) return { groupId: null, messages: [] };
       throw new Error(`HTTP ${res.status}`);
     }
-    return await res.json();
+    // Same rows as a group chat page; the chat's id comes in a header
+    return { groupId: res.headers.get('X-Group-Id'), messages: await res.json() };
   },
   async createGroupChat(userId, participantIds, groupTitle, content) {
     const res = await fetch(`${API_BASE_URL}/messages/create/${userId}`, {
@@ -59,5 +60,14 @@ export const directMessageService = {
     }
     return await res.json();
     
+  },
+  // Title and participants; message rows only carry who sent them
+  async getGroupChatInfo(groupId) {
+    const res = await fetch(`${API_BASE_URL}/groupchat/${groupId}/info`);
+    if (!res.ok) {
+      if (res.status === 404) return null;
+      throw new Error(`HTTP ${res.status}`);
+    }
+    return await res.json();
   }
 };
@@ -9,6 +9,7 @@ export const postService = {
 
       if (filters.departmentId) queryParams.append('department', filters.departmentId);
       if (filters.courseCode) queryParams.append('course', filters.courseCode);
+      else if (filters.classId) queryParams.append('course', filters.classId);
       if (filters.professorId) queryParams.append('professor', filters.professorId);
       if (filters.tag) queryParams.append('tag', filters.tag);
       if (filters.userId) queryParams.append('user', filters.userId);
@@ -40,6 +41,15 @@ export const postService = {
     }
   },
 
+  // The user's vote on a post: 1 (like), -1 (dislike) or 0
+  getVote: async (postId, unityId) => {
+    const res = await fetch(`${API_BASE_URL}/posts/${postId}/vote/${encodeURIComponent(unityId)}`, {
+      headers: { 'Content-Type': 'application/json' },
+    });
+    if (!res.ok) throw new Error(`HTTP error! status: ${res.status}`);
+    return (await res.json()).vote;
+  },
+
   // Like a post
   addLiked: async (id, unityId) => {
     try{
@@ -196,6 +206,7 @@ export const postService = {
   // Convenience methods
   getPostsByProfessor: async (professorId, options = {}) => postService.getPosts({ ...options, professorId }),
   getPostsByCourse: async (courseCode, options = {}) => postService.getPosts({ ...options, courseCode }),
+  getPostsByClass: async (classId, options = {}) => postService.getPosts({ ...options, classId }),
   getPostsByTag: async (tag, options = {}) => postService.getPosts({ ...options, tag }),
 
   // Search posts